@@ -0,0 +1,16 @@
+package com.example.bankcards.reactive;
+
+import com.example.bankcards.mapper.CardMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+// Карты и балансы только для чтения: WebFlux + R2DBC, переводы остаются в основном приложении
+@SpringBootApplication
+@Import(CardMapper.class)
+public class ReactiveApiApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveApiApplication.class, args);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.reactive.controller;
+
+import com.example.bankcards.dto.card.select.ResponseCardDto;
+import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.reactive.service.ReactiveCardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+public class ReactiveCardController {
+
+    private final ReactiveCardService cardService;
+
+    @GetMapping("/cards")
+    public Mono<Page<ResponseCardDto>> getUserCards(
+            @AuthenticationPrincipal UUID userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy) {
+        Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy));
+        return cardService.getAllUserCards(userId, pageable);
+    }
+
+    @GetMapping("/cards/{cardId}")
+    public Mono<ResponseEntity<ResponseCardDto>> getCardById(@AuthenticationPrincipal UUID userId,
+                                                             @PathVariable UUID cardId) {
+        return cardService.getCardById(userId, cardId).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/cards/{cardId}/balance")
+    public Mono<ResponseEntity<ResponseBalanceDto>> checkBalance(@AuthenticationPrincipal UUID userId,
+                                                                 @PathVariable UUID cardId,
+                                                                 @RequestParam(required = false) Instant at) {
+        // Баланс на момент времени собирается из снимков и проводок - это остается в основном приложении
+        if (at != null) {
+            return Mono.error(new BadRequestException("balance at a point in time is served by the main API"));
+        }
+        return cardService.checkBalance(userId, cardId).map(ResponseEntity::ok);
+    }
+}
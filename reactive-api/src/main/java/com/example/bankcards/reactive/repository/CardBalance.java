@@ -0,0 +1,4 @@
+package com.example.bankcards.reactive.repository;
+
+public record CardBalance(String last4, long balance) {
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.reactive.repository;
+
+import com.example.bankcards.repository.projection.CardView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+// Те же чтения, что у CardRepository основного приложения: колонки CardView без номера карты
+@Repository
+@RequiredArgsConstructor
+public class ReactiveCardRepository {
+
+    private static final String CARDS = "cards";
+
+    // Как CardRepository.findBalanceByIdAndUserId: баланс вместе с шардами горячей карты за один запрос
+    private static final String BALANCE_SQL = """
+            SELECT c.last4 AS last4,
+                   c.balance + CASE WHEN c.balance_shards = 0 THEN 0
+                       ELSE (SELECT COALESCE(sum(s.balance), 0) FROM card_balance_shards s WHERE s.card_id = c.id)
+                   END AS balance
+            FROM cards c
+            WHERE c.id = :id AND c.user_id = :userId
+            """;
+
+    private static final String SHARDS_SQL = """
+            SELECT CAST(COALESCE(sum(s.balance), 0) AS bigint) AS balance FROM card_balance_shards s WHERE s.card_id = :id
+            """;
+
+    private final R2dbcEntityTemplate template;
+
+    public Flux<CardView> findViewsByUserId(UUID userId, Pageable pageable) {
+        return template.select(CardView.class)
+                .from(CARDS)
+                .matching(Query.query(where("userId").is(userId)).with(pageable))
+                .all()
+                .concatMap(this::withShards);
+    }
+
+    public Mono<Long> countByUserId(UUID userId) {
+        return template.select(CardView.class)
+                .from(CARDS)
+                .matching(Query.query(where("userId").is(userId)))
+                .count();
+    }
+
+    public Mono<CardView> findViewByIdAndUserId(UUID id, UUID userId) {
+        return template.select(CardView.class)
+                .from(CARDS)
+                .matching(Query.query(where("id").is(id).and("userId").is(userId)))
+                .one()
+                .flatMap(this::withShards);
+    }
+
+    public Mono<CardBalance> findBalanceByIdAndUserId(UUID id, UUID userId) {
+        return template.getDatabaseClient()
+                .sql(BALANCE_SQL)
+                .bind("id", id)
+                .bind("userId", userId)
+                .map((row, metadata) -> new CardBalance(row.get("last4", String.class), row.get("balance", Long.class)))
+                .one();
+    }
+
+    // Как CARD_VIEW основного приложения: баланс горячей карты включает шарды. Шарды бывают у единиц карт,
+    // поэтому обычная карта лишнего запроса не делает
+    private Mono<CardView> withShards(CardView card) {
+        if (card.balanceShards() == 0) {
+            return Mono.just(card);
+        }
+        return template.getDatabaseClient()
+                .sql(SHARDS_SQL)
+                .bind("id", card.id())
+                .map((row, metadata) -> row.get("balance", Long.class))
+                .one()
+                .map(shards -> new CardView(card.id(), card.last4(), card.holderName(), card.expiryMonth(),
+                        card.expiryYear(), card.status(), card.balance() + shards, card.balanceShards(),
+                        card.createdAt(), card.userId()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.bankcards.reactive.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+// Проверка access-токена основного приложения: подпись и срок действия проверяются в памяти,
+// пользователь берется из claims userId и role без похода в базу
+@Component
+public class JwtVerifier {
+
+    // Парсер неизменяем и потокобезопасен, собирается один раз
+    private final JwtParser parser;
+
+    public JwtVerifier(@Value("${jwt.secret}") String secret) {
+        SecretKey secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+    }
+
+    public Authentication verify(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid token", e);
+        }
+
+        String userId = claims.get("userId", String.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null) {
+            // refresh-токен не содержит userId и role
+            throw new BadCredentialsException("Token is not an access token");
+        }
+
+        UUID principal;
+        try {
+            principal = UUID.fromString(userId);
+        } catch (IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid userId in token", e);
+        }
+        return new UsernamePasswordAuthenticationToken(principal, token,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.bankcards.reactive.service;
+
+import com.example.bankcards.dto.card.select.ResponseCardDto;
+import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.reactive.repository.ReactiveCardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+// Ответы совпадают с UserCardService и TransactionService.checkBalanceByUser основного приложения.
+// Баланс читается из базы: при включенном in-memory движке балансов основное приложение отдает баланс движка
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveCardService {
+
+    private final ReactiveCardRepository cardRepository;
+    private final CardMapper cardMapper;
+
+    public Mono<Page<ResponseCardDto>> getAllUserCards(UUID userId, Pageable pageable) {
+        return Mono.zip(
+                        cardRepository.findViewsByUserId(userId, pageable).map(cardMapper::toDto).collectList(),
+                        cardRepository.countByUserId(userId))
+                .map(page -> new PageImpl<>(page.getT1(), pageable, page.getT2()));
+    }
+
+    public Mono<ResponseCardDto> getCardById(UUID userId, UUID cardId) {
+        return cardRepository.findViewByIdAndUserId(cardId, userId)
+                .map(cardMapper::toDto)
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.warn("Getting card by id error: card with id '{}' not found", cardId);
+                    return Mono.error(new NotFoundException("card not found"));
+                }));
+    }
+
+    public Mono<ResponseBalanceDto> checkBalance(UUID userId, UUID cardId) {
+        return cardRepository.findBalanceByIdAndUserId(cardId, userId)
+                .map(card -> ResponseBalanceDto.builder()
+                        .maskedCard("**** **** **** " + card.last4())
+                        .balance(card.balance())
+                        .build())
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.warn("User '{}' check balance error: card '{}' not found or not yours", userId, cardId);
+                    return Mono.error(new NotFoundException("card not found or not yours"));
+                }));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bankcards.reactive.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtVerifierTest {
+
+    private static final String SECRET = "30d3a11241cf81068a2d0c19d8974787e46b2abad2a2738b849753b0d41f351a";
+
+    private final JwtVerifier jwtVerifier = new JwtVerifier(SECRET);
+
+    @Test
+    void verify_accessToken_returnsUserIdAndRole() {
+        UUID userId = UUID.randomUUID();
+
+        Authentication authentication = jwtVerifier.verify(accessToken(SECRET, userId, 60_000));
+
+        assertEquals(userId, authentication.getPrincipal());
+        assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+        assertTrue(authentication.isAuthenticated());
+    }
+
+    @Test
+    void verify_expiredToken_throwsBadCredentials() {
+        String token = accessToken(SECRET, UUID.randomUUID(), -60_000);
+
+        assertThrows(BadCredentialsException.class, () -> jwtVerifier.verify(token));
+    }
+
+    @Test
+    void verify_foreignSignature_throwsBadCredentials() {
+        String token = accessToken("0000000000000000000000000000000000000000000000000000000000000000",
+                UUID.randomUUID(), 60_000);
+
+        assertThrows(BadCredentialsException.class, () -> jwtVerifier.verify(token));
+    }
+
+    @Test
+    void verify_refreshToken_throwsBadCredentials() {
+        String token = Jwts.builder()
+                .subject("user@example.com")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS256)
+                .compact();
+
+        assertThrows(BadCredentialsException.class, () -> jwtVerifier.verify(token));
+    }
+
+    // Тот же формат, что JwtService.generateAccessToken основного приложения
+    private String accessToken(String secret, UUID userId, long validityMs) {
+        return Jwts.builder()
+                .subject("user@example.com")
+                .claim("userId", userId)
+                .claim("role", "USER")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + validityMs))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS256)
+                .compact();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.bankcards.reactive.service;
+
+import com.example.bankcards.dto.card.select.ResponseCardDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.reactive.repository.CardBalance;
+import com.example.bankcards.reactive.repository.ReactiveCardRepository;
+import com.example.bankcards.repository.projection.CardView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveCardServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cardId = UUID.randomUUID();
+
+    @Mock
+    private ReactiveCardRepository cardRepository;
+
+    @Spy
+    private CardMapper cardMapper = new CardMapper();
+
+    @InjectMocks
+    private ReactiveCardService cardService;
+
+    @Test
+    void getAllUserCards_returnsPageWithTotal() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(cardRepository.findViewsByUserId(userId, pageable)).thenReturn(Flux.just(cardView()));
+        when(cardRepository.countByUserId(userId)).thenReturn(Mono.just(3L));
+
+        StepVerifier.create(cardService.getAllUserCards(userId, pageable))
+                .assertNext(page -> {
+                    assertEquals(3, page.getTotalElements());
+                    assertEquals(3, page.getTotalPages());
+                    assertEquals(cardMapper.toDto(cardView()), page.getContent().get(0));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getCardById_mapsLikeMainApi() {
+        when(cardRepository.findViewByIdAndUserId(cardId, userId)).thenReturn(Mono.just(cardView()));
+
+        StepVerifier.create(cardService.getCardById(userId, cardId))
+                .assertNext(card -> {
+                    assertEquals("**** **** **** 1234", card.getCardNumber());
+                    assertEquals(cardId, card.getId());
+                    assertEquals(500L, card.getBalance());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getCardById_notFound() {
+        when(cardRepository.findViewByIdAndUserId(cardId, userId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(cardService.getCardById(userId, cardId))
+                .expectErrorSatisfies(e -> {
+                    assertEquals(NotFoundException.class, e.getClass());
+                    assertEquals("card not found", e.getMessage());
+                })
+                .verify();
+    }
+
+    @Test
+    void checkBalance_success() {
+        when(cardRepository.findBalanceByIdAndUserId(cardId, userId)).thenReturn(Mono.just(new CardBalance("1234", 700L)));
+
+        StepVerifier.create(cardService.checkBalance(userId, cardId))
+                .assertNext(balance -> {
+                    assertEquals("**** **** **** 1234", balance.getMaskedCard());
+                    assertEquals(700L, balance.getBalance());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void checkBalance_notYours() {
+        when(cardRepository.findBalanceByIdAndUserId(cardId, userId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(cardService.checkBalance(userId, cardId))
+                .expectError(NotFoundException.class)
+                .verify();
+    }
+
+    private CardView cardView() {
+        return new CardView(cardId, "1234", "IVAN IVANOV", 12, 30, CardStatus.ACTIVE, 500L, 0,
+                Instant.parse("2025-01-01T00:00:00Z"), userId);
+    }
+}
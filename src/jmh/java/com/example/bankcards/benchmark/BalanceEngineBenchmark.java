@@ -0,0 +1,77 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.service.balance.InMemoryBalanceEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Переводы через JPA (PESSIMISTIC) против движка балансов в памяти с журналом.
+// forceJournal=true - fsync каждой записи журнала, честное сравнение по долговечности
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(16)
+public class BalanceEngineBenchmark {
+
+    private static final int CARDS = 64;
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+
+    @Param({"jpa", "in-memory"})
+    public String engine;
+
+    @Param({"false", "true"})
+    public boolean forceJournal;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private BenchmarkFixture fixture;
+    private Path journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journal = Files.createTempFile("balance", ".journal");
+        Files.delete(journal);
+        context = BenchmarkFixture.startApplication(
+                "transfer.concurrency.mode=PESSIMISTIC",
+                "balance.engine=" + engine,
+                "balance.in-memory.journal-path=" + journal,
+                "balance.in-memory.force-journal=" + forceJournal);
+        transactionService = context.getBean(TransactionService.class);
+        fixture = BenchmarkFixture.create(context, CARDS, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // Все переводы должны попасть в transactions до удаления карт
+        context.getBeanProvider(InMemoryBalanceEngine.class).ifAvailable(InMemoryBalanceEngine::flush);
+        fixture.cleanUp();
+        context.close();
+        Files.deleteIfExists(journal);
+    }
+
+    @Benchmark
+    public Object transfer(TransferCounters counters) {
+        return fixture.transfer(transactionService, fixture.randomTransfer(0), counters);
+    }
+}
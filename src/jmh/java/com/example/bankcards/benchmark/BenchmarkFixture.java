@@ -0,0 +1,116 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.service.TransactionService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Отдельный пользователь с набором карт под каждый прогон, после прогона все удаляется
+final class BenchmarkFixture {
+
+    static final String PASSWORD = "benchmark";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UUID userId;
+    private final String email;
+    private final List<UUID> cardIds = new ArrayList<>();
+
+    private BenchmarkFixture(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userId = UUID.randomUUID();
+        this.email = "bench-" + userId + "@example.com";
+        jdbcTemplate.update("INSERT INTO users (id, email, password, role, created_at, is_enabled) " +
+                        "VALUES (?, ?, ?, 'USER', now(), true)",
+                userId, email, passwordEncoder.encode(PASSWORD));
+    }
+
+    static ConfigurableApplicationContext startApplication(String... properties) {
+        return new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("local")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+    }
+
+    static BenchmarkFixture create(ConfigurableApplicationContext context, int cards, long balance) {
+        BenchmarkFixture fixture = new BenchmarkFixture(
+                context.getBean(JdbcTemplate.class), context.getBean(PasswordEncoder.class));
+        for (int i = 0; i < cards; i++) {
+            fixture.addCard(balance);
+        }
+        return fixture;
+    }
+
+    private void addCard(long balance) {
+        UUID cardId = UUID.randomUUID();
+        StringBuilder number = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            number.append(ThreadLocalRandom.current().nextInt(10));
+        }
+        jdbcTemplate.update("INSERT INTO cards (id, card_number, last4, holder_name, expiry_month, expiry_year, " +
+                        "status, balance, created_at, user_id) VALUES (?, ?, ?, 'BENCHMARK', 12, 99, 'ACTIVE', ?, now(), ?)",
+                cardId, number.toString(), number.substring(12), balance, userId);
+        cardIds.add(cardId);
+    }
+
+    UUID userId() {
+        return userId;
+    }
+
+    String email() {
+        return email;
+    }
+
+    List<UUID> cardIds() {
+        return cardIds;
+    }
+
+    // Случайная пара разных карт пула. hotPercent > 0: столько процентов переводов идет на карту 0,
+    // сама она при этом не отправляет
+    RequestTransferDto randomTransfer(int hotPercent) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(hotPercent > 0 ? 1 : 0, cardIds.size());
+        int to;
+        if (random.nextInt(100) < hotPercent) {
+            to = 0;
+        } else {
+            do {
+                to = random.nextInt(cardIds.size());
+            } while (to == from);
+        }
+        return RequestTransferDto.builder()
+                .fromCard(cardIds.get(from))
+                .toCard(cardIds.get(to))
+                .amount(1L)
+                .build();
+    }
+
+    // Исчерпанные попытки не прерывают итерацию JMH, но учитываются отдельно от проведенных переводов
+    Object transfer(TransactionService transactionService, RequestTransferDto dto, TransferCounters counters) {
+        try {
+            Object result = transactionService.transfer(userId, dto);
+            counters.transfers++;
+            return result;
+        } catch (ConflictException e) {
+            counters.conflicts++;
+            return e;
+        }
+    }
+
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM ledger_postings WHERE card_id IN (SELECT id FROM cards WHERE user_id = ?)", userId);
+        jdbcTemplate.update("DELETE FROM transactions WHERE from_card IN (SELECT id FROM cards WHERE user_id = ?) " +
+                "OR to_card IN (SELECT id FROM cards WHERE user_id = ?)", userId, userId);
+        jdbcTemplate.update("DELETE FROM cards WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+}
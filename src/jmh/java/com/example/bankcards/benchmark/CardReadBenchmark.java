@@ -0,0 +1,90 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.card.select.ResponseCardDto;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Чтение карт в read-only транзакции: сущность Card + CardMapper (ENTITY) против проекции CardView (PROJECTION).
+// Кеш карт обходится, репозиторий вызывается напрямую. Аллокации на запрос - gc.alloc.rate.norm профайлера gc:
+// ./gradlew jmh -PjmhInclude=CardReadBenchmark -PjmhProfilers=gc
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class CardReadBenchmark {
+
+    private static final int CARDS = 64;
+    private static final Pageable PAGE = PageRequest.of(0, 20, Sort.by("createdAt").descending());
+
+    @Param({"ENTITY", "PROJECTION"})
+    public String read;
+
+    private ConfigurableApplicationContext context;
+    private CardRepository cardRepository;
+    private CardMapper cardMapper;
+    private TransactionTemplate readOnlyTemplate;
+    private BenchmarkFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkFixture.startApplication();
+        cardRepository = context.getBean(CardRepository.class);
+        cardMapper = context.getBean(CardMapper.class);
+        readOnlyTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTemplate.setReadOnly(true);
+        fixture = BenchmarkFixture.create(context, CARDS, 1_000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.cleanUp();
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseCardDto cardById() {
+        List<UUID> cards = fixture.cardIds();
+        UUID cardId = cards.get(ThreadLocalRandom.current().nextInt(cards.size()));
+        UUID userId = fixture.userId();
+        return readOnlyTemplate.execute(status -> "ENTITY".equals(read)
+                ? cardMapper.toDto(cardRepository.findByIdAndUserId(cardId, userId).orElseThrow())
+                : cardMapper.toDto(cardRepository.findViewByIdAndUserId(cardId, userId).orElseThrow()));
+    }
+
+    @Benchmark
+    public Page<ResponseCardDto> userCardsPage() {
+        UUID userId = fixture.userId();
+        return readOnlyTemplate.execute(status -> "ENTITY".equals(read)
+                ? cardRepository.findAllByUserId(userId, PAGE).map(cardMapper::toDto)
+                : cardRepository.findViewsByUserId(userId, PAGE).map(cardMapper::toDto));
+    }
+}
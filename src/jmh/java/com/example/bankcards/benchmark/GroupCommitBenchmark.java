@@ -0,0 +1,67 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// Переводов в секунду: один COMMIT на перевод (groupCommit=false, режим PESSIMISTIC)
+// против группового коммита с разным окном накопления
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(32)
+public class GroupCommitBenchmark {
+
+    private static final int CARDS = 256;
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    @Param({"200", "1000"})
+    public long windowMicros;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private BenchmarkFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkFixture.startApplication(
+                "transfer.concurrency.mode=PESSIMISTIC",
+                "transfer.group-commit.enabled=" + groupCommit,
+                "transfer.group-commit.window-micros=" + windowMicros,
+                "transfer.group-commit.max-batch-size=64");
+        transactionService = context.getBean(TransactionService.class);
+        fixture = BenchmarkFixture.create(context, CARDS, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.cleanUp();
+        context.close();
+    }
+
+    @Benchmark
+    public Object transfer(TransferCounters counters) {
+        return fixture.transfer(transactionService, fixture.randomTransfer(0), counters);
+    }
+}
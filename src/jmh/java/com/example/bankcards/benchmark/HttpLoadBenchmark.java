@@ -0,0 +1,122 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.user.login.ResponseLoginDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Нагрузка через HTTP: потоки платформы Tomcat против виртуальных потоков на переводах и списке карт.
+// Клиентов больше, чем server.tomcat.threads.max, чтобы в режиме платформенных потоков запросы ждали в очереди Tomcat.
+// Кеш карт выключен: список карт каждый раз идет в JDBC.
+// Виртуальные потоки включаются только на Java 21: ./gradlew jmh -PjavaVersion=21 -PjmhInclude=HttpLoadBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 20)
+@Fork(1)
+@Threads(256)
+public class HttpLoadBenchmark {
+
+    private static final int CARDS = 64;
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"TRANSFER", "LIST"})
+    public String endpoint;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkFixture fixture;
+    private HttpClient client;
+    private ObjectMapper objectMapper;
+    private String baseUrl;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = BenchmarkFixture.startApplication(
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "server.tomcat.threads.max=64",
+                "cache.cards.max-size=0",
+                "rate-limit.enabled=false");
+        fixture = BenchmarkFixture.create(context, CARDS, INITIAL_BALANCE);
+        objectMapper = context.getBean(ObjectMapper.class);
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        HttpResponse<String> login = client.send(json("/auth/login",
+                        Map.of("email", fixture.email(), "password", BenchmarkFixture.PASSWORD)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (login.statusCode() != 200) {
+            throw new IllegalStateException("Benchmark login failed: " + login.statusCode());
+        }
+        authorization = "Bearer " + objectMapper.readValue(login.body(), ResponseLoginDto.class).getAccessToken();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.cleanUp();
+        context.close();
+    }
+
+    @Benchmark
+    public int request() throws IOException, InterruptedException {
+        HttpRequest request = "TRANSFER".equals(endpoint) ? transfer() : list();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest transfer() throws IOException {
+        List<UUID> cards = fixture.cardIds();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(cards.size());
+        int to;
+        do {
+            to = random.nextInt(cards.size());
+        } while (to == from);
+        return json("/api/transfer", Map.of("fromCard", cards.get(from), "toCard", cards.get(to), "amount", 1L))
+                .header("Authorization", authorization)
+                .build();
+    }
+
+    private HttpRequest list() {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/cards?page=0&size=10"))
+                .header("Authorization", authorization)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest.Builder json(String path, Map<String, ?> body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+    }
+}
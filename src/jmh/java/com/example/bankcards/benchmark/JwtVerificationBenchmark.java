@@ -0,0 +1,96 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Проверка access-токена на один запрос, как в JwtAuthenticationFilter, без базы и контекста Spring:
+// LEGACY - прежний путь (extractUsername + isTokenValid: три сборки парсера и три проверки HMAC),
+// PARSE_ONCE - один разбор без кеша, CACHED - кеш проверенных токенов.
+// ./gradlew jmh -PjmhInclude=JwtVerificationBenchmark -PjmhProfilers=gc
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "30d3a11241cf81068a2d0c19d8974787e46b2abad2a2738b849753b0d41f351a";
+    // Столько разных пользователей одновременно шлют запросы
+    private static final int TOKENS = 1000;
+
+    @Param({"LEGACY", "PARSE_ONCE", "CACHED"})
+    public String mode;
+
+    private JwtService jwtService;
+    private SecretKey secretKey;
+    private String[] tokens;
+    private UserDetails[] users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtService = new JwtService(SECRET, "CACHED".equals(mode) ? TOKENS * 2 : 0);
+        secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        tokens = new String[TOKENS];
+        users = new UserDetails[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            String email = "bench-" + i + "@example.com";
+            tokens[i] = jwtService.generateAccessToken(email, UUID.randomUUID(), "USER");
+            users[i] = new User(email, "", List.of());
+        }
+    }
+
+    @Benchmark
+    public boolean verify() {
+        int i = ThreadLocalRandom.current().nextInt(TOKENS);
+        String token = tokens[i];
+        UserDetails user = users[i];
+        if ("LEGACY".equals(mode)) {
+            return legacy(token, user);
+        }
+        Claims claims = jwtService.parseValid(token).orElse(null);
+        return claims != null && jwtService.isTokenValid(claims, user);
+    }
+
+    private boolean legacy(String token, UserDetails user) {
+        String username = parse(token).getSubject();
+        if (!user.getUsername().equals(username)) {
+            return false;
+        }
+        return parse(token).getSubject().equals(user.getUsername()) && parse(token).getExpiration().after(new Date());
+    }
+
+    private Claims parse(String token) {
+        return Jwts.parser()
+                .verifyWith(secretKey)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// Throughput + SampleTime (p0.99 в отчете JMH) для каждого режима блокировок и двух профилей нагрузки:
+// UNIFORM - случайная пара карт из пула, HOT_CARD - 80% переводов идут на одну карту
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(16)
+public class TransferConcurrencyBenchmark {
+
+    private static final int CARDS = 64;
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC", "SERIALIZABLE", "ATOMIC_UPDATE"})
+    public String mode;
+
+    @Param({"UNIFORM", "HOT_CARD"})
+    public String workload;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private BenchmarkFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkFixture.startApplication(
+                "transfer.concurrency.mode=" + mode,
+                "transfer.concurrency.max-attempts=20");
+        transactionService = context.getBean(TransactionService.class);
+        fixture = BenchmarkFixture.create(context, CARDS, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.cleanUp();
+        context.close();
+    }
+
+    @Benchmark
+    public Object transfer(TransferCounters counters) {
+        return fixture.transfer(transactionService, fixture.randomTransfer("HOT_CARD".equals(workload) ? 80 : 0), counters);
+    }
+}
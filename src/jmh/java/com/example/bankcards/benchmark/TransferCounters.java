@@ -0,0 +1,24 @@
+package com.example.bankcards.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Вспомогательные счетчики JMH (в режиме Throughput): transfers - проведенные переводы,
+// conflicts - отказы после исчерпания попыток. Основной score считает оба исхода,
+// сравнивать режимы нужно по transfers
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class TransferCounters {
+
+    public long transfers;
+    public long conflicts;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        transfers = 0;
+        conflicts = 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bankcards.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Следит за отставанием реплики и за пользователями, которые только что меняли свои карты.
+// Пока отставание неизвестно или больше порога, все чтения идут в primary.
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // Реплика догнала primary - отставания нет, иначе считаем от времени последней примененной транзакции.
+    // На самом primary функции возвращают NULL, поэтому та же база в роли реплики дает 0
+    static final String LAG_SQL = """
+            SELECT COALESCE(
+                CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                     ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                END, 0)
+            """;
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final double maxLagSeconds;
+    private final Cache<UUID, Boolean> recentWriters;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(JdbcTemplate replicaJdbcTemplate, Duration maxLag, long checkIntervalMs, MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        // Отставание проверяется раз в интервал, поэтому запись может не дойти до реплики чуть дольше порога
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(maxLag.plusMillis(checkIntervalMs))
+                .build();
+        Gauge.builder("replica.lag", this, monitor -> monitor.lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${replica.lag-check-interval-ms}")
+    public void checkLag() {
+        double lag;
+        try {
+            Double measured = replicaJdbcTemplate.queryForObject(LAG_SQL, Double.class);
+            lag = measured != null ? measured : Double.NaN;
+        } catch (DataAccessException e) {
+            log.warn("Replica lag check failed: {}", e.getMessage());
+            lag = Double.NaN;
+        }
+        lagSeconds = lag;
+
+        boolean nowUsable = lag <= maxLagSeconds;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                log.info("Replica is back: lag {}s, read-only transactions go to replica", lag);
+            } else {
+                log.warn("Replica lag {}s exceeds {}s, read-only transactions go to primary", lag, maxLagSeconds);
+            }
+            usable = nowUsable;
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    public void recordWrite(UUID userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    // После своей записи пользователь читает из primary, пока реплика не догонит
+    public boolean wroteRecently(UUID userId) {
+        return recentWriters.getIfPresent(userId) != null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.util.SecurityUtil;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Read-only транзакции уходят в реплику, все остальное - в primary.
+// Ключ вычисляется при первом запросе соединения, поэтому оборачивается в LazyConnectionDataSourceProxy:
+// к этому моменту флаг readOnly транзакции уже выставлен.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final SecurityUtil securityUtil;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReplicaLagMonitor lagMonitor, SecurityUtil securityUtil) {
+        this.lagMonitor = lagMonitor;
+        this.securityUtil = securityUtil;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || !lagMonitor.isReplicaUsable()) {
+            return Target.PRIMARY;
+        }
+        boolean wroteRecently = securityUtil.findCurrentUserId()
+                .map(lagMonitor::wroteRecently)
+                .orElse(false);
+        return wroteRecently ? Target.PRIMARY : Target.REPLICA;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.token.refresh.RequestRefreshDto;
+import com.example.bankcards.dto.token.refresh.ResponseRefreshDto;
 import com.example.bankcards.dto.user.login.RequestLoginDto;
 import com.example.bankcards.dto.user.login.ResponseLoginDto;
 import com.example.bankcards.dto.user.register.RequestRegisterDto;
@@ -31,4 +33,10 @@ public class AuthController {
         ResponseLoginDto response = authService.login(request);
         return ResponseEntity.ok().body(response);
     }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<ResponseRefreshDto> refresh(@RequestBody RequestRefreshDto request) {
+        ResponseRefreshDto response = authService.refresh(request);
+        return ResponseEntity.ok().body(response);
+    }
 }
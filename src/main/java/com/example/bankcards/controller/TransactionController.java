@@ -1,13 +1,31 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import com.example.bankcards.dto.transaction.batch.BatchTransferMode;
+import com.example.bankcards.dto.transaction.batch.ResponseBatchTransferDto;
+import com.example.bankcards.dto.transaction.history.ResponseTransactionPageDto;
+import com.example.bankcards.dto.transaction.statement.StatementFormat;
 import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
 import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.dto.transaction.turnover.ResponseTurnoverDto;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.service.BalanceSnapshotService;
+import com.example.bankcards.service.BatchTransferService;
+import com.example.bankcards.service.StatementService;
+import com.example.bankcards.service.TransactionHistoryService;
 import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.service.TurnoverService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -16,16 +34,76 @@ import java.util.UUID;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final BatchTransferService batchTransferService;
+    private final TransactionHistoryService transactionHistoryService;
+    private final StatementService statementService;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final TurnoverService turnoverService;
 
     @PostMapping("/transfer")
-    public ResponseEntity<ResponseTransferDto> transferByUser(@RequestBody RequestTransferDto request) {
-        ResponseTransferDto response = transactionService.transferByUser(request);
+    public ResponseEntity<ResponseTransferDto> transferByUser(
+            @RequestBody RequestTransferDto request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseTransferDto response = transactionService.transferByUser(request, idempotencyKey);
+        if (response.getStatus() == TransactionStatus.PENDING) {
+            return ResponseEntity.accepted().body(response);
+        }
+        return ResponseEntity.ok().body(response);
+    }
+
+    @GetMapping("/transfers/{transactionId}")
+    public ResponseEntity<ResponseTransferDto> getTransferByUser(@PathVariable UUID transactionId) {
+        ResponseTransferDto response = transactionService.getTransferByUser(transactionId);
+        return ResponseEntity.ok().body(response);
+    }
+
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<ResponseBatchTransferDto> transferBatchByUser(
+            @RequestBody List<RequestTransferDto> request,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") BatchTransferMode mode) {
+        ResponseBatchTransferDto response = batchTransferService.transferBatchByUser(request, mode);
         return ResponseEntity.ok().body(response);
     }
 
     @GetMapping("/cards/{cardId}/balance")
-    public ResponseEntity<ResponseBalanceDto> checkBalanceByUser(@PathVariable UUID cardId) {
-        ResponseBalanceDto response = transactionService.checkBalanceByUser(cardId);
+    public ResponseEntity<ResponseBalanceDto> checkBalanceByUser(@PathVariable UUID cardId,
+                                                                 @RequestParam(required = false) Instant at) {
+        ResponseBalanceDto response = at == null
+                ? transactionService.checkBalanceByUser(cardId)
+                : balanceSnapshotService.balanceAt(cardId, at);
+        return ResponseEntity.ok().body(response);
+    }
+
+    @GetMapping("/cards/{cardId}/transactions")
+    public ResponseEntity<ResponseTransactionPageDto> getCardHistory(
+            @PathVariable UUID cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        ResponseTransactionPageDto response = transactionHistoryService.getCardHistory(cardId, cursor, size);
+        return ResponseEntity.ok().body(response);
+    }
+
+    @GetMapping("/cards/{cardId}/statement")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @PathVariable UUID cardId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+        StatementFormat statementFormat = StatementFormat.from(format);
+        StreamingResponseBody body = statementService.exportStatement(cardId, from, to, statementFormat);
+        return ResponseEntity.ok()
+                .contentType(statementFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"statement-" + from + "-" + to + "." + statementFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/cards/{cardId}/turnover")
+    public ResponseEntity<List<ResponseTurnoverDto>> getMonthlyTurnover(
+            @PathVariable UUID cardId,
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        List<ResponseTurnoverDto> response = turnoverService.getMonthlyTurnover(cardId, from, to);
         return ResponseEntity.ok().body(response);
     }
 }
@@ -2,6 +2,7 @@ package com.example.bankcards.controller.card;
 
 import com.example.bankcards.dto.card.create.RequestCreateCardDto;
 import com.example.bankcards.dto.card.create.ResponseCreateCardDto;
+import com.example.bankcards.dto.card.ledger.ResponseLedgerBalanceDto;
 import com.example.bankcards.dto.card.request.ResponseBlockDto;
 import com.example.bankcards.dto.card.select.ResponseCardDto;
 import com.example.bankcards.service.card.AdminCardService;
@@ -51,12 +52,26 @@ public class AdminCardController {
         return ResponseEntity.ok().body(response);
     }
 
+    // shards > 0 - карта горячая, зачисления распределяются по shards строкам; 0 - обычная карта
+    @PatchMapping("/cards/{cardId}/hot")
+    public ResponseEntity<ResponseCardDto> setBalanceShards(@PathVariable UUID cardId,
+                                                            @RequestParam int shards) {
+        ResponseCardDto response = adminCardService.setBalanceShards(cardId, shards);
+        return ResponseEntity.ok().body(response);
+    }
+
     @GetMapping("/cards/{cardId}")
     public ResponseEntity<ResponseCardDto> getCardById(@PathVariable UUID cardId) {
         ResponseCardDto response = adminCardService.findCardById(cardId);
         return ResponseEntity.ok().body(response);
     }
 
+    @GetMapping("/cards/{cardId}/ledger")
+    public ResponseEntity<ResponseLedgerBalanceDto> reconcileLedger(@PathVariable UUID cardId) {
+        ResponseLedgerBalanceDto response = adminCardService.reconcileLedger(cardId);
+        return ResponseEntity.ok().body(response);
+    }
+
     @PatchMapping("/cards/block-requests/{requestId}/approve")
     public ResponseEntity<ResponseBlockDto> approveBlockRequest(@PathVariable UUID requestId) {
         ResponseBlockDto response = adminCardService.approveBlockRequest(requestId);
@@ -0,0 +1,16 @@
+package com.example.bankcards.dto.card.ledger;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+public class ResponseLedgerBalanceDto {
+    private UUID cardId;
+    private String maskedCard;
+    private Long cardBalance;
+    private Long ledgerBalance;
+    private Boolean consistent;
+}
@@ -18,6 +18,7 @@ public class ResponseCardDto {
     private Integer expiryYear;
     private CardStatus status;
     private Long balance;
+    private Integer balanceShards;
     private Instant createdAt;
     private UUID userId;
 }
@@ -1,10 +1,14 @@
 package com.example.bankcards.dto.token.refresh;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class RequestRefreshDto {
     private String refreshToken;
 }
@@ -1,11 +1,16 @@
 package com.example.bankcards.dto.transaction.balance;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
+import java.time.Instant;
+
 @Data
 @Builder
 public class ResponseBalanceDto {
     private String maskedCard;
     private Long balance;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant at;
 }
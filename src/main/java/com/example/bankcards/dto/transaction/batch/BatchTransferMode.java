@@ -0,0 +1,5 @@
+package com.example.bankcards.dto.transaction.batch;
+
+public enum BatchTransferMode {
+    ALL_OR_NOTHING, BEST_EFFORT
+}
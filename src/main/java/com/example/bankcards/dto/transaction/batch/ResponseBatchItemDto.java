@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.transaction.batch;
+
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.TransactionStatus;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ResponseBatchItemDto {
+    private int index;
+    private TransactionStatus status;
+    private ResponseTransferDto transfer;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.transaction.batch;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ResponseBatchTransferDto {
+    private BatchTransferMode mode;
+    private int succeeded;
+    private int failed;
+    private List<ResponseBatchItemDto> results;
+}
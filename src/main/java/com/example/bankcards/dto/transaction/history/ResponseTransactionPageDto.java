@@ -0,0 +1,14 @@
+package com.example.bankcards.dto.transaction.history;
+
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ResponseTransactionPageDto {
+    private List<ResponseTransferDto> content;
+    private String nextCursor;
+}
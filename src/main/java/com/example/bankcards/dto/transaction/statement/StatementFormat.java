@@ -0,0 +1,34 @@
+package com.example.bankcards.dto.transaction.statement;
+
+import com.example.bankcards.exception.BadRequestException;
+import org.springframework.http.MediaType;
+
+public enum StatementFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    StatementFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static StatementFormat from(String value) {
+        for (StatementFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new BadRequestException("unsupported statement format: " + value);
+    }
+}
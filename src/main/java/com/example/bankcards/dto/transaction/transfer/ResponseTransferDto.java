@@ -17,4 +17,5 @@ public class ResponseTransferDto {
     private String toCard;
     private Instant transactionDate;
     private Long balanceAfter;
+    private String failureReason;
 }
@@ -0,0 +1,14 @@
+package com.example.bankcards.dto.transaction.turnover;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ResponseTurnoverDto {
+    private String month;
+    private Long incomingAmount;
+    private Long incomingCount;
+    private Long outgoingAmount;
+    private Long outgoingCount;
+}
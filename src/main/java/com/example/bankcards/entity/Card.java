@@ -48,4 +48,12 @@ public class Card {
 
     @Column(name = "user_id", nullable = false)
     private UUID userId;
+
+    // Число строк card_balance_shards, 0 - баланс целиком в balance
+    @Column(name = "balance_shards", nullable = false)
+    private int balanceShards;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 }
@@ -0,0 +1,40 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+// Только для JPQL-запросов чтения: шарды меняются запросами CardRepository и ShardedBalanceService
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Immutable
+@IdClass(CardBalanceShard.Key.class)
+@Table(name = "card_balance_shards")
+public class CardBalanceShard {
+
+    @Id
+    @Column(name = "card_id", nullable = false)
+    private UUID cardId;
+
+    @Id
+    @Column(name = "shard", nullable = false)
+    private int shard;
+
+    @Column(name = "balance", nullable = false)
+    private long balance;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID cardId;
+        private int shard;
+    }
+}
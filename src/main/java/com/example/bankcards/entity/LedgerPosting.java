@@ -0,0 +1,36 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ledger_postings")
+public class LedgerPosting {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private UUID transactionId;
+
+    @Column(name = "card_id", nullable = false)
+    private UUID cardId;
+
+    // Отрицательная сумма - списание, положительная - зачисление
+    @Column(name = "amount", nullable = false)
+    private long amount;
+
+    @Column(name = "posted_at", nullable = false)
+    private Instant postedAt;
+}
@@ -25,9 +25,16 @@ public class RefreshToken {
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Column(name = "token", nullable = false)
-    private String token;
+    // SHA-256 токена в hex, сам токен не хранится
+    @Column(name = "token_hash", length = 64, nullable = false, unique = true)
+    private String tokenHash;
 
     @Column(name = "expiry_date", nullable = false)
     private Instant expiryDate;
+
+    @Column(name = "family_id", nullable = false)
+    private UUID familyId;
+
+    @Column(name = "revoked_at")
+    private Instant revokedAt;
 }
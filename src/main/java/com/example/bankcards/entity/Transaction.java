@@ -43,6 +43,10 @@ public class Transaction {
     @Column(name = "transaction_date", nullable = false)
     private Instant transactionDate;
 
-    @Column(name = "balance_after", nullable = false)
+    // Заполняется при проведении, у PENDING переводов пусто
+    @Column(name = "balance_after")
     private Long balanceAfter;
+
+    @Column(name = "failure_reason", length = 128)
+    private String failureReason;
 }
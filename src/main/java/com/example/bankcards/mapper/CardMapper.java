@@ -2,6 +2,7 @@ package com.example.bankcards.mapper;
 
 import com.example.bankcards.dto.card.select.ResponseCardDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.projection.CardView;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -16,8 +17,32 @@ public class CardMapper {
                 .expiryYear(card.getExpiryYear())
                 .status(card.getStatus())
                 .balance(card.getBalance())
+                .balanceShards(card.getBalanceShards())
                 .createdAt(card.getCreatedAt())
                 .userId(card.getUserId())
                 .build();
     }
+
+    // Баланс карты с шардами считается отдельно, в сущности лежит только основная часть
+    public ResponseCardDto toDto(Card card, long balance) {
+        ResponseCardDto dto = toDto(card);
+        dto.setBalance(balance);
+        return dto;
+    }
+
+    public ResponseCardDto toDto(CardView card) {
+        return ResponseCardDto.builder()
+                .id(card.id())
+                .cardNumber("**** **** **** " + card.last4())
+                .last4(card.last4())
+                .holderName(card.holderName())
+                .expiryMonth(card.expiryMonth())
+                .expiryYear(card.expiryYear())
+                .status(card.status())
+                .balance(card.balance())
+                .balanceShards(card.balanceShards())
+                .createdAt(card.createdAt())
+                .userId(card.userId())
+                .build();
+    }
 }
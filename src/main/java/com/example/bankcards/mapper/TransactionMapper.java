@@ -22,6 +22,7 @@ public class TransactionMapper {
                 .toCard(maskCard(transaction.getToCardLast4()))
                 .transactionDate(transaction.getTransactionDate())
                 .balanceAfter(transaction.getBalanceAfter())
+                .failureReason(transaction.getFailureReason())
                 .build();
     }
 
@@ -1,21 +1,109 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.projection.CardBalanceView;
+import com.example.bankcards.repository.projection.CardView;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, UUID> {
+    // Баланс горячей карты включает шарды, как в findBalanceByIdAndUserId; у обычной карты подзапрос не выполняется
+    String CARD_VIEW = "select new com.example.bankcards.repository.projection.CardView(" +
+            "c.id, c.last4, c.holderName, c.expiryMonth, c.expiryYear, c.status, " +
+            "c.balance + case when c.balanceShards = 0 then 0L " +
+            "else coalesce((select sum(s.balance) from CardBalanceShard s where s.cardId = c.id), 0L) end, " +
+            "c.balanceShards, c.createdAt, c.userId) from Card c";
+
     @Override
     Page<Card> findAll(Pageable pageable);
 
     Optional<Card> findByIdAndUserId(UUID id, UUID userId);
 
     Page<Card> findAllByUserId(UUID userId, Pageable pageable);
+
+    // Чтения для ответов API: только нужные колонки, без управляемых сущностей и dirty checking при flush
+    @Query(value = CARD_VIEW, countQuery = "select count(c) from Card c")
+    Page<CardView> findAllViews(Pageable pageable);
+
+    @Query(value = CARD_VIEW + " where c.userId = :userId",
+            countQuery = "select count(c) from Card c where c.userId = :userId")
+    Page<CardView> findViewsByUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    @Query(CARD_VIEW + " where c.id = :id")
+    Optional<CardView> findViewById(@Param("id") UUID id);
+
+    @Query(CARD_VIEW + " where c.id = :id and c.userId = :userId")
+    Optional<CardView> findViewByIdAndUserId(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    boolean existsByIdAndUserId(UUID id, UUID userId);
+
+    // Баланс вместе с шардами горячей карты за один запрос
+    @Query(value = """
+            SELECT c.last4 AS last4,
+                   c.balance + CASE WHEN c.balance_shards = 0 THEN 0
+                       ELSE (SELECT COALESCE(sum(s.balance), 0) FROM card_balance_shards s WHERE s.card_id = c.id)
+                   END AS balance
+            FROM cards c
+            WHERE c.id = :id AND c.user_id = :userId
+            """, nativeQuery = true)
+    Optional<CardBalanceView> findBalanceByIdAndUserId(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    // Строки блокируются в порядке ORDER BY, поэтому порядок захвата одинаков для всех транзакций
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdInForUpdate(@Param("ids") Collection<UUID> ids);
+
+    List<Card> findAllByBalanceShardsGreaterThan(int balanceShards);
+
+    // Обход всех карт порциями по первичному ключу
+    @Query(value = "SELECT id FROM cards WHERE id > :after ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<UUID> findIdsAfter(@Param("after") UUID after, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update Card c set c.balance = c.balance + :amount, c.version = c.version + 1 where c.id = :id")
+    int creditBalance(@Param("id") UUID id, @Param("amount") long amount);
+
+    // Зачисление на горячую карту: блокируется только одна строка-шард, строка cards не трогается
+    @Modifying
+    @Query(value = "UPDATE card_balance_shards SET balance = balance + :amount WHERE card_id = :cardId AND shard = :shard",
+            nativeQuery = true)
+    int creditShard(@Param("cardId") UUID cardId, @Param("shard") int shard, @Param("amount") long amount);
+
+    @Query(value = "SELECT COALESCE(sum(balance), 0) FROM card_balance_shards WHERE card_id = :cardId",
+            nativeQuery = true)
+    long sumShards(@Param("cardId") UUID cardId);
+
+    // Блокирует все шарды карты (ждет незавершенные зачисления) и возвращает их сумму
+    @Query(value = """
+            SELECT COALESCE(sum(balance), 0)
+            FROM (SELECT balance FROM card_balance_shards WHERE card_id = :cardId ORDER BY shard FOR UPDATE) s
+            """, nativeQuery = true)
+    long lockShardsTotal(@Param("cardId") UUID cardId);
+
+    @Modifying
+    @Query(value = "UPDATE card_balance_shards SET balance = 0 WHERE card_id = :cardId AND balance <> 0",
+            nativeQuery = true)
+    int resetShards(@Param("cardId") UUID cardId);
+
+    @Modifying
+    @Query(value = "DELETE FROM card_balance_shards WHERE card_id = :cardId", nativeQuery = true)
+    int deleteShards(@Param("cardId") UUID cardId);
+
+    @Modifying
+    @Query(value = "INSERT INTO card_balance_shards (card_id, shard, balance) SELECT :cardId, s, 0 FROM generate_series(0, :shards - 1) s",
+            nativeQuery = true)
+    int createShards(@Param("cardId") UUID cardId, @Param("shards") int shards);
 }
@@ -0,0 +1,168 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerPosting;
+import com.example.bankcards.repository.projection.MonthlyTurnover;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LedgerPostingRepository extends JpaRepository<LedgerPosting, UUID> {
+
+    // Читается только хвост проводок после контрольной точки - по индексу (card_id, xid)
+    @Query(value = """
+            SELECT COALESCE(cp.balance, 0) + COALESCE((
+                       SELECT sum(p.amount) FROM ledger_postings p
+                       WHERE p.card_id = :cardId
+                         AND p.xid >= COALESCE(cp.xid_until, '0'::xid8)), 0)
+            FROM (SELECT CAST(:cardId AS uuid) AS card_id) c
+            LEFT JOIN card_balance_checkpoints cp ON cp.card_id = c.card_id
+            """, nativeQuery = true)
+    long ledgerBalance(@Param("cardId") UUID cardId);
+
+    // Один экземпляр приложения двигает контрольные точки за раз
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('card_balance_checkpoints'))", nativeQuery = true)
+    boolean tryLockCheckpoints();
+
+    // Все контрольные точки сдвигаются вместе, поэтому проводки с xid < max(xid_until) уже учтены.
+    // Новая граница - xmin снимка: транзакции с меньшим xid завершены, их проводки видны этому запросу.
+    // Долгая открытая транзакция задерживает границу, но проводки не теряются.
+    @Modifying
+    @Query(value = """
+            WITH bounds AS (
+                SELECT COALESCE(max(xid_until), '0'::xid8) AS from_xid,
+                       pg_snapshot_xmin(pg_current_snapshot()) AS until_xid
+                FROM card_balance_checkpoints
+            ), delta AS (
+                SELECT p.card_id, sum(p.amount) AS amount
+                FROM ledger_postings p, bounds b
+                WHERE p.xid >= b.from_xid AND p.xid < b.until_xid
+                GROUP BY p.card_id
+            )
+            INSERT INTO card_balance_checkpoints (card_id, balance, xid_until)
+            SELECT d.card_id, d.amount, b.until_xid FROM delta d, bounds b
+            ON CONFLICT (card_id) DO UPDATE
+                SET balance = card_balance_checkpoints.balance + EXCLUDED.balance,
+                    xid_until = EXCLUDED.xid_until
+            """, nativeQuery = true)
+    int advanceCheckpoints();
+
+    // Баланс на конец дня: контрольная точка минус учтенные в ней проводки после границы дня.
+    // Снимок фиксирует xid_until контрольных точек: проводки дня, закоммиченные позже, добавит balanceAt.
+    // Контрольная точка карты без проводок после общей границы не сдвигается, поэтому берется max(xid_until)
+    @Modifying
+    @Query(value = """
+            WITH bounds AS (
+                SELECT COALESCE(max(xid_until), '0'::xid8) AS xid_until FROM card_balance_checkpoints
+            )
+            INSERT INTO card_balance_snapshots (card_id, day, balance, posted_until, xid_until)
+            SELECT c.id, :day,
+                   COALESCE(cp.balance, 0)
+                   - COALESCE((SELECT sum(p.amount) FROM ledger_postings p
+                               WHERE p.card_id = c.id AND p.posted_at >= :dayEnd AND p.xid < b.xid_until), 0),
+                   :dayEnd, b.xid_until
+            FROM cards c
+            CROSS JOIN bounds b
+            LEFT JOIN card_balance_checkpoints cp ON cp.card_id = c.id
+            WHERE c.id IN (:cardIds)
+            ON CONFLICT (card_id, day) DO NOTHING
+            """, nativeQuery = true)
+    int writeSnapshots(@Param("cardIds") Collection<UUID> cardIds,
+                       @Param("day") LocalDate day,
+                       @Param("dayEnd") Instant dayEnd);
+
+    // День последнего снимка, NULL - снимков еще нет
+    @Query(value = "SELECT to_char(max(day), 'YYYY-MM-DD') FROM card_balance_snapshots", nativeQuery = true)
+    String findLastSnapshotDay();
+
+    // Баланс на момент at от базы (balance, posted_until, xid_until): в balance входят проводки
+    // с xid < xid_until и posted_at < posted_until. База - ближайший снимок до at,
+    // без снимков - контрольная точка (posted_until = infinity).
+    // Сдвиг от posted_until к at по учтенным проводкам плюс закоммиченные после базы с posted_at < at
+    @Query(value = """
+            WITH snap AS (
+                SELECT balance, posted_until, xid_until FROM card_balance_snapshots
+                WHERE card_id = :cardId AND day < :atDay
+                ORDER BY day DESC
+                LIMIT 1
+            ), base AS (
+                SELECT balance, posted_until, xid_until FROM snap
+                UNION ALL
+                SELECT COALESCE(cp.balance, 0), 'infinity'::timestamp, COALESCE(cp.xid_until, '0'::xid8)
+                FROM (SELECT CAST(:cardId AS uuid) AS card_id) c
+                LEFT JOIN card_balance_checkpoints cp ON cp.card_id = c.card_id
+                WHERE NOT EXISTS (SELECT 1 FROM snap)
+            )
+            SELECT b.balance
+                   + COALESCE((SELECT sum(p.amount) FROM ledger_postings p
+                               WHERE p.card_id = :cardId AND p.xid < b.xid_until
+                                 AND p.posted_at >= b.posted_until AND p.posted_at < :at), 0)
+                   - COALESCE((SELECT sum(p.amount) FROM ledger_postings p
+                               WHERE p.card_id = :cardId AND p.xid < b.xid_until
+                                 AND p.posted_at >= :at AND p.posted_at < b.posted_until), 0)
+                   + COALESCE((SELECT sum(p.amount) FROM ledger_postings p
+                               WHERE p.card_id = :cardId AND p.xid >= b.xid_until AND p.posted_at < :at), 0)
+            FROM base b
+            """, nativeQuery = true)
+    long balanceAt(@Param("cardId") UUID cardId,
+                   @Param("atDay") LocalDate atDay,
+                   @Param("at") Instant at);
+
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('card_monthly_turnover'))", nativeQuery = true)
+    boolean tryLockTurnover();
+
+    // Проводки между прошлой и новой границей сворачиваются в обороты по картам и месяцам.
+    // Граница - xmin снимка, как у контрольных точек: поздно закоммиченная проводка не теряется.
+    // Возвращает 1, если граница сдвинулась.
+    @Modifying
+    @Query(value = """
+            WITH progress AS (
+                SELECT xid_until, pg_snapshot_xmin(pg_current_snapshot()) AS until_xid
+                FROM card_turnover_progress WHERE id = 1
+            ), delta AS (
+                SELECT p.card_id,
+                       CAST(date_trunc('month', p.posted_at) AS date) AS month,
+                       COALESCE(sum(p.amount) FILTER (WHERE p.amount > 0), 0) AS incoming_amount,
+                       count(*) FILTER (WHERE p.amount > 0) AS incoming_count,
+                       COALESCE(-sum(p.amount) FILTER (WHERE p.amount < 0), 0) AS outgoing_amount,
+                       count(*) FILTER (WHERE p.amount < 0) AS outgoing_count
+                FROM ledger_postings p, progress pr
+                WHERE p.xid >= pr.xid_until AND p.xid < pr.until_xid
+                GROUP BY p.card_id, CAST(date_trunc('month', p.posted_at) AS date)
+            ), upserted AS (
+                INSERT INTO card_monthly_turnover (card_id, month, incoming_amount, incoming_count,
+                                                   outgoing_amount, outgoing_count)
+                SELECT card_id, month, incoming_amount, incoming_count, outgoing_amount, outgoing_count FROM delta
+                ON CONFLICT (card_id, month) DO UPDATE
+                    SET incoming_amount = card_monthly_turnover.incoming_amount + EXCLUDED.incoming_amount,
+                        incoming_count = card_monthly_turnover.incoming_count + EXCLUDED.incoming_count,
+                        outgoing_amount = card_monthly_turnover.outgoing_amount + EXCLUDED.outgoing_amount,
+                        outgoing_count = card_monthly_turnover.outgoing_count + EXCLUDED.outgoing_count
+            )
+            UPDATE card_turnover_progress SET xid_until = pr.until_xid
+            FROM progress pr
+            WHERE card_turnover_progress.id = 1 AND card_turnover_progress.xid_until < pr.until_xid
+            """, nativeQuery = true)
+    int advanceTurnover();
+
+    // Чтение по первичному ключу (card_id, month): стоимость пропорциональна числу месяцев
+    @Query(value = """
+            SELECT to_char(month, 'YYYY-MM') AS "month",
+                   incoming_amount AS "incomingAmount", incoming_count AS "incomingCount",
+                   outgoing_amount AS "outgoingAmount", outgoing_count AS "outgoingCount"
+            FROM card_monthly_turnover
+            WHERE card_id = :cardId AND month BETWEEN :fromMonth AND :toMonth
+            ORDER BY month
+            """, nativeQuery = true)
+    List<MonthlyTurnover> findTurnover(@Param("cardId") UUID cardId,
+                                       @Param("fromMonth") LocalDate fromMonth,
+                                       @Param("toMonth") LocalDate toMonth);
+}
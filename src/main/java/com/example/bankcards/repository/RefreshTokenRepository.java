@@ -1,11 +1,57 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.projection.RotatedRefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+    // Ротация одним запросом: старый токен помечается использованным, новый добавляется в то же семейство.
+    // Строка старого токена блокируется UPDATE, поэтому из двух одновременных ротаций проходит одна.
+    // Пусто - токена нет, он уже использован, истек или пользователь отключен
+    @Transactional
+    @Query(value = """
+            WITH used AS (
+                UPDATE refresh_tokens t SET revoked_at = :now
+                WHERE t.token_hash = :oldHash AND t.revoked_at IS NULL AND t.expiry_date > :now
+                  AND EXISTS (SELECT 1 FROM users u WHERE u.id = t.user_id AND u.is_enabled)
+                RETURNING t.user_id, t.family_id
+            ), issued AS (
+                INSERT INTO refresh_tokens (id, user_id, token_hash, expiry_date, family_id)
+                SELECT gen_random_uuid(), used.user_id, :newHash, :expiry, used.family_id FROM used
+                RETURNING user_id
+            )
+            SELECT u.id AS userId, u.email AS email, u.role AS role
+            FROM issued JOIN users u ON u.id = issued.user_id
+            """, nativeQuery = true)
+    Optional<RotatedRefreshToken> rotate(@Param("oldHash") String oldHash,
+                                         @Param("newHash") String newHash,
+                                         @Param("expiry") Instant expiry,
+                                         @Param("now") Instant now);
+
+    @Query("select t.familyId from RefreshToken t where t.tokenHash = :hash and t.revokedAt is not null")
+    Optional<UUID> findRevokedFamilyId(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.familyId = :familyId and t.revokedAt is null")
+    int revokeFamily(@Param("familyId") UUID familyId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiryDate < :before")
+    int deleteAllExpiredBefore(@Param("before") Instant before);
 }
@@ -1,11 +1,161 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.projection.AtomicTransferResult;
+import com.example.bankcards.repository.projection.RecentTransfer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+
+    // Один запрос вместо двух SELECT, двух UPDATE и INSERT.
+    // locked захватывает обе карты в порядке id, count(*) заставляет заблокировать обе строки до списания.
+    // Если списание или зачисление не прошло, INSERT ничего не вернет, а вызывающая транзакция откатится.
+    // Проводки ledger_postings пишутся тем же запросом.
+    @Transactional
+    @Query(value = """
+            WITH locked AS (
+                SELECT id FROM cards WHERE id IN (:fromCard, :toCard) ORDER BY id FOR UPDATE
+            ), debit AS (
+                UPDATE cards SET balance = balance - :amount, version = version + 1
+                WHERE id = :fromCard AND user_id = :userId AND status = 'ACTIVE' AND balance >= :amount
+                  AND (SELECT count(*) FROM locked) = 2
+                RETURNING id, last4, balance
+            ), credit AS (
+                UPDATE cards SET balance = balance + :amount, version = version + 1
+                WHERE id = :toCard AND user_id = :userId AND EXISTS (SELECT 1 FROM debit)
+                RETURNING id, last4
+            ), inserted AS (
+                INSERT INTO transactions (id, status, amount, from_card, from_card_last4, to_card, to_card_last4,
+                                          transaction_date, balance_after)
+                SELECT :id, 'SUCCESS', :amount, debit.id, debit.last4, credit.id, credit.last4, :transactionDate, debit.balance
+                FROM debit, credit
+                RETURNING id, from_card, from_card_last4, to_card, to_card_last4, transaction_date, balance_after
+            ), postings AS (
+                INSERT INTO ledger_postings (id, transaction_id, card_id, amount, posted_at)
+                SELECT gen_random_uuid(), id, from_card, -:amount, transaction_date FROM inserted
+                UNION ALL
+                SELECT gen_random_uuid(), id, to_card, :amount, transaction_date FROM inserted
+            )
+            SELECT from_card_last4 AS "fromCardLast4", to_card_last4 AS "toCardLast4", balance_after AS "balanceAfter"
+            FROM inserted
+            """, nativeQuery = true)
+    Optional<AtomicTransferResult> transferAtomically(@Param("id") UUID id,
+                                                      @Param("userId") UUID userId,
+                                                      @Param("fromCard") UUID fromCard,
+                                                      @Param("toCard") UUID toCard,
+                                                      @Param("amount") Long amount,
+                                                      @Param("transactionDate") Instant transactionDate);
+
+    // Пачка необработанных переводов; строки, захваченные другим воркером, пропускаются
+    @Query(value = """
+            SELECT * FROM transactions
+            WHERE status = 'PENDING'
+            ORDER BY transaction_date
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Transaction> findPendingForUpdate(@Param("limit") int limit);
+
+    // Один перевод из пачки, которая не смогла закоммититься целиком
+    @Query(value = """
+            SELECT * FROM transactions
+            WHERE id = :id AND status = 'PENDING'
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<Transaction> findPendingByIdForUpdate(@Param("id") UUID id);
+
+    @Modifying
+    @Query(value = """
+            UPDATE transactions SET status = 'FAILED', failure_reason = :reason
+            WHERE id = :id AND status = 'PENDING'
+            """, nativeQuery = true)
+    int markPendingFailed(@Param("id") UUID id, @Param("reason") String reason);
+
+    // История карты от новых к старым. Каждая ветка читает свой индекс (card, transaction_date, id)
+    // не дальше limit строк; перевод на ту же карту попадает только в первую ветку.
+    @Query(value = """
+            SELECT * FROM (
+                (SELECT * FROM transactions
+                 WHERE from_card = :cardId
+                 ORDER BY transaction_date DESC, id DESC
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT * FROM transactions
+                 WHERE to_card = :cardId AND from_card <> :cardId
+                 ORDER BY transaction_date DESC, id DESC
+                 LIMIT :limit)
+            ) t
+            ORDER BY transaction_date DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Transaction> findCardHistory(@Param("cardId") UUID cardId,
+                                      @Param("limit") int limit);
+
+    // Следующая страница истории: строки строго после курсора (transaction_date, id).
+    // Отдельное условие на transaction_date нужно для отсечения партиций: по сравнению кортежей PostgreSQL их не отсекает.
+    @Query(value = """
+            SELECT * FROM (
+                (SELECT * FROM transactions
+                 WHERE from_card = :cardId AND transaction_date <= :beforeDate
+                   AND (transaction_date, id) < (:beforeDate, :beforeId)
+                 ORDER BY transaction_date DESC, id DESC
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT * FROM transactions
+                 WHERE to_card = :cardId AND from_card <> :cardId AND transaction_date <= :beforeDate
+                   AND (transaction_date, id) < (:beforeDate, :beforeId)
+                 ORDER BY transaction_date DESC, id DESC
+                 LIMIT :limit)
+            ) t
+            ORDER BY transaction_date DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Transaction> findCardHistoryBefore(@Param("cardId") UUID cardId,
+                                            @Param("beforeDate") Instant beforeDate,
+                                            @Param("beforeId") UUID beforeId,
+                                            @Param("limit") int limit);
+
+    // Выписка за период: курсор вперед с fetch size, строки не кешируются и не отслеживаются.
+    // Поток должен читаться внутри транзакции, иначе драйвер PostgreSQL загрузит весь результат разом.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(value = """
+            SELECT * FROM transactions
+            WHERE (from_card = :cardId OR to_card = :cardId)
+              AND transaction_date >= :from AND transaction_date < :to
+            ORDER BY transaction_date, id
+            """, nativeQuery = true)
+    Stream<Transaction> streamStatement(@Param("cardId") UUID cardId,
+                                        @Param("from") Instant from,
+                                        @Param("to") Instant to);
+
+    // Исходящие переводы за период для восстановления счетчиков лимитов, владелец карты - из cards
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.example.bankcards.repository.projection.RecentTransfer(c.userId, t.fromCard, t.transactionDate, t.amount)
+            from Transaction t join Card c on c.id = t.fromCard
+            where t.status = com.example.bankcards.entity.TransactionStatus.SUCCESS and t.transactionDate >= :since
+            """)
+    Stream<RecentTransfer> streamOutgoingSince(@Param("since") Instant since);
 }
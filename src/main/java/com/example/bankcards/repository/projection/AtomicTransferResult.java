@@ -0,0 +1,9 @@
+package com.example.bankcards.repository.projection;
+
+public interface AtomicTransferResult {
+    String getFromCardLast4();
+
+    String getToCardLast4();
+
+    Long getBalanceAfter();
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.repository.projection;
+
+public interface CardBalanceView {
+    String getLast4();
+
+    Long getBalance();
+}
@@ -0,0 +1,19 @@
+package com.example.bankcards.repository.projection;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Карта для чтения: без номера карты и версии, в контекст персистентности не попадает
+public record CardView(UUID id,
+                       String last4,
+                       String holderName,
+                       int expiryMonth,
+                       int expiryYear,
+                       CardStatus status,
+                       long balance,
+                       int balanceShards,
+                       Instant createdAt,
+                       UUID userId) {
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.repository.projection;
+
+public interface MonthlyTurnover {
+    String getMonth();
+
+    Long getIncomingAmount();
+
+    Long getIncomingCount();
+
+    Long getOutgoingAmount();
+
+    Long getOutgoingCount();
+}
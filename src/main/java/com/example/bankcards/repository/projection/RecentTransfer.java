@@ -0,0 +1,7 @@
+package com.example.bankcards.repository.projection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record RecentTransfer(UUID userId, UUID cardId, Instant transactionDate, Long amount) {
+}
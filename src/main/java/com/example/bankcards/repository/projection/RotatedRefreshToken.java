@@ -0,0 +1,13 @@
+package com.example.bankcards.repository.projection;
+
+import java.util.UUID;
+
+// Владелец токена после ротации: все, что нужно для нового access-токена, без загрузки User
+public interface RotatedRefreshToken {
+
+    UUID getUserId();
+
+    String getEmail();
+
+    String getRole();
+}
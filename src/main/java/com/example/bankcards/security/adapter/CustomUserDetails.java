@@ -12,7 +12,7 @@ import java.util.List;
 import java.util.UUID;
 
 @RequiredArgsConstructor
-public class CustomUserDetails implements UserDetails {
+public class CustomUserDetails implements UserDetails, UserPrincipal {
 
     private final User user;
 
@@ -51,6 +51,7 @@ public class CustomUserDetails implements UserDetails {
         return user.isEnabled();
     }
 
+    @Override
     public UUID getUserId() {
         return user.getId();
     }
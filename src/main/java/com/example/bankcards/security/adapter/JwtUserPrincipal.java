@@ -0,0 +1,33 @@
+package com.example.bankcards.security.adapter;
+
+import com.example.bankcards.entity.UserRole;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.UUID;
+
+// Пользователь из проверенных claims access-токена, без обращения к базе
+public record JwtUserPrincipal(UUID userId, String email, UserRole role) implements UserPrincipal, AuthenticatedPrincipal {
+
+    @Override
+    public UUID getUserId() {
+        return userId;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    // Authentication.getName() возвращает email, как и для CustomUserDetails
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
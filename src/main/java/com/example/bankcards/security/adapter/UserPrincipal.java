@@ -0,0 +1,11 @@
+package com.example.bankcards.security.adapter;
+
+import java.util.UUID;
+
+// Текущий пользователь запроса: загруженный из базы (CustomUserDetails) или собранный из claims токена (JwtUserPrincipal)
+public interface UserPrincipal {
+
+    UUID getUserId();
+
+    String getUsername();
+}
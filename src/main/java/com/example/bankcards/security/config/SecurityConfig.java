@@ -1,9 +1,13 @@
 package com.example.bankcards.security.config;
 
 import com.example.bankcards.security.filter.JwtAuthenticationFilter;
+import com.example.bankcards.security.filter.RateLimitFilter;
+import com.example.bankcards.security.filter.RouteLimit;
 import com.example.bankcards.security.service.CustomUserDetailsService;
+import com.example.bankcards.security.service.JwtService;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,6 +24,8 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
@@ -29,9 +35,51 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final CustomUserDetailsService userDetailsService;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+    private final JwtService jwtService;
+
+    @Value("${rate-limit.enabled}")
+    private boolean rateLimitEnabled;
+
+    @Value("${rate-limit.max-keys}")
+    private long rateLimitMaxKeys;
+
+    @Value("${rate-limit.ip.capacity}")
+    private long ipCapacity;
+
+    @Value("${rate-limit.ip.per-second}")
+    private double ipPerSecond;
+
+    @Value("${rate-limit.transfer.capacity}")
+    private long transferCapacity;
+
+    @Value("${rate-limit.transfer.per-second}")
+    private double transferPerSecond;
+
+    @Value("${rate-limit.cards.capacity}")
+    private long cardsCapacity;
+
+    @Value("${rate-limit.cards.per-second}")
+    private double cardsPerSecond;
+
+    @Value("${rate-limit.auth.capacity}")
+    private long authCapacity;
+
+    @Value("${rate-limit.auth.per-second}")
+    private double authPerSecond;
+
+    @Value("${rate-limit.default.capacity}")
+    private long defaultCapacity;
+
+    @Value("${rate-limit.default.per-second}")
+    private double defaultPerSecond;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        http.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+        if (rateLimitEnabled) {
+            // Лимит проверяется раньше JWT: отклоненный запрос не тратит ни проверку подписи, ни соединение с БД
+            http.addFilterBefore(rateLimitFilter(), JwtAuthenticationFilter.class);
+        }
         return http
                 // Отключаем CSRF
                 .csrf(AbstractHttpConfigurer::disable)
@@ -51,15 +99,28 @@ public class SecurityConfig {
                                 "/swagger-ui.html",
                                 "/auth/**")
                         .permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         // Все остальные запросы будут требовать аутентификацию
                         .anyRequest().authenticated()
                 )
                 .userDetailsService(userDetailsService)
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
                 .cors(Customizer.withDefaults())
                 .build();
     }
 
+    // Не бин: иначе Spring Boot зарегистрировал бы фильтр еще и в контейнере сервлетов, вне цепочки безопасности.
+    // Маршруты проверяются по порядку, срабатывает первый подходящий
+    private RateLimitFilter rateLimitFilter() {
+        return new RateLimitFilter(jwtService,
+                new RouteLimit("ip", "/**", ipCapacity, ipPerSecond),
+                List.of(new RouteLimit("transfer", "/api/transfer*/**", transferCapacity, transferPerSecond),
+                        new RouteLimit("cards", "/api/cards/**", cardsCapacity, cardsPerSecond),
+                        new RouteLimit("auth", "/auth/**", authCapacity, authPerSecond),
+                        new RouteLimit("default", "/**", defaultCapacity, defaultPerSecond)),
+                rateLimitMaxKeys);
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(
             AuthenticationConfiguration config) throws Exception {
@@ -2,11 +2,13 @@ package com.example.bankcards.security.filter;
 
 import com.example.bankcards.security.service.CustomUserDetailsService;
 import com.example.bankcards.security.service.JwtService;
+import com.example.bankcards.security.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,11 +19,23 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    // true - пользователь собирается из claims токена без запроса в базу, отключение проверяется по TokenRevocationService
+    private final boolean stateless;
+
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   CustomUserDetailsService userDetailsService,
+                                   TokenRevocationService tokenRevocationService,
+                                   @Value("${jwt.stateless}") boolean stateless) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.stateless = stateless;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -32,7 +46,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Запрос должен содержать заголовок Authorization: Bearer "token"
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         // Проверка на наличие Bearer в заголовке
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -42,25 +55,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // Отделение Bearer от токена
         jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        // Токен разбирается и проверяется один раз, дальше используются его claims
+        Claims claims = jwtService.parseValid(jwt).orElse(null);
+        String username = claims != null ? claims.getSubject() : null;
 
         // SecurityContextHolder проверяет что в текущем контексте никто еще не аутентифицирован
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                // Передаем информацию о пользователе principal, credentials и authorities
-                // В данном случае не передаем пароль так как его проверка выполняется на уровне JWT
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities()
-                );
-                // Прикрепление дополнительной информации о пользователе
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                // Добавляем в контекст информацию о том что мы аутентифицировали пользователя по токену
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            if (stateless) {
+                // claims уже проверены подписью, отключенных и измененных пользователей отсекает TokenRevocationService
+                jwtService.principalOf(claims)
+                        .filter(principal -> !tokenRevocationService.isRevoked(principal.getUserId(), claims.getIssuedAt()))
+                        .ifPresent(principal -> authenticate(request,
+                                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+            } else {
+                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                if (jwtService.isTokenValid(claims, userDetails)) {
+                    // Передаем информацию о пользователе principal, credentials и authorities
+                    // В данном случае не передаем пароль так как его проверка выполняется на уровне JWT
+                    authenticate(request, new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities()
+                    ));
+                }
             }
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private void authenticate(HttpServletRequest request, UsernamePasswordAuthenticationToken authToken) {
+        // Прикрепление дополнительной информации о пользователе
+        authToken.setDetails(
+                new WebAuthenticationDetailsSource().buildDetails(request)
+        );
+        // Добавляем в контекст информацию о том что мы аутентифицировали пользователя по токену
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+}
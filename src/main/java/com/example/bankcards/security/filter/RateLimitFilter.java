@@ -0,0 +1,122 @@
+package com.example.bankcards.security.filter;
+
+import com.example.bankcards.security.service.JwtService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Стоит перед JwtAuthenticationFilter: запрос сверх лимита IP отклоняется до проверки подписи и обращения к БД.
+// Каждый запрос расходует токен из ведра своего IP и из ведра маршрута для пользователя (subject из JWT
+// с проверенной подписью), а без токена или с неверным токеном - для IP.
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    // Ведро без запросов дольше этого времени снова было бы полным, его можно выбросить
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    private final JwtService jwtService;
+    private final RouteLimit ipLimit;
+    private final List<RouteLimit> routes;
+    private final Cache<String, TokenBucket> buckets;
+    private final LongSupplier nanoTime;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public RateLimitFilter(JwtService jwtService, RouteLimit ipLimit, List<RouteLimit> routes, long maxKeys) {
+        this(jwtService, ipLimit, routes, maxKeys, System::nanoTime);
+    }
+
+    RateLimitFilter(JwtService jwtService, RouteLimit ipLimit, List<RouteLimit> routes, long maxKeys,
+                    LongSupplier nanoTime) {
+        this.jwtService = jwtService;
+        this.ipLimit = ipLimit;
+        this.routes = routes;
+        this.nanoTime = nanoTime;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(IDLE_TIMEOUT)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = nanoTime.getAsLong();
+        String ip = request.getRemoteAddr();
+
+        long waitNanos = consume(ipLimit, "ip:" + ip, now);
+        if (waitNanos == 0) {
+            RouteLimit route = match(request.getRequestURI().substring(request.getContextPath().length()));
+            if (route != null) {
+                String subject = extractSubject(request.getHeader(HttpHeaders.AUTHORIZATION));
+                waitNanos = consume(route, subject != null ? "user:" + subject : "ip:" + ip, now);
+            }
+        }
+
+        if (waitNanos > 0) {
+            reject(request, response, waitNanos);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private long consume(RouteLimit limit, String key, long now) {
+        TokenBucket bucket = buckets.get(limit.name() + ":" + key,
+                k -> new TokenBucket(limit.capacity(), limit.perSecond(), now));
+        return bucket.tryConsume(now);
+    }
+
+    private RouteLimit match(String path) {
+        for (RouteLimit route : routes) {
+            if (pathMatcher.match(route.pattern(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // Без проверки подписи любой мог бы подставить чужой subject и исчерпать его лимит.
+    // Проверенный токен попадает в кеш JwtService, и JwtAuthenticationFilter подпись повторно не считает
+    String extractSubject(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        return jwtService.parseValid(authHeader.substring(7))
+                .map(Claims::getSubject)
+                .orElse(null);
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        // debug: при атаке warn на каждый отклоненный запрос забил бы лог
+        log.debug("Rate limit exceeded: {} {} from '{}'", request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType("application/json");
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "too many requests");
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.bankcards.security.filter;
+
+// Лимит для группы путей: ведро на пользователя (или IP анонимного запроса) емкостью capacity,
+// пополняется на perSecond токенов в секунду
+public record RouteLimit(String name, String pattern, long capacity, double perSecond) {
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.security.filter;
+
+final class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(long capacity, double perSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = perSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = nowNanos;
+    }
+
+    // 0 - токен выдан, иначе через сколько наносекунд появится следующий
+    synchronized long tryConsume(long nowNanos) {
+        tokens = Math.min(capacity, tokens + (nowNanos - lastRefill) * tokensPerNano);
+        lastRefill = nowNanos;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
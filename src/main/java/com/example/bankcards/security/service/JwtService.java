@@ -1,9 +1,16 @@
 package com.example.bankcards.security.service;
 
+import com.example.bankcards.entity.UserRole;
+import com.example.bankcards.security.adapter.JwtUserPrincipal;
+import com.example.bankcards.util.HashUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
-import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -11,48 +18,92 @@ import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
 
-    private static final long ACCESS_TOKEN_VALIDITY_MS = 15 * 60 * 1000; // 15 минут
+    static final long ACCESS_TOKEN_VALIDITY_MS = 15 * 60 * 1000; // 15 минут
     private static final long REFRESH_TOKEN_VALIDITY_MS = 24 * 60 * 60 * 1000; // 1 день
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final SecretKey secretKey;
+    // Парсер неизменяемый и потокобезопасный, строится один раз
+    private final JwtParser parser;
+    // SHA-256 токена -> claims уже проверенного токена, запись живет до истечения токена; null - кеш выключен
+    private final Cache<String, Claims> verifiedTokens;
 
-    private SecretKey secretKey;
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.verified-cache.max-size}") long verifiedCacheMaxSize) {
+        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokens = verifiedCacheMaxSize > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(verifiedCacheMaxSize)
+                        .expireAfter(new UntilTokenExpiry())
+                        .build()
+                : null;
+    }
+
+    // Один разбор и одна проверка подписи на токен; пустой результат - подпись неверна, токен истек или поврежден
+    public Optional<Claims> parseValid(String token) {
+        String key = verifiedTokens != null ? HashUtil.sha256Hex(token) : null;
+        if (key != null) {
+            Claims cached = verifiedTokens.getIfPresent(key);
+            // Запись может пережить токен до ближайшей очистки кеша
+            if (cached != null && cached.getExpiration().after(new Date())) {
+                return Optional.of(cached);
+            }
+        }
 
-    @PostConstruct
-    public void init() {
-        secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        Optional<Claims> claims = parseUncached(token);
+        if (key != null) {
+            claims.ifPresent(c -> verifiedTokens.put(key, c));
+        }
+        return claims;
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    // Проверка без кеша: для одноразовых refresh-токенов, которые кешировать незачем
+    public Optional<Claims> parseUncached(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (claims.getExpiration() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(claims);
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    // Пустой результат для токена без userId и role (refresh-токен) или с неизвестной ролью
+    public Optional<JwtUserPrincipal> principalOf(Claims claims) {
+        String userId = claims.get("userId", String.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null || claims.getSubject() == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new JwtUserPrincipal(UUID.fromString(userId), claims.getSubject(), UserRole.valueOf(role)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && claims.getExpiration().after(new Date());
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && validateToken(token);
+        return parseValid(token)
+                .map(claims -> isTokenValid(claims, userDetails))
+                .orElse(false);
     }
 
-
     // TODO - Возможно изменить структуру Payload (на данный момент пользователь может иметь только одну роль)
     public String generateAccessToken(String username, UUID userId, String roleName) {
 
@@ -68,6 +119,8 @@ public class JwtService {
 
     public String generateRefreshToken(String username) {
         return Jwts.builder()
+                // jti делает токены уникальными даже при входе в одну и ту же секунду
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(new Date())
                 .expiration(getRefreshTokenExpiryDate())
@@ -76,13 +129,7 @@ public class JwtService {
     }
 
     public boolean validateToken(String token) {
-        try {
-            Claims claims = extractAllClaims(token);
-            Date expiration = claims.getExpiration();
-            return expiration.after(new Date());
-        } catch (Exception e) {
-            return false;
-        }
+        return parseValid(token).isPresent();
     }
 
     public Date getRefreshTokenExpiryDate() {
@@ -92,4 +139,23 @@ public class JwtService {
     public Date getAccessTokenExpiryDate() {
         return new Date(System.currentTimeMillis() + ACCESS_TOKEN_VALIDITY_MS);
     }
+
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package com.example.bankcards.security.service;
+
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Отзыв access-токенов для режима jwt.stateless, где пользователь не загружается из базы на каждый запрос.
+// Состояние в памяти процесса; изменения с других экземпляров приходят через UserChangeListener
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private final UserRepository userRepository;
+
+    private final Set<UUID> disabledUsers = ConcurrentHashMap.newKeySet();
+    // Пользователь -> секунда смены email или роли: токены, выданные раньше, не принимаются.
+    // Запись нужна, пока живут такие токены
+    private final Cache<UUID, Instant> changedAt = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMillis(JwtService.ACCESS_TOKEN_VALIDITY_MS))
+            .build();
+
+    // Вызывается и при переподключении слушателя уведомлений: пропущенные изменения берутся из базы
+    @PostConstruct
+    public void load() {
+        Set<UUID> disabled = new HashSet<>(userRepository.findDisabledIds());
+        disabledUsers.retainAll(disabled);
+        disabledUsers.addAll(disabled);
+        log.info("Token revocation: {} disabled users loaded", disabledUsers.size());
+    }
+
+    // Закоммиченное изменение, в том числе сделанное на другом экземпляре
+    public void apply(UserChange change) {
+        switch (change.type()) {
+            case DISABLED -> disabledUsers.add(change.userId());
+            case ENABLED -> disabledUsers.remove(change.userId());
+            case UPDATED -> revokeIssuedBefore(change.userId(), change.at());
+        }
+    }
+
+    // Отзыв действует сразу, еще до коммита; при откате транзакции снимается
+    public void disableUser(UUID userId) {
+        if (!disabledUsers.add(userId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        disabledUsers.remove(userId);
+                    }
+                }
+            });
+        }
+    }
+
+    // Пока транзакция не закоммичена, пользователь остается отключенным
+    public void enableUser(UUID userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    disabledUsers.remove(userId);
+                }
+            });
+        } else {
+            disabledUsers.remove(userId);
+        }
+    }
+
+    // iat в токене с точностью до секунды: токены той же секунды принимаются, иначе новый токен,
+    // выданный сразу после изменения, был бы отозван на весь срок жизни
+    public void revokeIssuedBefore(UUID userId, Instant at) {
+        changedAt.put(userId, at.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    public boolean isRevoked(UUID userId, Date issuedAt) {
+        if (disabledUsers.contains(userId)) {
+            return true;
+        }
+        Instant changed = changedAt.getIfPresent(userId);
+        return changed != null && (issuedAt == null || issuedAt.toInstant().isBefore(changed));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.security.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// Изменение пользователя администратором, рассылается всем экземплярам через NOTIFY user_changes.
+// emails - все адреса, под которыми пользователь мог лежать в кеше (старый и новый при смене email)
+public record UserChange(UUID userId, Type type, List<String> emails, Instant at) {
+
+    public static final String CHANNEL = "user_changes";
+
+    public enum Type {
+        DISABLED, ENABLED, UPDATED
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.bankcards.security.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Слушает NOTIFY user_changes на отдельном соединении вне пула Hikari и сбрасывает кеш пользователей
+// и отзыв токенов на этом экземпляре. Пока соединения нет, уведомления теряются,
+// поэтому после каждого (пере)подключения кеш сбрасывается целиком
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cache.users.listener.enabled", havingValue = "true")
+public class UserChangeListener {
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final int pollTimeoutMs;
+    private final long reconnectDelayMs;
+    private Thread thread;
+    private volatile boolean running;
+
+    public UserChangeListener(DataSourceProperties dataSourceProperties,
+                              ObjectMapper objectMapper,
+                              UserDetailsCache userDetailsCache,
+                              TokenRevocationService tokenRevocationService,
+                              @Value("${cache.users.listener.poll-timeout-ms}") int pollTimeoutMs,
+                              @Value("${cache.users.listener.reconnect-delay-ms}") long reconnectDelayMs) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "user-changes-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(5000);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + UserChange.CHANNEL);
+                }
+                userDetailsCache.invalidateAll();
+                tokenRevocationService.load();
+                log.info("Listening for user changes on channel '{}'", UserChange.CHANNEL);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        handle(notification.getParameter());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("User changes listener failed, reconnecting in {} ms", reconnectDelayMs, e);
+                if (!pause()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        UserChange change;
+        try {
+            change = objectMapper.readValue(payload, UserChange.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed user change notification: {}", payload);
+            return;
+        }
+        userDetailsCache.evict(change);
+        tokenRevocationService.apply(change);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(reconnectDelayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
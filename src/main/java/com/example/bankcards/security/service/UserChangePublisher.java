@@ -0,0 +1,29 @@
+package com.example.bankcards.security.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UserChangePublisher {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final UserDetailsCache userDetailsCache;
+
+    // NOTIFY выполняется в текущей транзакции: другие экземпляры получат его только после коммита,
+    // а при откате не получат вовсе. Свой кеш сбрасывается после коммита, не дожидаясь уведомления
+    public void publish(UserChange change) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize user change", e);
+        }
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", UserChange.CHANNEL, payload);
+        userDetailsCache.evictAfterCommit(change);
+    }
+}
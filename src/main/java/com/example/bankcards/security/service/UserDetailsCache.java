@@ -0,0 +1,124 @@
+package com.example.bankcards.security.service;
+
+import com.example.bankcards.security.adapter.CustomUserDetails;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Пользователи по email для JwtAuthenticationFilter и логина.
+// Как и в CardCache, загрузка из базы идет вне блокировки ConcurrentHashMap: в кеше лежит future,
+// и инвалидация удаляет в том числе незавершенную загрузку.
+// Индекс id -> адреса позволяет сбросить пользователя по id без обхода всего кеша
+@Component
+public class UserDetailsCache {
+
+    private final AsyncCache<String, CustomUserDetails> byEmail;
+    private final ConcurrentMap<UUID, Set<String>> emailsById = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            @Value("${cache.users.max-size}") long maxSize,
+                            @Value("${cache.users.ttl}") Duration ttl) {
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .removalListener(this::onRemoval)
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, byEmail, "user-details");
+    }
+
+    public CustomUserDetails get(String email, Supplier<CustomUserDetails> loader) {
+        CompletableFuture<CustomUserDetails> created = new CompletableFuture<>();
+        CompletableFuture<CustomUserDetails> future = byEmail.get(email, (key, executor) -> created);
+        if (future == created) {
+            long evictionsBefore = evictions.get();
+            CustomUserDetails user;
+            try {
+                user = loader.get();
+            } catch (RuntimeException e) {
+                // Future с ошибкой Caffeine удаляет сам, "пользователь не найден" не кешируется
+                created.completeExceptionally(e);
+                throw e;
+            }
+            created.complete(user);
+            index(user.getUserId(), email);
+            // Сброс во время загрузки мог не найти эту запись в индексе (например, смена email прямо в базе) -
+            // загруженное могло устареть, не оставляем его в кеше
+            if (evictions.get() != evictionsBefore) {
+                byEmail.asMap().remove(email, created);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            return loader.get();
+        }
+    }
+
+    public void evict(UserChange change) {
+        evictions.incrementAndGet();
+        change.emails().forEach(byEmail.synchronous()::invalidate);
+        // Адрес мог смениться в обход администратора (например, прямо в базе) - добираем записи по id
+        Set<String> emails = emailsById.remove(change.userId());
+        if (emails != null) {
+            emails.forEach(byEmail.synchronous()::invalidate);
+        }
+    }
+
+    public void evictAfterCommit(UserChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(change);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        evictions.incrementAndGet();
+        byEmail.synchronous().invalidateAll();
+        emailsById.clear();
+    }
+
+    private void index(UUID userId, String email) {
+        emailsById.compute(userId, (id, emails) -> {
+            Set<String> result = emails != null ? emails : ConcurrentHashMap.newKeySet();
+            result.add(email);
+            return result;
+        });
+    }
+
+    // Вытеснение по размеру и TTL; адрес убирается из индекса, только если его не успели загрузить заново
+    private void onRemoval(String email, CustomUserDetails user, RemovalCause cause) {
+        if (user == null || !cause.wasEvicted()) {
+            return;
+        }
+        emailsById.computeIfPresent(user.getUserId(), (id, emails) -> {
+            if (byEmail.getIfPresent(email) == null) {
+                emails.remove(email);
+            }
+            return emails.isEmpty() ? null : emails;
+        });
+    }
+}
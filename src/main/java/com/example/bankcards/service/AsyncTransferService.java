@@ -0,0 +1,168 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.TransferLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.card.CardCache;
+import com.example.bankcards.service.card.ShardedBalanceService;
+import com.example.bankcards.service.limit.TransferLimitService;
+import com.example.bankcards.util.DataAccessUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class AsyncTransferService {
+
+    private static final int MAX_REASON_LENGTH = 128;
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final ShardedBalanceService shardedBalanceService;
+    private final LedgerService ledgerService;
+    private final CardCache cardCache;
+    private final TransferLimitService transferLimitService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public AsyncTransferService(TransactionRepository transactionRepository,
+                                TransactionService transactionService,
+                                ShardedBalanceService shardedBalanceService,
+                                LedgerService ledgerService,
+                                CardCache cardCache,
+                                TransferLimitService transferLimitService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${transfer.async.batch-size}") int batchSize) {
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+        this.shardedBalanceService = shardedBalanceService;
+        this.ledgerService = ledgerService;
+        this.cardCache = cardCache;
+        this.transferLimitService = transferLimitService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Проводит одну пачку PENDING переводов в одной транзакции и возвращает ее размер.
+    // Если пачка не закоммитилась, ее переводы проводятся по одному, чтобы один сбойный не держал очередь
+    public int settleBatch() {
+        List<UUID> ids = new ArrayList<>();
+        try {
+            Integer settled = transactionTemplate.execute(status -> {
+                List<Transaction> pending = transactionRepository.findPendingForUpdate(batchSize);
+                pending.forEach(transaction -> ids.add(transaction.getId()));
+                return settleAll(pending);
+            });
+            return settled == null ? 0 : settled;
+        } catch (RuntimeException e) {
+            if (ids.isEmpty() || DataAccessUtil.isRetryable(e)) {
+                throw e;
+            }
+            log.warn("Pending transfers batch of {} failed, settling one by one", ids.size(), e);
+            ids.forEach(this::settleAlone);
+            return ids.size();
+        }
+    }
+
+    private int settleAll(List<Transaction> pending) {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        // Все карты пачки блокируются одним запросом в порядке id
+        Map<UUID, Card> cards = transactionService.lockCards(pending.stream()
+                .flatMap(transaction -> Stream.of(transaction.getFromCard(), transaction.getToCard()))
+                .toList());
+
+        Instant settledAt = Instant.now();
+        int succeeded = 0;
+        for (Transaction transaction : pending) {
+            boolean success;
+            try {
+                success = settle(transaction, cards, settledAt);
+            } catch (RuntimeException e) {
+                // Ошибка в памяти только помечает перевод; ошибка базы пометит транзакцию rollback-only,
+                // коммит пачки упадет, и settleBatch проведет переводы по одному
+                success = fail(transaction, e.getMessage());
+            }
+            if (success) {
+                succeeded++;
+            }
+        }
+        log.info("Settled {} pending transfers: {} succeeded", pending.size(), succeeded);
+        return pending.size();
+    }
+
+    private void settleAlone(UUID transactionId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.findPendingByIdForUpdate(transactionId)
+                    .ifPresent(transaction -> settleAll(List.of(transaction))));
+        } catch (RuntimeException e) {
+            if (DataAccessUtil.isRetryable(e)) {
+                throw e;
+            }
+            // Повтор не поможет: перевод снимается с очереди с причиной
+            log.error("Pending transfer '{}' cannot be settled, marking failed", transactionId, e);
+            transactionTemplate.executeWithoutResult(status ->
+                    transactionRepository.markPendingFailed(transactionId, DataAccessUtil.reason(e, MAX_REASON_LENGTH)));
+        }
+    }
+
+    private boolean settle(Transaction transaction, Map<UUID, Card> cards, Instant settledAt) {
+        Card fromCard = cards.get(transaction.getFromCard());
+        Card toCard = cards.get(transaction.getToCard());
+
+        if (fromCard == null || toCard == null) {
+            return fail(transaction, "card no longer exists");
+        }
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            return fail(transaction, "sender card is not active");
+        }
+        shardedBalanceService.ensureAvailable(fromCard, transaction.getAmount());
+        if (fromCard.getBalance() < transaction.getAmount()) {
+            return fail(transaction, "not enough balance for transaction");
+        }
+        try {
+            transferLimitService.acquire(fromCard.getUserId(), fromCard.getId(), transaction.getAmount());
+        } catch (TransferLimitExceededException e) {
+            return fail(transaction, e.getMessage());
+        }
+
+        // Проводки датируются проведением, а не подачей
+        ledgerService.record(transaction, settledAt);
+        fromCard.setBalance(fromCard.getBalance() - transaction.getAmount());
+        toCard.setBalance(toCard.getBalance() + transaction.getAmount());
+
+        transaction.setStatus(TransactionStatus.SUCCESS);
+        transaction.setBalanceAfter(shardedBalanceService.totalBalance(fromCard));
+        cardCache.evictAfterCommit(fromCard.getUserId(), fromCard.getId(), toCard.getId());
+        return true;
+    }
+
+    private boolean fail(Transaction transaction, String reason) {
+        log.warn("Pending transfer '{}' failed: {}", transaction.getId(), reason);
+        transaction.setStatus(TransactionStatus.FAILED);
+        transaction.setFailureReason(truncate(reason));
+        return false;
+    }
+
+    private String truncate(String reason) {
+        if (reason == null) {
+            return "unknown error";
+        }
+        return reason.length() <= MAX_REASON_LENGTH ? reason : reason.substring(0, MAX_REASON_LENGTH);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.token.refresh.RequestRefreshDto;
+import com.example.bankcards.dto.token.refresh.ResponseRefreshDto;
 import com.example.bankcards.dto.user.login.RequestLoginDto;
 import com.example.bankcards.dto.user.login.ResponseLoginDto;
 import com.example.bankcards.dto.user.register.RequestRegisterDto;
@@ -10,12 +12,17 @@ import com.example.bankcards.entity.UserRole;
 import com.example.bankcards.exception.ConflictException;
 import com.example.bankcards.exception.LoginFailedException;
 import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.exception.UnauthorizedException;
 import com.example.bankcards.repository.RefreshTokenRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.RotatedRefreshToken;
 import com.example.bankcards.security.service.JwtService;
+import com.example.bankcards.util.HashUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
@@ -26,6 +33,8 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
 
 @Slf4j
 @Service
@@ -89,8 +98,9 @@ public class AuthService {
             refreshTokenRepository.save(
                     RefreshToken.builder()
                             .user(user)
-                            .token(refreshToken)
+                            .tokenHash(HashUtil.sha256Hex(refreshToken))
                             .expiryDate(expiryDate.toInstant())
+                            .familyId(UUID.randomUUID())
                             .build()
             );
 
@@ -104,4 +114,52 @@ public class AuthService {
             throw new LoginFailedException("user disabled");
         }
     }
+
+    // Без BCrypt и без загрузки User: поиск по уникальному индексу token_hash и ротация одним запросом
+    public ResponseRefreshDto refresh(RequestRefreshDto dto) {
+        String oldToken = dto.getRefreshToken();
+        Claims claims = Optional.ofNullable(oldToken)
+                .flatMap(jwtService::parseUncached)
+                .orElseThrow(() -> {
+                    log.warn("Refresh error: invalid refresh token");
+                    return new UnauthorizedException("invalid refresh token");
+                });
+
+        String oldHash = HashUtil.sha256Hex(oldToken);
+        String newToken = jwtService.generateRefreshToken(claims.getSubject());
+        Instant now = Instant.now();
+
+        RotatedRefreshToken owner = refreshTokenRepository
+                .rotate(oldHash, HashUtil.sha256Hex(newToken), jwtService.getRefreshTokenExpiryDate().toInstant(), now)
+                .orElseThrow(() -> rejectRefresh(oldHash, now));
+
+        String accessToken = jwtService.generateAccessToken(owner.getEmail(), owner.getUserId(), owner.getRole());
+        log.info("Refresh token of user '{}' rotated", owner.getUserId());
+        return ResponseRefreshDto.builder()
+                .accessToken(accessToken)
+                .refreshToken(newToken)
+                .build();
+    }
+
+    @Transactional
+    @Scheduled(cron = "${auth.refresh-tokens.purge-cron}")
+    public void purgeExpiredRefreshTokens() {
+        int deleted = refreshTokenRepository.deleteAllExpiredBefore(Instant.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    // Повторное предъявление уже использованного токена - признак кражи: отзывается все семейство
+    private UnauthorizedException rejectRefresh(String oldHash, Instant now) {
+        Optional<UUID> familyId = refreshTokenRepository.findRevokedFamilyId(oldHash);
+        if (familyId.isPresent()) {
+            int revoked = refreshTokenRepository.revokeFamily(familyId.get(), now);
+            log.warn("Refresh error: reuse of refresh token detected, family '{}' revoked ({} active tokens)",
+                    familyId.get(), revoked);
+            return new UnauthorizedException("refresh token reuse detected");
+        }
+        log.warn("Refresh error: refresh token not found, expired or user disabled");
+        return new UnauthorizedException("invalid refresh token");
+    }
 }
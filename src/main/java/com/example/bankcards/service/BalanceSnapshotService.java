@@ -0,0 +1,102 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerPostingRepository;
+import com.example.bankcards.util.SecurityUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class BalanceSnapshotService {
+
+    private static final UUID MIN_UUID = new UUID(0, 0);
+
+    private final LedgerPostingRepository ledgerPostingRepository;
+    private final CardRepository cardRepository;
+    private final SecurityUtil securityUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxCatchUpDays;
+
+    public BalanceSnapshotService(LedgerPostingRepository ledgerPostingRepository,
+                                  CardRepository cardRepository,
+                                  SecurityUtil securityUtil,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${balance.snapshots.chunk-size}") int chunkSize,
+                                  @Value("${balance.snapshots.max-catch-up-days}") int maxCatchUpDays) {
+        this.ledgerPostingRepository = ledgerPostingRepository;
+        this.cardRepository = cardRepository;
+        this.securityUtil = securityUtil;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxCatchUpDays = maxCatchUpDays;
+    }
+
+    // После простоя догоняет пропущенные дни. День последнего снимка повторяется:
+    // прогон мог прерваться на середине списка карт
+    @Scheduled(cron = "${balance.snapshots.cron}", zone = "UTC")
+    public void takeSnapshots() {
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        LocalDate from = yesterday.minusDays(maxCatchUpDays - 1L);
+        String lastDay = ledgerPostingRepository.findLastSnapshotDay();
+        if (lastDay == null) {
+            from = yesterday;
+        } else if (LocalDate.parse(lastDay).isAfter(from)) {
+            from = LocalDate.parse(lastDay);
+        }
+        for (LocalDate day = from; !day.isAfter(yesterday); day = day.plusDays(1)) {
+            takeSnapshots(day);
+        }
+    }
+
+    // Каждая порция карт - отдельная короткая транзакция; повторный запуск за тот же день ничего не перезапишет
+    void takeSnapshots(LocalDate day) {
+        Instant dayEnd = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        UUID after = MIN_UUID;
+        long written = 0;
+        while (true) {
+            List<UUID> cardIds = cardRepository.findIdsAfter(after, chunkSize);
+            if (cardIds.isEmpty()) {
+                break;
+            }
+            written += transactionTemplate.execute(status -> ledgerPostingRepository.writeSnapshots(cardIds, day, dayEnd));
+            after = cardIds.get(cardIds.size() - 1);
+        }
+        log.info("Balance snapshots for {} written: {} cards", day, written);
+    }
+
+    public ResponseBalanceDto balanceAt(UUID cardId, Instant at) {
+        if (at.isAfter(Instant.now())) {
+            throw new BadRequestException("'at' must not be in the future");
+        }
+        UUID userId = securityUtil.getCurrentUserId();
+        Card card = cardRepository.findByIdAndUserId(cardId, userId)
+                .orElseThrow(() -> {
+                    log.warn("User '{}' check balance error: card '{}' not found or not yours", userId, cardId);
+                    return new NotFoundException("card not found or not yours");
+                });
+
+        long balance = ledgerPostingRepository.balanceAt(cardId, LocalDate.ofInstant(at, ZoneOffset.UTC), at);
+
+        return ResponseBalanceDto.builder()
+                .maskedCard("**** **** **** " + card.getLast4())
+                .balance(balance)
+                .at(at)
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.batch.BatchTransferMode;
+import com.example.bankcards.dto.transaction.batch.ResponseBatchItemDto;
+import com.example.bankcards.dto.transaction.batch.ResponseBatchTransferDto;
+import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotEnoughBalanceException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.exception.TransferLimitExceededException;
+import com.example.bankcards.util.SecurityUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class BatchTransferService {
+
+    private final TransactionService transactionService;
+    private final SecurityUtil securityUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxSize;
+
+    public BatchTransferService(TransactionService transactionService,
+                                SecurityUtil securityUtil,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${transfer.batch.chunk-size}") int chunkSize,
+                                @Value("${transfer.batch.max-size}") int maxSize) {
+        this.transactionService = transactionService;
+        this.securityUtil = securityUtil;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxSize = maxSize;
+    }
+
+    public ResponseBatchTransferDto transferBatchByUser(List<RequestTransferDto> transfers, BatchTransferMode mode) {
+        UUID userId = securityUtil.getCurrentUserId();
+
+        if (transfers == null || transfers.isEmpty()) {
+            throw new BadRequestException("batch is empty");
+        }
+        if (transfers.size() > maxSize) {
+            log.warn("Batch transfer error: user '{}' sent {} transfers, limit is {}", userId, transfers.size(), maxSize);
+            throw new BadRequestException("batch is too large, max " + maxSize + " transfers");
+        }
+
+        // Переводы движка в памяти не откатываются вместе с транзакцией БД
+        if (mode == BatchTransferMode.ALL_OR_NOTHING && transactionService.usesBalanceEngine()) {
+            throw new BadRequestException("ALL_OR_NOTHING batches are not supported by the in-memory balance engine");
+        }
+
+        List<ResponseBatchItemDto> results = mode == BatchTransferMode.BEST_EFFORT
+                ? applyBestEffort(userId, transfers)
+                : applyAllOrNothing(userId, transfers);
+
+        int succeeded = (int) results.stream()
+                .filter(item -> item.getStatus() == TransactionStatus.SUCCESS)
+                .count();
+        log.info("Batch of {} transfers by user '{}' processed in mode {}: {} succeeded", transfers.size(), userId, mode, succeeded);
+
+        return ResponseBatchTransferDto.builder()
+                .mode(mode)
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .results(results)
+                .build();
+    }
+
+    // Одна транзакция на весь пакет: первая ошибка откатывает все, остальные элементы не обрабатываются
+    private List<ResponseBatchItemDto> applyAllOrNothing(UUID userId, List<RequestTransferDto> transfers) {
+        return transactionTemplate.execute(status -> {
+            List<ResponseBatchItemDto> results = applyChunk(userId, transfers, 0, true);
+            if (results.size() == transfers.size()
+                    && results.stream().allMatch(item -> item.getStatus() == TransactionStatus.SUCCESS)) {
+                return results;
+            }
+
+            status.setRollbackOnly();
+            ResponseBatchItemDto failedItem = results.get(results.size() - 1);
+            List<ResponseBatchItemDto> rolledBack = new ArrayList<>();
+            for (int i = 0; i < transfers.size(); i++) {
+                if (i == failedItem.getIndex()) {
+                    rolledBack.add(failedItem);
+                } else {
+                    rolledBack.add(failed(i, "rolled back: transfer #" + failedItem.getIndex() + " failed"));
+                }
+            }
+            return rolledBack;
+        });
+    }
+
+    // Пакет режется на чанки, каждый чанк в своей транзакции, ошибка одного перевода не мешает остальным
+    private List<ResponseBatchItemDto> applyBestEffort(UUID userId, List<RequestTransferDto> transfers) {
+        List<ResponseBatchItemDto> results = new ArrayList<>(transfers.size());
+        for (int from = 0; from < transfers.size(); from += chunkSize) {
+            int offset = from;
+            List<RequestTransferDto> chunk = transfers.subList(from, Math.min(from + chunkSize, transfers.size()));
+            try {
+                results.addAll(transactionTemplate.execute(status -> applyChunk(userId, chunk, offset, false)));
+            } catch (RuntimeException ex) {
+                log.error("Batch transfer error: chunk starting at #{} failed", offset, ex);
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(failed(offset + i, "chunk failed, transfer not applied"));
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<ResponseBatchItemDto> applyChunk(UUID userId, List<RequestTransferDto> chunk, int offset, boolean stopOnError) {
+        List<UUID> cardIds = new ArrayList<>(chunk.size() * 2);
+        for (RequestTransferDto dto : chunk) {
+            cardIds.add(dto.getFromCard());
+            cardIds.add(dto.getToCard());
+        }
+        // Все карты чанка блокируются одним запросом в порядке id
+        Map<UUID, Card> cards = transactionService.lockCards(cardIds);
+
+        List<ResponseBatchItemDto> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            RequestTransferDto dto = chunk.get(i);
+            try {
+                Card fromCard = transactionService.findSenderCard(
+                        transactionService.ownedCard(cards, dto.getFromCard(), userId), dto.getFromCard());
+                Card toCard = transactionService.findReceiverCard(
+                        transactionService.ownedCard(cards, dto.getToCard(), userId), dto.getToCard());
+                ResponseTransferDto transfer = transactionService.performTransfer(fromCard, toCard, dto.getAmount());
+                results.add(ResponseBatchItemDto.builder()
+                        .index(offset + i)
+                        .status(TransactionStatus.SUCCESS)
+                        .transfer(transfer)
+                        .build());
+            } catch (NotFoundException | NotEnoughBalanceException | TransferLimitExceededException ex) {
+                results.add(failed(offset + i, ex.getMessage()));
+                if (stopOnError) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private ResponseBatchItemDto failed(int index, String error) {
+        return ResponseBatchItemDto.builder()
+                .index(index)
+                .status(TransactionStatus.FAILED)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 64;
+    // Уникальный индекс (user_id, idempotency_key), на нем ждет параллельный дубль
+    public static final String UNIQUE_KEY_INDEX = "ux_idempotency_keys_user_key";
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionMapper transactionMapper;
+    private final Duration retention;
+    // Недавние ключи с готовым ответом: повтор запроса не доходит до БД вообще
+    private final Cache<String, StoredTransfer> recentTransfers;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionRepository transactionRepository,
+                              TransactionMapper transactionMapper,
+                              @Value("${transfer.idempotency.cache-size}") long cacheSize,
+                              @Value("${transfer.idempotency.cache-ttl}") Duration cacheTtl,
+                              @Value("${transfer.idempotency.retention}") Duration retention) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionMapper = transactionMapper;
+        this.retention = retention;
+        this.recentTransfers = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    public Optional<ResponseTransferDto> findResponse(UUID userId, String key, RequestTransferDto dto) {
+        validateKey(key);
+        StoredTransfer stored = recentTransfers.getIfPresent(cacheKey(userId, key));
+        if (stored != null) {
+            checkSameRequest(key, stored.fromCard(), stored.toCard(), stored.amount(), dto);
+            return Optional.of(stored.response());
+        }
+
+        Optional<IdempotencyKey> record = idempotencyKeyRepository.findByUserIdAndKey(userId, key);
+        if (record.isEmpty() || record.get().getTransactionId() == null) {
+            return Optional.empty();
+        }
+
+        Transaction transaction = transactionRepository.findById(record.get().getTransactionId())
+                .orElseThrow(() -> {
+                    log.warn("Idempotency error: transaction of key '{}' for user '{}' no longer exists", key, userId);
+                    return new ConflictException("idempotency key already used");
+                });
+        checkSameRequest(key, transaction.getFromCard(), transaction.getToCard(), transaction.getAmount(), dto);
+
+        ResponseTransferDto response = transactionMapper.toDto(transaction);
+        remember(userId, key, dto, response);
+        return Optional.of(response);
+    }
+
+    // Вызывается внутри транзакции перевода до изменения карт: параллельный дубль ждет на уникальном индексе
+    // и после коммита первого запроса получает DataIntegrityViolationException
+    public IdempotencyKey reserve(UUID userId, String key) {
+        return idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                .userId(userId)
+                .key(key)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    public void complete(IdempotencyKey record, ResponseTransferDto response) {
+        record.setTransactionId(response.getId());
+        idempotencyKeyRepository.save(record);
+    }
+
+    public void remember(UUID userId, String key, RequestTransferDto dto, ResponseTransferDto response) {
+        // PENDING перевод еще изменит статус, его повтор читается из transactions
+        if (response.getStatus() == TransactionStatus.PENDING) {
+            return;
+        }
+        recentTransfers.put(cacheKey(userId, key),
+                new StoredTransfer(dto.getFromCard(), dto.getToCard(), dto.getAmount(), response));
+    }
+
+    @Transactional
+    @Scheduled(cron = "${transfer.idempotency.purge-cron}")
+    public void purgeExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteAllCreatedBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private void validateKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    private void checkSameRequest(String key, UUID fromCard, UUID toCard, Long amount, RequestTransferDto dto) {
+        if (!Objects.equals(fromCard, dto.getFromCard())
+                || !Objects.equals(toCard, dto.getToCard())
+                || !Objects.equals(amount, dto.getAmount())) {
+            log.warn("Idempotency error: key '{}' reused with a different transfer", key);
+            throw new ConflictException("idempotency key already used for another transfer");
+        }
+    }
+
+    private String cacheKey(UUID userId, String key) {
+        return userId + ":" + key;
+    }
+
+    private record StoredTransfer(UUID fromCard, UUID toCard, Long amount, ResponseTransferDto response) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.LedgerPosting;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.LedgerPostingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    private final LedgerPostingRepository ledgerPostingRepository;
+
+    // Вызывается в транзакции перевода; две вставки уходят одним batch вместе с INSERT транзакции
+    public void record(Transaction transaction) {
+        record(transaction, transaction.getTransactionDate());
+    }
+
+    // postedAt - момент движения денег. Для отложенного перевода это время проведения, а не подачи
+    public void record(Transaction transaction, Instant postedAt) {
+        ledgerPostingRepository.saveAll(List.of(
+                LedgerPosting.builder()
+                        .transactionId(transaction.getId())
+                        .cardId(transaction.getFromCard())
+                        .amount(-transaction.getAmount())
+                        .postedAt(postedAt)
+                        .build(),
+                LedgerPosting.builder()
+                        .transactionId(transaction.getId())
+                        .cardId(transaction.getToCard())
+                        .amount(transaction.getAmount())
+                        .postedAt(postedAt)
+                        .build()));
+    }
+
+    public long ledgerBalance(UUID cardId) {
+        return ledgerPostingRepository.ledgerBalance(cardId);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${ledger.checkpoint-interval-ms}")
+    public void advanceCheckpoints() {
+        if (!ledgerPostingRepository.tryLockCheckpoints()) {
+            return;
+        }
+        int updated = ledgerPostingRepository.advanceCheckpoints();
+        if (updated > 0) {
+            log.info("Balance checkpoints advanced for {} cards", updated);
+        }
+    }
+
+    // Обороты считаются из проводок вне транзакции перевода, поэтому строка оборота горячей карты не блокируется
+    @Transactional
+    @Scheduled(fixedDelayString = "${ledger.turnover-interval-ms}")
+    public void advanceTurnover() {
+        if (!ledgerPostingRepository.tryLockTurnover()) {
+            return;
+        }
+        ledgerPostingRepository.advanceTurnover();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.statement.StatementFormat;
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.SecurityUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class StatementService {
+
+    private static final String CSV_HEADER = "id,status,amount,from_card,to_card,transaction_date,balance_after,failure_reason";
+
+    private final TransactionRepository transactionRepository;
+    private final CardRepository cardRepository;
+    private final SecurityUtil securityUtil;
+    private final TransactionMapper transactionMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public StatementService(TransactionRepository transactionRepository,
+                            CardRepository cardRepository,
+                            SecurityUtil securityUtil,
+                            TransactionMapper transactionMapper,
+                            ObjectMapper objectMapper,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.cardRepository = cardRepository;
+        this.securityUtil = securityUtil;
+        this.transactionMapper = transactionMapper;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // Проверки выполняются в потоке запроса; тело пишется позже, в потоке асинхронной обработки MVC
+    public StreamingResponseBody exportStatement(UUID cardId, LocalDate from, LocalDate to, StatementFormat format) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+        UUID userId = securityUtil.getCurrentUserId();
+        if (!cardRepository.existsByIdAndUserId(cardId, userId)) {
+            log.warn("Statement error: card with id '{}' not found", cardId);
+            throw new NotFoundException("card not found");
+        }
+
+        Instant fromInstant = from.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant toInstant = to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        return outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            long rows = transactionTemplate.execute(status -> write(cardId, fromInstant, toInstant, format, writer));
+            writer.flush();
+            log.info("Statement for card '{}' exported: {} rows, format {}", cardId, rows, format);
+        };
+    }
+
+    private long write(UUID cardId, Instant from, Instant to, StatementFormat format, Writer writer) {
+        long rows = 0;
+        try (Stream<Transaction> transactions = transactionRepository.streamStatement(cardId, from, to)) {
+            if (format == StatementFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+                ResponseTransferDto dto = transactionMapper.toDto(transaction);
+                // Прочитанная строка больше не нужна контексту персистентности
+                entityManager.detach(transaction);
+                writer.write(format == StatementFormat.CSV ? toCsv(dto) : objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+                rows++;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return rows;
+    }
+
+    private String toCsv(ResponseTransferDto dto) {
+        return String.join(",",
+                String.valueOf(dto.getId()),
+                String.valueOf(dto.getStatus()),
+                String.valueOf(dto.getAmount()),
+                dto.getFromCard(),
+                dto.getToCard(),
+                String.valueOf(dto.getTransactionDate()),
+                dto.getBalanceAfter() == null ? "" : String.valueOf(dto.getBalanceAfter()),
+                escapeCsv(dto.getFailureReason()));
+    }
+
+    private String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
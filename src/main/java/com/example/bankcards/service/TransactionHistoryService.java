@@ -0,0 +1,84 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.history.ResponseTransactionPageDto;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.SecurityUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionHistoryService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final TransactionRepository transactionRepository;
+    private final CardRepository cardRepository;
+    private final SecurityUtil securityUtil;
+    private final TransactionMapper transactionMapper;
+
+    @Transactional(readOnly = true)
+    public ResponseTransactionPageDto getCardHistory(UUID cardId, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        UUID userId = securityUtil.getCurrentUserId();
+        if (!cardRepository.existsByIdAndUserId(cardId, userId)) {
+            log.warn("History error: card with id '{}' not found", cardId);
+            throw new NotFoundException("card not found");
+        }
+
+        // Читаем на одну строку больше, чтобы узнать, есть ли следующая страница
+        List<Transaction> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = transactionRepository.findCardHistory(cardId, size + 1);
+        } else {
+            Transaction position = decodeCursor(cursor);
+            rows = transactionRepository.findCardHistoryBefore(cardId, position.getTransactionDate(), position.getId(), size + 1);
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<Transaction> page = hasNext ? rows.subList(0, size) : rows;
+        return ResponseTransactionPageDto.builder()
+                .content(page.stream().map(transactionMapper::toDto).toList())
+                .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1)) : null)
+                .build();
+    }
+
+    // Курсор непрозрачен для клиента: base64url от "transaction_date|id" последней строки страницы
+    String encodeCursor(Transaction last) {
+        String raw = last.getTransactionDate() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Transaction decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new BadRequestException("invalid cursor");
+            }
+            return Transaction.builder()
+                    .transactionDate(Instant.parse(raw.substring(0, separator)))
+                    .id(UUID.fromString(raw.substring(separator + 1)))
+                    .build();
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BadRequestException("invalid cursor");
+        }
+    }
+}
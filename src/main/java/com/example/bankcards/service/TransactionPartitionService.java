@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+@Slf4j
+@Service
+public class TransactionPartitionService {
+
+    static final String ARCHIVE_SCHEMA = "transactions_archive";
+    private static final String PARTITION_PREFIX = "transactions_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String LIST_PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'transactions'::regclass
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public TransactionPartitionService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${transactions.partitions.months-ahead}") int monthsAhead,
+                                       @Value("${transactions.partitions.retention-months}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    // Без секции на текущий месяц INSERT в transactions упадет, поэтому проверяем и при старте
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${transactions.partitions.cron}")
+    public void maintainPartitions() {
+        maintainPartitions(YearMonth.now());
+    }
+
+    void maintainPartitions(YearMonth current) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Обслуживание выполняет только один экземпляр приложения
+            Boolean locked = jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(hashtext('transactions_partitions'))", Boolean.class);
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+            for (int i = 0; i <= monthsAhead; i++) {
+                createPartition(current.plusMonths(i));
+            }
+            if (retentionMonths > 0) {
+                archivePartitionsBefore(current.minusMonths(retentionMonths));
+            }
+        });
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                + " PARTITION OF transactions FOR VALUES FROM ('" + month.atDay(1)
+                + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    // Отсоединенная секция остается доступной для выгрузки в схеме архива, но не участвует в запросах
+    private void archivePartitionsBefore(YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS, String.class);
+        for (String partition : partitions) {
+            YearMonth month = partitionMonth(partition);
+            if (month == null || !month.isBefore(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + partition);
+            jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA " + ARCHIVE_SCHEMA);
+            log.info("Transactions partition '{}' detached and moved to schema '{}'", partition, ARCHIVE_SCHEMA);
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    static YearMonth partitionMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+}
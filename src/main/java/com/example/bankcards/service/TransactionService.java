@@ -4,20 +4,45 @@ import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
 import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
 import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.IdempotencyKey;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ConflictException;
 import com.example.bankcards.exception.NotEnoughBalanceException;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.mapper.TransactionMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.projection.AtomicTransferResult;
+import com.example.bankcards.repository.projection.CardBalanceView;
+import com.example.bankcards.service.balance.BalanceEngine;
+import com.example.bankcards.service.card.CardCache;
+import com.example.bankcards.service.card.ShardedBalanceService;
+import com.example.bankcards.service.limit.TransferLimitService;
+import com.example.bankcards.service.transfer.GroupCommitExecutor;
+import com.example.bankcards.service.transfer.TransferConcurrencyMode;
+import com.example.bankcards.service.transfer.TransferExecutor;
+import com.example.bankcards.util.DataAccessUtil;
 import com.example.bankcards.util.SecurityUtil;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
@@ -29,34 +54,237 @@ public class TransactionService {
     private final CardRepository cardRepository;
     private final SecurityUtil securityUtil;
     private final TransactionMapper transactionMapper;
+    private final TransferExecutor transferExecutor;
+    private final IdempotencyService idempotencyService;
+    private final GroupCommitExecutor groupCommitExecutor;
+    private final ShardedBalanceService shardedBalanceService;
+    private final ObjectProvider<BalanceEngine> balanceEngine;
+    private final LedgerService ledgerService;
+    private final CardCache cardCache;
+    private final TransferLimitService transferLimitService;
 
-    @Transactional
-    public ResponseTransferDto transferByUser(RequestTransferDto dto) {
+    @Value("${transfer.async.enabled}")
+    private boolean asyncEnabled;
+
+    public ResponseTransferDto transferByUser(RequestTransferDto dto, String idempotencyKey) {
         UUID userId = securityUtil.getCurrentUserId();
+        if (idempotencyKey == null) {
+            return transfer(userId, dto);
+        }
+        // Движок переводит деньги вне транзакции БД с резервом ключа: при откате резерва перевод
+        // остался бы в силе, и повтор с тем же ключом выполнил бы его второй раз
+        if (usesBalanceEngine()) {
+            log.warn("User transfer error: idempotency key '{}' is not supported by the in-memory balance engine", idempotencyKey);
+            throw new BadRequestException("Idempotency-Key is not supported by the in-memory balance engine");
+        }
 
-        Card fromCard = cardRepository.findByIdAndUserId(dto.getFromCard(), userId)
-                .orElseThrow(() -> {
-                    log.warn("User transfer error: sender card '{}' not found or not yours", dto.getFromCard());
-                    return new NotFoundException("sender card not found or not yours");
-                });
+        // Повтор уже выполненного запроса отдает сохраненный ответ, карты не читаются и не блокируются
+        Optional<ResponseTransferDto> replay = idempotencyService.findResponse(userId, idempotencyKey, dto);
+        if (replay.isPresent()) {
+            log.info("Transfer with idempotency key '{}' replayed for user '{}'", idempotencyKey, userId);
+            return replay.get();
+        }
 
-        Card toCard = cardRepository.findByIdAndUserId(dto.getToCard(), userId)
-                .orElseThrow(() -> {
-                    log.warn("User transfer error: Receiver card '{}' not found or not yours", dto.getToCard());
-                    return new NotFoundException("receiver card not found or not yours");
-                });
+        try {
+            ResponseTransferDto response = transferExecutor.execute(() -> {
+                IdempotencyKey record = idempotencyService.reserve(userId, idempotencyKey);
+                ResponseTransferDto result = doTransfer(userId, dto);
+                idempotencyService.complete(record, result);
+                return result;
+            });
+            idempotencyService.remember(userId, idempotencyKey, dto, response);
+            return response;
+        } catch (DataIntegrityViolationException ex) {
+            // Остальные нарушения ограничений (вставка перевода, проводок) к ключу отношения не имеют
+            if (!DataAccessUtil.isConstraintViolation(ex, IdempotencyService.UNIQUE_KEY_INDEX)) {
+                throw ex;
+            }
+            // Параллельный запрос с тем же ключом закоммитился первым - отдаем его результат
+            return idempotencyService.findResponse(userId, idempotencyKey, dto)
+                    .orElseThrow(() -> {
+                        log.warn("User transfer error: idempotency key '{}' is already in progress", idempotencyKey);
+                        return new ConflictException("request with this idempotency key is already in progress");
+                    });
+        }
+    }
+
+    public ResponseTransferDto transfer(UUID userId, RequestTransferDto dto) {
+        // Движок в памяти не использует транзакцию БД, соединение из пула не берется
+        BalanceEngine engine = balanceEngine.getIfAvailable();
+        if (engine != null) {
+            return engineTransfer(engine, userId, dto.getFromCard(), dto.getToCard(), dto.getAmount());
+        }
+        if (groupCommitExecutor.isEnabled() && !asyncEnabled) {
+            return groupCommitExecutor.submit(Arrays.asList(dto.getFromCard(), dto.getToCard()), this::lockCards, cards -> {
+                Card fromCard = findSenderCard(ownedCard(cards, dto.getFromCard(), userId), dto.getFromCard());
+                Card toCard = findReceiverCard(ownedCard(cards, dto.getToCard(), userId), dto.getToCard());
+                return performTransfer(fromCard, toCard, dto.getAmount());
+            });
+        }
+        return transferExecutor.execute(() -> doTransfer(userId, dto));
+    }
+
+    // Тело перевода, должно выполняться внутри transferExecutor
+    private ResponseTransferDto doTransfer(UUID userId, RequestTransferDto dto) {
+        BalanceEngine engine = balanceEngine.getIfAvailable();
+        if (engine != null) {
+            return engineTransfer(engine, userId, dto.getFromCard(), dto.getToCard(), dto.getAmount());
+        }
+        if (asyncEnabled) {
+            return submitPending(userId, dto);
+        }
+        TransferConcurrencyMode mode = transferExecutor.getMode();
+        boolean differentCards = !Objects.equals(dto.getFromCard(), dto.getToCard());
+        if (differentCards && shardedBalanceService.isHot(dto.getToCard())) {
+            return hotReceiverTransfer(userId, dto);
+        }
+        // Перевод на ту же карту обновил бы одну строку дважды в одном запросе, поэтому идет обычным путем.
+        // Списание с горячей карты требует свертки шардов, которой нет в атомарном запросе
+        if (mode == TransferConcurrencyMode.ATOMIC_UPDATE && differentCards && !shardedBalanceService.isHot(dto.getFromCard())) {
+            return atomicTransfer(userId, dto);
+        }
+        Card fromCard;
+        Card toCard;
+        if (mode == TransferConcurrencyMode.PESSIMISTIC || mode == TransferConcurrencyMode.ATOMIC_UPDATE) {
+            Map<UUID, Card> cards = lockCards(Arrays.asList(dto.getFromCard(), dto.getToCard()));
+            fromCard = findSenderCard(ownedCard(cards, dto.getFromCard(), userId), dto.getFromCard());
+            toCard = findReceiverCard(ownedCard(cards, dto.getToCard(), userId), dto.getToCard());
+        } else {
+            fromCard = findSenderCard(cardRepository.findByIdAndUserId(dto.getFromCard(), userId), dto.getFromCard());
+            toCard = findReceiverCard(cardRepository.findByIdAndUserId(dto.getToCard(), userId), dto.getToCard());
+        }
         return performTransfer(fromCard, toCard, dto.getAmount());
     }
 
+    // Блокируется только карта отправителя, зачисление уходит в один из шардов получателя
+    private ResponseTransferDto hotReceiverTransfer(UUID userId, RequestTransferDto dto) {
+        Map<UUID, Card> cards = lockCards(Arrays.asList(dto.getFromCard()));
+        Card fromCard = findSenderCard(ownedCard(cards, dto.getFromCard(), userId), dto.getFromCard());
+        Card toCard = findReceiverCard(cardRepository.findByIdAndUserId(dto.getToCard(), userId), dto.getToCard());
+        return performTransfer(fromCard, toCard, dto.getAmount(), true);
+    }
+
+    // Карты проверяются сразу, чтобы чужая карта давала 404 на запрос, а не FAILED в очереди.
+    // Баланс проверяет воркер при проведении (AsyncTransferService)
+    private ResponseTransferDto submitPending(UUID userId, RequestTransferDto dto) {
+        Card fromCard = findSenderCard(cardRepository.findByIdAndUserId(dto.getFromCard(), userId), dto.getFromCard());
+        Card toCard = findReceiverCard(cardRepository.findByIdAndUserId(dto.getToCard(), userId), dto.getToCard());
+
+        Transaction transaction = Transaction.builder()
+                .status(TransactionStatus.PENDING)
+                .amount(dto.getAmount())
+                .fromCard(fromCard.getId())
+                .fromCardLast4(fromCard.getLast4())
+                .toCard(toCard.getId())
+                .toCardLast4(toCard.getLast4())
+                .transactionDate(Instant.now())
+                .build();
+
+        transactionRepository.save(transaction);
+
+        log.info("Transfer '{}' -> '{}' queued", getMasked(fromCard.getLast4()), getMasked(toCard.getLast4()));
+
+        return transactionMapper.toDto(transaction);
+    }
+
+    private ResponseTransferDto atomicTransfer(UUID userId, RequestTransferDto dto) {
+        UUID transactionId = UUID.randomUUID();
+        Instant transactionDate = Instant.now();
+
+        transferLimitService.acquire(userId, dto.getFromCard(), dto.getAmount());
+        AtomicTransferResult result = transactionRepository.transferAtomically(transactionId, userId,
+                        dto.getFromCard(), dto.getToCard(), dto.getAmount(), transactionDate)
+                .orElseThrow(() -> rejectAtomicTransfer(userId, dto));
+
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .status(TransactionStatus.SUCCESS)
+                .amount(dto.getAmount())
+                .fromCard(dto.getFromCard())
+                .fromCardLast4(result.getFromCardLast4())
+                .toCard(dto.getToCard())
+                .toCardLast4(result.getToCardLast4())
+                .transactionDate(transactionDate)
+                .balanceAfter(result.getBalanceAfter())
+                .build();
+
+        cardCache.evictAfterCommit(userId, dto.getFromCard(), dto.getToCard());
+
+        log.info("Transfer '{}' -> '{}' performed successfully", getMasked(result.getFromCardLast4()), getMasked(result.getToCardLast4()));
+
+        return transactionMapper.toDto(transaction);
+    }
+
+    // Запрос не вернул строку - выясняем причину уже после неудачи, на успешном пути этих чтений нет.
+    // Частично выполненное списание откатится вместе с транзакцией, т.к. здесь всегда бросается исключение.
+    private RuntimeException rejectAtomicTransfer(UUID userId, RequestTransferDto dto) {
+        Card fromCard = findSenderCard(cardRepository.findByIdAndUserId(dto.getFromCard(), userId), dto.getFromCard());
+        findReceiverCard(cardRepository.findByIdAndUserId(dto.getToCard(), userId), dto.getToCard());
+
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            log.warn("Perform transfer transaction error: sender card '{}' is not active", fromCard.getId());
+            return new ConflictException("sender card is not active");
+        }
+        log.warn("Perform transfer transaction error: not enough balance for transaction");
+        return new NotEnoughBalanceException("not enough balance for transaction");
+    }
+
+    Map<UUID, Card> lockCards(Collection<UUID> cardIds) {
+        List<UUID> ids = cardIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<UUID, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdInForUpdate(ids)) {
+            cards.put(card.getId(), card);
+        }
+        return cards;
+    }
+
+    Optional<Card> ownedCard(Map<UUID, Card> cards, UUID cardId, UUID userId) {
+        return Optional.ofNullable(cardId == null ? null : cards.get(cardId))
+                .filter(card -> card.getUserId().equals(userId));
+    }
+
+    Card findSenderCard(Optional<Card> card, UUID cardId) {
+        return card.orElseThrow(() -> {
+            log.warn("User transfer error: sender card '{}' not found or not yours", cardId);
+            return new NotFoundException("sender card not found or not yours");
+        });
+    }
+
+    Card findReceiverCard(Optional<Card> card, UUID cardId) {
+        return card.orElseThrow(() -> {
+            log.warn("User transfer error: Receiver card '{}' not found or not yours", cardId);
+            return new NotFoundException("receiver card not found or not yours");
+        });
+    }
+
     ResponseTransferDto performTransfer(Card fromCard, Card toCard, Long amount) {
+        return performTransfer(fromCard, toCard, amount, false);
+    }
+
+    private ResponseTransferDto performTransfer(Card fromCard, Card toCard, Long amount, boolean shardedCredit) {
+        BalanceEngine engine = balanceEngine.getIfAvailable();
+        if (engine != null) {
+            return engineTransfer(engine, fromCard.getUserId(), fromCard.getId(), toCard.getId(), amount);
+        }
+        shardedBalanceService.ensureAvailable(fromCard, amount);
         if (fromCard.getBalance() < amount) {
             log.warn("Perform transfer transaction error: not enough balance for transaction");
             throw new NotEnoughBalanceException("not enough balance for transaction");
         }
+        transferLimitService.acquire(fromCard.getUserId(), fromCard.getId(), amount);
 
-        long newBalance = fromCard.getBalance() - amount;
-        fromCard.setBalance(newBalance);
-        toCard.setBalance(toCard.getBalance() + amount);
+        fromCard.setBalance(fromCard.getBalance() - amount);
+        if (!shardedCredit) {
+            toCard.setBalance(toCard.getBalance() + amount);
+        } else if (!shardedBalanceService.creditShard(toCard.getId(), amount)) {
+            // Шарды успели удалить - зачисляем напрямую в строку карты, минуя незаблокированную сущность
+            cardRepository.creditBalance(toCard.getId(), amount);
+        }
+        // У горячего отправителя шарды сворачиваются только при нехватке, остаток - вместе с ними
+        long newBalance = shardedBalanceService.totalBalance(fromCard);
 
         Transaction transaction = Transaction.builder()
                 .status(TransactionStatus.SUCCESS)
@@ -70,24 +298,75 @@ public class TransactionService {
                 .build();
 
         transactionRepository.save(transaction);
+        ledgerService.record(transaction);
+        cardCache.evictAfterCommit(fromCard.getUserId(), fromCard.getId(), toCard.getId());
 
         log.info("Transfer '{}' -> '{}' performed successfully", getMasked(fromCard.getLast4()), getMasked(toCard.getLast4()));
 
         return transactionMapper.toDto(transaction);
     }
 
+    private ResponseTransferDto engineTransfer(BalanceEngine engine, UUID userId, UUID fromCard, UUID toCard, Long amount) {
+        // Вне транзакции БД учет лимита снимается вручную. Внутри нее (пакетный перевод)
+        // acquire уже снимет его при откате, повторный release увел бы счетчики в минус
+        long acquiredAt = transferLimitService.acquire(userId, fromCard, amount);
+        Transaction transaction;
+        try {
+            transaction = engine.transfer(userId, fromCard, toCard, amount);
+        } catch (RuntimeException e) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                transferLimitService.release(userId, fromCard, amount, acquiredAt);
+            }
+            throw e;
+        }
+        cardCache.evictAfterCommit(userId, fromCard, toCard);
+
+        log.info("Transfer '{}' -> '{}' performed successfully",
+                getMasked(transaction.getFromCardLast4()), getMasked(transaction.getToCardLast4()));
+
+        return transactionMapper.toDto(transaction);
+    }
+
+    public boolean usesBalanceEngine() {
+        return balanceEngine.getIfAvailable() != null;
+    }
+
+    public ResponseTransferDto getTransferByUser(UUID transactionId) {
+        UUID userId = securityUtil.getCurrentUserId();
+
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .filter(found -> cardRepository.findByIdAndUserId(found.getFromCard(), userId).isPresent())
+                .orElseThrow(() -> {
+                    log.warn("User '{}' get transfer error: transfer '{}' not found or not yours", userId, transactionId);
+                    return new NotFoundException("transfer not found or not yours");
+                });
+
+        return transactionMapper.toDto(transaction);
+    }
+
+    @Transactional(readOnly = true)
     public ResponseBalanceDto checkBalanceByUser(UUID cardId) {
         UUID userId = securityUtil.getCurrentUserId();
+        // Баланс движка и так в памяти, кешируется только чтение из базы
+        if (balanceEngine.getIfAvailable() != null) {
+            return loadBalance(userId, cardId);
+        }
+        return cardCache.getBalance(cardId, userId, () -> loadBalance(userId, cardId));
+    }
 
-        Card card = cardRepository.findByIdAndUserId(cardId, userId)
+    private ResponseBalanceDto loadBalance(UUID userId, UUID cardId) {
+        CardBalanceView card = cardRepository.findBalanceByIdAndUserId(cardId, userId)
                 .orElseThrow(() -> {
                     log.warn("User '{}' check balance error: card '{}' not found or not yours", userId, cardId);
                     return new NotFoundException("card not found or not yours");
                 });
 
+        BalanceEngine engine = balanceEngine.getIfAvailable();
+        long balance = engine != null ? engine.balance(cardId) : card.getBalance();
+
         return ResponseBalanceDto.builder()
                 .maskedCard(getMasked(card.getLast4()))
-                .balance(card.getBalance())
+                .balance(balance)
                 .build();
     }
 
@@ -0,0 +1,58 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.turnover.ResponseTurnoverDto;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerPostingRepository;
+import com.example.bankcards.util.SecurityUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TurnoverService {
+
+    private static final int DEFAULT_MONTHS = 12;
+    private static final int MAX_MONTHS = 120;
+
+    private final LedgerPostingRepository ledgerPostingRepository;
+    private final CardRepository cardRepository;
+    private final SecurityUtil securityUtil;
+
+    @Transactional(readOnly = true)
+    public List<ResponseTurnoverDto> getMonthlyTurnover(UUID cardId, YearMonth from, YearMonth to) {
+        YearMonth toMonth = to != null ? to : YearMonth.now();
+        YearMonth fromMonth = from != null ? from : toMonth.minusMonths(DEFAULT_MONTHS - 1);
+        if (fromMonth.isAfter(toMonth)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.MONTHS.between(fromMonth, toMonth) >= MAX_MONTHS) {
+            throw new BadRequestException("period must not exceed " + MAX_MONTHS + " months");
+        }
+
+        UUID userId = securityUtil.getCurrentUserId();
+        if (!cardRepository.existsByIdAndUserId(cardId, userId)) {
+            log.warn("Turnover error: card with id '{}' not found", cardId);
+            throw new NotFoundException("card not found");
+        }
+
+        return ledgerPostingRepository.findTurnover(cardId, fromMonth.atDay(1), toMonth.atDay(1)).stream()
+                .map(turnover -> ResponseTurnoverDto.builder()
+                        .month(turnover.getMonth())
+                        .incomingAmount(turnover.getIncomingAmount())
+                        .incomingCount(turnover.getIncomingCount())
+                        .outgoingAmount(turnover.getOutgoingAmount())
+                        .outgoingCount(turnover.getOutgoingCount())
+                        .build())
+                .toList();
+    }
+}
@@ -7,6 +7,9 @@ import com.example.bankcards.exception.ConflictException;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.service.TokenRevocationService;
+import com.example.bankcards.security.service.UserChange;
+import com.example.bankcards.security.service.UserChangePublisher;
 import com.example.bankcards.util.SecurityUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +17,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -24,6 +29,8 @@ public class UserService {
     private final UserRepository userRepository;
     private final SecurityUtil securityUtil;
     private final UserMapper userMapper;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserChangePublisher userChangePublisher;
 
     @Transactional
     @PreAuthorize("hasRole('ADMIN')")
@@ -41,6 +48,8 @@ public class UserService {
 
         user.setEnabled(false);
         userRepository.save(user);
+        tokenRevocationService.disableUser(userId);
+        userChangePublisher.publish(new UserChange(userId, UserChange.Type.DISABLED, List.of(user.getEmail()), Instant.now()));
         log.info("user '{}' was disabled by admin '{}'", userId, email);
 
         return userMapper.toDto(user);
@@ -62,6 +71,8 @@ public class UserService {
 
         user.setEnabled(true);
         userRepository.save(user);
+        tokenRevocationService.enableUser(userId);
+        userChangePublisher.publish(new UserChange(userId, UserChange.Type.ENABLED, List.of(user.getEmail()), Instant.now()));
         log.info("user '{}' was enabled by admin '{}'", userId, email);
 
         return userMapper.toDto(user);
@@ -77,10 +88,18 @@ public class UserService {
                     return new NotFoundException("user not found");
                 });
 
+        String oldEmail = user.getEmail();
         if (dto.getEmail() != null) user.setEmail(dto.getEmail());
         if (dto.getRole() != null) user.setRole(dto.getRole());
 
         userRepository.save(user);
+        // Старые токены несут прежние email и роль
+        if (dto.getEmail() != null || dto.getRole() != null) {
+            Instant now = Instant.now();
+            tokenRevocationService.revokeIssuedBefore(userId, now);
+            List<String> emails = oldEmail.equals(user.getEmail()) ? List.of(oldEmail) : List.of(oldEmail, user.getEmail());
+            userChangePublisher.publish(new UserChange(userId, UserChange.Type.UPDATED, emails, now));
+        }
 
         log.info("user '{}' successfully updated by admin '{}'", userId, email);
 
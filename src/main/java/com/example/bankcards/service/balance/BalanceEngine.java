@@ -0,0 +1,18 @@
+package com.example.bankcards.service.balance;
+
+import com.example.bankcards.entity.Transaction;
+
+import java.util.UUID;
+
+// Хранилище балансов, через которое TransactionService проводит переводы вместо строк cards.
+// Бин есть только при balance.engine=in-memory, иначе работает обычный путь через JPA
+public interface BalanceEngine {
+
+    // Возвращает проведенную транзакцию; в таблицы она попадет асинхронно
+    Transaction transfer(UUID userId, UUID fromCard, UUID toCard, long amount);
+
+    long balance(UUID cardId);
+
+    // Перечитывает статус карты после коммита блокировки, активации или удаления
+    void refreshCard(UUID cardId);
+}
@@ -0,0 +1,175 @@
+package com.example.bankcards.service.balance;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+// Журнал упреждающей записи в memory-mapped файле.
+// Заголовок: magic, поколение, позиция, до которой записи уже сброшены в БД.
+// Записи фиксированного размера, в каждой поколение и CRC: после reset() старые записи
+// остаются в файле, но при восстановлении отбрасываются по поколению.
+final class BalanceJournal implements AutoCloseable {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 96;
+
+    private static final long MAGIC = 0x42414C4A524E4C31L;
+    private static final int RECORD_MAGIC = 0x4A524E4C;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final boolean force;
+    private int generation;
+    private volatile long writePosition;
+    private volatile long flushedPosition;
+
+    BalanceJournal(Path path, int sizeBytes, boolean force) {
+        this.force = force;
+        this.capacity = HEADER_SIZE + (sizeBytes - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open balance journal " + path, ex);
+        }
+
+        if (buffer.getLong(0) == MAGIC) {
+            generation = buffer.getInt(8);
+            flushedPosition = Math.max(HEADER_SIZE, Math.min(buffer.getLong(12), capacity));
+        } else {
+            generation = 1;
+            flushedPosition = HEADER_SIZE;
+            writeHeader();
+        }
+        // Конец журнала - первая запись, не прошедшая проверку
+        long position = flushedPosition;
+        while (position + RECORD_SIZE <= capacity && readRecord(position) != null) {
+            position += RECORD_SIZE;
+        }
+        writePosition = position;
+    }
+
+    long writePosition() {
+        return writePosition;
+    }
+
+    long flushedPosition() {
+        return flushedPosition;
+    }
+
+    boolean hasRoom() {
+        return writePosition + RECORD_SIZE <= capacity;
+    }
+
+    boolean isHalfFull() {
+        return writePosition - HEADER_SIZE > (capacity - HEADER_SIZE) / 2;
+    }
+
+    // Вызывается под блокировкой журнала в InMemoryBalanceEngine
+    void append(JournalRecord record) {
+        int position = (int) writePosition;
+        buffer.putInt(position, RECORD_MAGIC);
+        buffer.putInt(position + 4, generation);
+        putUuid(position + 8, record.transactionId());
+        putUuid(position + 24, record.fromCard());
+        putUuid(position + 40, record.toCard());
+        buffer.putLong(position + 56, record.amount());
+        buffer.putLong(position + 64, ChronoUnit.MICROS.between(Instant.EPOCH, record.transactionDate()));
+        buffer.putLong(position + 72, record.balanceAfter());
+        buffer.putInt(position + 80, checksum(position));
+        if (force) {
+            buffer.force(position, RECORD_SIZE);
+        }
+        writePosition = position + RECORD_SIZE;
+    }
+
+    List<JournalRecord> read(long from, long to) {
+        List<JournalRecord> records = new ArrayList<>();
+        for (long position = from; position < to; position += RECORD_SIZE) {
+            JournalRecord record = readRecord(position);
+            if (record == null) {
+                throw new IllegalStateException("Balance journal is corrupted at position " + position);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    void markFlushed(long position) {
+        flushedPosition = position;
+        writeHeader();
+    }
+
+    // Вызывается, когда все записи сброшены: журнал начинается заново с новым поколением
+    void reset() {
+        if (flushedPosition != writePosition) {
+            throw new IllegalStateException("Balance journal has unflushed records");
+        }
+        generation++;
+        flushedPosition = HEADER_SIZE;
+        writePosition = HEADER_SIZE;
+        writeHeader();
+    }
+
+    @Override
+    public void close() {
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private JournalRecord readRecord(long offset) {
+        int position = (int) offset;
+        if (buffer.getInt(position) != RECORD_MAGIC
+                || buffer.getInt(position + 4) != generation
+                || buffer.getInt(position + 80) != checksum(position)) {
+            return null;
+        }
+        return new JournalRecord(
+                getUuid(position + 8),
+                getUuid(position + 24),
+                getUuid(position + 40),
+                buffer.getLong(position + 56),
+                Instant.EPOCH.plus(buffer.getLong(position + 64), ChronoUnit.MICROS),
+                buffer.getLong(position + 72));
+    }
+
+    private void writeHeader() {
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, generation);
+        buffer.putLong(12, flushedPosition);
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    private int checksum(int position) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position, 80));
+        return (int) crc.getValue();
+    }
+
+    private void putUuid(int position, UUID value) {
+        buffer.putLong(position, value.getMostSignificantBits());
+        buffer.putLong(position + 8, value.getLeastSignificantBits());
+    }
+
+    private UUID getUuid(int position) {
+        return new UUID(buffer.getLong(position), buffer.getLong(position + 8));
+    }
+}
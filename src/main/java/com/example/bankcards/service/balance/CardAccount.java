@@ -0,0 +1,24 @@
+package com.example.bankcards.service.balance;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.util.UUID;
+
+// Баланс карты в памяти; поле balance читается и меняется только под stripe-блокировкой карты.
+// status обновляется после коммита блокировки/активации карты и читается без блокировки
+final class CardAccount {
+
+    final UUID cardId;
+    final UUID userId;
+    final String last4;
+    volatile CardStatus status;
+    long balance;
+
+    CardAccount(UUID cardId, UUID userId, String last4, CardStatus status, long balance) {
+        this.cardId = cardId;
+        this.userId = userId;
+        this.last4 = last4;
+        this.status = status;
+        this.balance = balance;
+    }
+}
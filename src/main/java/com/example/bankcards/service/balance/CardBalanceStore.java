@@ -0,0 +1,153 @@
+package com.example.bankcards.service.balance;
+
+import com.example.bankcards.entity.CardStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+// Доступ к БД для InMemoryBalanceEngine: загрузка балансов и сброс журнала в cards/transactions
+@Component
+@ConditionalOnProperty(name = "balance.engine", havingValue = "in-memory")
+public class CardBalanceStore {
+
+    private static final String SELECT_ACCOUNTS = """
+            SELECT c.id, c.user_id, c.last4, c.status,
+                   c.balance + COALESCE((SELECT sum(s.balance) FROM card_balance_shards s WHERE s.card_id = c.id), 0) AS balance
+            FROM cards c
+            """;
+
+    // Повторный сброс той же записи (падение до сохранения позиции журнала) ничего не меняет:
+    // балансы двигаются, только если строка transactions действительно вставлена.
+    // Проводки датируются сбросом: запись журнала может быть старше уже продвинутых контрольных точек и оборотов
+    private static final String APPLY_TRANSFER = """
+            WITH inserted AS (
+                INSERT INTO transactions (id, status, amount, from_card, from_card_last4, to_card, to_card_last4,
+                                          transaction_date, balance_after)
+                SELECT ?, 'SUCCESS', ?, f.id, f.last4, t.id, t.last4, ?, ?
+                FROM cards f, cards t
+                WHERE f.id = ? AND t.id = ?
+                ON CONFLICT DO NOTHING
+                RETURNING id, amount, from_card, to_card, transaction_date
+            ), postings AS (
+                INSERT INTO ledger_postings (id, transaction_id, card_id, amount, posted_at)
+                SELECT gen_random_uuid(), id, from_card, -amount, ? FROM inserted
+                UNION ALL
+                SELECT gen_random_uuid(), id, to_card, amount, ? FROM inserted
+            ), debit AS (
+                UPDATE cards SET balance = balance - (SELECT amount FROM inserted), version = version + 1
+                WHERE id = ? AND EXISTS (SELECT 1 FROM inserted)
+            )
+            UPDATE cards SET balance = balance + (SELECT amount FROM inserted), version = version + 1
+            WHERE id = ? AND EXISTS (SELECT 1 FROM inserted)
+            """;
+
+    // Перевод на ту же карту баланс не меняет, записываются только транзакция и проводки
+    private static final String APPLY_SELF_TRANSFER = """
+            WITH inserted AS (
+                INSERT INTO transactions (id, status, amount, from_card, from_card_last4, to_card, to_card_last4,
+                                          transaction_date, balance_after)
+                SELECT ?, 'SUCCESS', ?, c.id, c.last4, c.id, c.last4, ?, ?
+                FROM cards c
+                WHERE c.id = ?
+                ON CONFLICT DO NOTHING
+                RETURNING id, amount, from_card, transaction_date
+            )
+            INSERT INTO ledger_postings (id, transaction_id, card_id, amount, posted_at)
+            SELECT gen_random_uuid(), id, from_card, -amount, ? FROM inserted
+            UNION ALL
+            SELECT gen_random_uuid(), id, from_card, amount, ? FROM inserted
+            """;
+
+    private static final String TRANSACTION_EXISTS = "SELECT EXISTS (SELECT 1 FROM transactions WHERE id = ?)";
+
+    private static final String PARK = """
+            INSERT INTO balance_journal_failures (transaction_id, from_card, to_card, amount, transaction_date,
+                                                  balance_after, reason, failed_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final RowMapper<CardAccount> ACCOUNT_MAPPER = (rs, rowNum) -> new CardAccount(
+            rs.getObject("id", UUID.class),
+            rs.getObject("user_id", UUID.class),
+            rs.getString("last4"),
+            CardStatus.valueOf(rs.getString("status")),
+            rs.getLong("balance"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CardBalanceStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    List<CardAccount> loadAll() {
+        return jdbcTemplate.query(SELECT_ACCOUNTS, ACCOUNT_MAPPER);
+    }
+
+    Optional<CardAccount> load(UUID cardId) {
+        return jdbcTemplate.query(SELECT_ACCOUNTS + " WHERE c.id = ?", ACCOUNT_MAPPER, cardId).stream().findFirst();
+    }
+
+    // Возвращает записи, которые не удалось провести: строки transactions нет, значит одной из карт уже нет
+    List<JournalRecord> apply(List<JournalRecord> records, Instant postedAt) {
+        OffsetDateTime posted = postedAt.atOffset(ZoneOffset.UTC);
+        List<JournalRecord> transfers = records.stream()
+                .filter(record -> !Objects.equals(record.fromCard(), record.toCard()))
+                .toList();
+        List<JournalRecord> selfTransfers = records.stream()
+                .filter(record -> Objects.equals(record.fromCard(), record.toCard()))
+                .toList();
+
+        return transactionTemplate.execute(status -> {
+            List<JournalRecord> notApplied = new ArrayList<>();
+            if (!transfers.isEmpty()) {
+                int[] updated = jdbcTemplate.batchUpdate(APPLY_TRANSFER, transfers.stream()
+                        .map(record -> new Object[]{
+                                record.transactionId(), record.amount(), record.transactionDate().atOffset(ZoneOffset.UTC),
+                                record.balanceAfter(), record.fromCard(), record.toCard(), posted, posted,
+                                record.fromCard(), record.toCard()})
+                        .toList());
+                collectNotApplied(transfers, updated, notApplied);
+            }
+            if (!selfTransfers.isEmpty()) {
+                int[] updated = jdbcTemplate.batchUpdate(APPLY_SELF_TRANSFER, selfTransfers.stream()
+                        .map(record -> new Object[]{
+                                record.transactionId(), record.amount(), record.transactionDate().atOffset(ZoneOffset.UTC),
+                                record.balanceAfter(), record.fromCard(), posted, posted})
+                        .toList());
+                collectNotApplied(selfTransfers, updated, notApplied);
+            }
+            return notApplied;
+        });
+    }
+
+    void park(JournalRecord record, String reason) {
+        jdbcTemplate.update(PARK, record.transactionId(), record.fromCard(), record.toCard(), record.amount(),
+                record.transactionDate().atOffset(ZoneOffset.UTC), record.balanceAfter(), reason,
+                OffsetDateTime.now(ZoneOffset.UTC));
+    }
+
+    // 0 строк - либо повтор уже сброшенной записи, либо карты нет; различаем по наличию транзакции
+    private void collectNotApplied(List<JournalRecord> records, int[] updated, List<JournalRecord> notApplied) {
+        for (int i = 0; i < records.size(); i++) {
+            if (updated[i] == 0 && !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    TRANSACTION_EXISTS, Boolean.class, records.get(i).transactionId()))) {
+                notApplied.add(records.get(i));
+            }
+        }
+    }
+}
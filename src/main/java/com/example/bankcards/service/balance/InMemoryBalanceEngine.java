@@ -0,0 +1,294 @@
+package com.example.bankcards.service.balance;
+
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.exception.NotEnoughBalanceException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.util.DataAccessUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Балансы карт в памяти - источник истины. Перевод: stripe-блокировки обеих карт в порядке индекса,
+// проверка баланса, запись в журнал, изменение балансов. В cards/transactions изменения
+// попадают фоновым сбросом журнала. При старте сначала дописывается в БД хвост журнала,
+// затем балансы загружаются из cards.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "balance.engine", havingValue = "in-memory")
+public class InMemoryBalanceEngine implements BalanceEngine {
+
+    private static final int MAX_REASON_LENGTH = 256;
+
+    private final CardBalanceStore store;
+    private final Path journalPath;
+    private final int journalSizeBytes;
+    private final boolean forceJournal;
+    private final long flushIntervalMs;
+    private final int flushBatchSize;
+    private final boolean asyncTransfersEnabled;
+
+    private final Map<UUID, CardAccount> accounts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private BalanceJournal journal;
+    private ScheduledExecutorService flusher;
+
+    public InMemoryBalanceEngine(CardBalanceStore store,
+                                 @Value("${balance.in-memory.journal-path}") String journalPath,
+                                 @Value("${balance.in-memory.journal-size-mb}") int journalSizeMb,
+                                 @Value("${balance.in-memory.force-journal}") boolean forceJournal,
+                                 @Value("${balance.in-memory.flush-interval-ms}") long flushIntervalMs,
+                                 @Value("${balance.in-memory.flush-batch-size}") int flushBatchSize,
+                                 @Value("${balance.in-memory.stripes}") int stripes,
+                                 @Value("${transfer.async.enabled}") boolean asyncTransfersEnabled) {
+        this.store = store;
+        this.journalPath = Path.of(journalPath);
+        // MappedByteBuffer адресуется int, журнал больше 2 ГБ не отобразить
+        long sizeBytes = journalSizeMb * 1024L * 1024;
+        if (sizeBytes < BalanceJournal.HEADER_SIZE + BalanceJournal.RECORD_SIZE || sizeBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("balance.in-memory.journal-size-mb must be between 1 and 2047, got " + journalSizeMb);
+        }
+        this.journalSizeBytes = (int) sizeBytes;
+        this.forceJournal = forceJournal;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+        this.asyncTransfersEnabled = asyncTransfersEnabled;
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, stripes - 1)) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        // Воркер асинхронных переводов меняет cards напрямую и разошелся бы с балансами в памяти
+        if (asyncTransfersEnabled) {
+            throw new IllegalStateException("balance.engine=in-memory cannot be combined with transfer.async.enabled=true");
+        }
+        journal = new BalanceJournal(journalPath, journalSizeBytes, forceJournal);
+        long pending = (journal.writePosition() - journal.flushedPosition()) / BalanceJournal.RECORD_SIZE;
+        if (pending > 0) {
+            log.info("Replaying {} unflushed balance journal records", pending);
+        }
+        flush();
+
+        store.loadAll().forEach(account -> accounts.put(account.cardId, account));
+        log.info("In-memory balance engine loaded {} cards", accounts.size());
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+        journal.close();
+    }
+
+    @Override
+    public Transaction transfer(UUID userId, UUID fromCard, UUID toCard, long amount) {
+        CardAccount from = ownedAccount(fromCard, userId).orElseThrow(() -> {
+            log.warn("User transfer error: sender card '{}' not found or not yours", fromCard);
+            return new NotFoundException("sender card not found or not yours");
+        });
+        CardAccount to = ownedAccount(toCard, userId).orElseThrow(() -> {
+            log.warn("User transfer error: Receiver card '{}' not found or not yours", toCard);
+            return new NotFoundException("receiver card not found or not yours");
+        });
+
+        int first = stripe(from.cardId);
+        int second = stripe(to.cardId);
+        ReentrantLock lowLock = stripes[Math.min(first, second)];
+        ReentrantLock highLock = stripes[Math.max(first, second)];
+        lowLock.lock();
+        if (highLock != lowLock) {
+            highLock.lock();
+        }
+        try {
+            if (from.status != CardStatus.ACTIVE) {
+                log.warn("Perform transfer transaction error: sender card '{}' is not active", from.cardId);
+                throw new ConflictException("sender card is not active");
+            }
+            if (to.status != CardStatus.ACTIVE) {
+                log.warn("Perform transfer transaction error: receiver card '{}' is not active", to.cardId);
+                throw new ConflictException("receiver card is not active");
+            }
+            if (from.balance < amount) {
+                log.warn("Perform transfer transaction error: not enough balance for transaction");
+                throw new NotEnoughBalanceException("not enough balance for transaction");
+            }
+
+            long newBalance = from.balance - amount;
+            JournalRecord record = new JournalRecord(UUID.randomUUID(), from.cardId, to.cardId, amount,
+                    Instant.now().truncatedTo(ChronoUnit.MICROS), newBalance);
+            // Сначала журнал: если запись не удалась, балансы не меняются
+            append(record);
+            from.balance = newBalance;
+            to.balance += amount;
+
+            return Transaction.builder()
+                    .id(record.transactionId())
+                    .status(TransactionStatus.SUCCESS)
+                    .amount(amount)
+                    .fromCard(from.cardId)
+                    .fromCardLast4(from.last4)
+                    .toCard(to.cardId)
+                    .toCardLast4(to.last4)
+                    .transactionDate(record.transactionDate())
+                    .balanceAfter(newBalance)
+                    .build();
+        } finally {
+            if (highLock != lowLock) {
+                highLock.unlock();
+            }
+            lowLock.unlock();
+        }
+    }
+
+    @Override
+    public long balance(UUID cardId) {
+        CardAccount account = account(cardId).orElseThrow(() -> new NotFoundException("card not found"));
+        ReentrantLock lock = stripes[stripe(cardId)];
+        lock.lock();
+        try {
+            return account.balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Удаленная карта убирается из памяти; карта, которой еще нет в памяти, подгрузится при обращении
+    @Override
+    public void refreshCard(UUID cardId) {
+        Optional<CardAccount> loaded = store.load(cardId);
+        if (loaded.isEmpty()) {
+            accounts.remove(cardId);
+            return;
+        }
+        CardAccount account = accounts.get(cardId);
+        if (account != null) {
+            account.status = loaded.get().status;
+        }
+    }
+
+    // Сбрасывает в БД все записи журнала, сделанные до вызова
+    public void flush() {
+        flushLock.lock();
+        try {
+            long end = journal.writePosition();
+            long position = journal.flushedPosition();
+            while (position < end) {
+                long batchEnd = Math.min(end, position + (long) flushBatchSize * BalanceJournal.RECORD_SIZE);
+                applyOrPark(journal.read(position, batchEnd));
+                journal.markFlushed(batchEnd);
+                position = batchEnd;
+            }
+            // Журнал пуст и заполнен больше чем наполовину - начинаем с начала, не дожидаясь переполнения
+            if (journal.isHalfFull() && journalLock.tryLock()) {
+                try {
+                    if (journal.flushedPosition() == journal.writePosition()) {
+                        journal.reset();
+                    }
+                } finally {
+                    journalLock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Ошибка, которую повтор не исправит (карта удалена, нарушено ограничение), иначе останавливала бы сброс навсегда.
+    // Пачка откатывается и проводится по одной записи; сбойная запись откладывается в balance_journal_failures
+    private void applyOrPark(List<JournalRecord> records) {
+        try {
+            store.apply(records, Instant.now()).forEach(record -> park(record, "card no longer exists"));
+        } catch (DataAccessException ex) {
+            if (DataAccessUtil.isRetryable(ex)) {
+                throw ex;
+            }
+            if (records.size() == 1) {
+                park(records.get(0), DataAccessUtil.reason(ex, MAX_REASON_LENGTH));
+                return;
+            }
+            log.warn("Balance journal batch of {} records failed, applying one by one", records.size(), ex);
+            records.forEach(record -> applyOrPark(List.of(record)));
+        }
+    }
+
+    private void park(JournalRecord record, String reason) {
+        log.error("Balance journal record '{}' cannot be applied and is parked: {}", record.transactionId(), reason);
+        store.park(record, reason);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.error("Balance journal flush failed, will retry", ex);
+        }
+    }
+
+    private void append(JournalRecord record) {
+        journalLock.lock();
+        try {
+            if (!journal.hasRoom()) {
+                // Журнал переполнен: сбрасываем синхронно и начинаем заново.
+                // Порядок блокировок journalLock -> flushLock, фоновый сброс берет journalLock только через tryLock
+                flush();
+                journal.reset();
+            }
+            journal.append(record);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private Optional<CardAccount> ownedAccount(UUID cardId, UUID userId) {
+        return account(cardId).filter(account -> account.userId.equals(userId));
+    }
+
+    // Карта, созданная после старта, подгружается из cards при первом обращении
+    private Optional<CardAccount> account(UUID cardId) {
+        if (cardId == null) {
+            return Optional.empty();
+        }
+        CardAccount account = accounts.get(cardId);
+        if (account != null) {
+            return Optional.of(account);
+        }
+        return store.load(cardId).map(loaded -> accounts.computeIfAbsent(cardId, id -> loaded));
+    }
+
+    private int stripe(UUID cardId) {
+        int hash = cardId.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
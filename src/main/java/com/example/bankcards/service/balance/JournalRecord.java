@@ -0,0 +1,12 @@
+package com.example.bankcards.service.balance;
+
+import java.time.Instant;
+import java.util.UUID;
+
+record JournalRecord(UUID transactionId,
+                     UUID fromCard,
+                     UUID toCard,
+                     long amount,
+                     Instant transactionDate,
+                     long balanceAfter) {
+}
@@ -2,6 +2,7 @@ package com.example.bankcards.service.card;
 
 import com.example.bankcards.dto.card.create.RequestCreateCardDto;
 import com.example.bankcards.dto.card.create.ResponseCreateCardDto;
+import com.example.bankcards.dto.card.ledger.ResponseLedgerBalanceDto;
 import com.example.bankcards.dto.card.request.ResponseBlockDto;
 import com.example.bankcards.dto.card.select.ResponseCardDto;
 import com.example.bankcards.entity.Card;
@@ -14,10 +15,13 @@ import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.repository.CardBlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.service.LedgerService;
+import com.example.bankcards.service.balance.BalanceEngine;
 import com.example.bankcards.util.SecurityUtil;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -25,10 +29,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.time.YearMonth;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -44,6 +52,10 @@ public class AdminCardService {
     private final CardRepository cardRepository;
     private final SecurityUtil securityUtil;
     private final CardMapper cardMapper;
+    private final ShardedBalanceService shardedBalanceService;
+    private final LedgerService ledgerService;
+    private final CardCache cardCache;
+    private final ObjectProvider<BalanceEngine> balanceEngine;
 
     @PreAuthorize("hasRole('ADMIN')")
     @Transactional
@@ -69,6 +81,7 @@ public class AdminCardService {
                     .build();
             try {
                 cardRepository.save(card);
+                cardCache.evictAfterCommit(userId, card.getId());
                 log.info("card created"); // TODO - нормальные логи
                 return ResponseCreateCardDto.builder()
                         .id(card.getId())
@@ -98,12 +111,15 @@ public class AdminCardService {
                     return new NotFoundException("card not found");
                 });
         cardRepository.delete(card);
+        cardCache.evictAfterCommit(card.getUserId(), card.getId());
+        refreshBalanceEngineAfterCommit(card.getId());
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('ADMIN')")
     public Page<ResponseCardDto> getAllCards(int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        return cardRepository.findAll(pageable)
+        return cardRepository.findAllViews(pageable)
                 .map(cardMapper::toDto);
     }
 
@@ -123,9 +139,11 @@ public class AdminCardService {
 
         card.setStatus(CardStatus.BLOCKED);
         cardRepository.save(card);
+        cardCache.evictAfterCommit(card.getUserId(), card.getId());
+        refreshBalanceEngineAfterCommit(card.getId());
 
         log.info("Admin '{}' blocked card '{}'", email, cardId);
-        return cardMapper.toDto(card);
+        return cardMapper.toDto(card, shardedBalanceService.totalBalance(card));
     }
 
     @Transactional
@@ -144,15 +162,18 @@ public class AdminCardService {
 
         card.setStatus(CardStatus.ACTIVE);
         cardRepository.save(card);
+        cardCache.evictAfterCommit(card.getUserId(), card.getId());
+        refreshBalanceEngineAfterCommit(card.getId());
 
         log.info("Admin '{}' activated card '{}'", email, cardId);
-        return cardMapper.toDto(card);
+        return cardMapper.toDto(card, shardedBalanceService.totalBalance(card));
     }
 
+    @Transactional(readOnly = true)
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseCardDto findCardById(UUID cardId) {
         String email = securityUtil.getCurrentUsername();
-        Card card = cardRepository.findById(cardId)
+        CardView card = cardRepository.findViewById(cardId)
                 .orElseThrow(() -> {
                     log.warn("Searching error: card with id '{}' not found", cardId);
                     return new NotFoundException("card not found");
@@ -160,6 +181,51 @@ public class AdminCardService {
         return cardMapper.toDto(card);
     }
 
+    @Transactional
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseCardDto setBalanceShards(UUID cardId, int shards) {
+        String email = securityUtil.getCurrentUsername();
+        Card card = cardRepository.findAllByIdInForUpdate(List.of(cardId)).stream()
+                .findFirst()
+                .orElseThrow(() -> {
+                    log.warn("Balance sharding error: card with id '{}' not found", cardId);
+                    return new NotFoundException("card not found");
+                });
+
+        shardedBalanceService.reshard(card, shards);
+        cardRepository.save(card);
+        cardCache.evictAfterCommit(card.getUserId(), card.getId());
+
+        log.info("Admin '{}' set {} balance shards for card '{}'", email, shards, cardId);
+        return cardMapper.toDto(card, shardedBalanceService.totalBalance(card));
+    }
+
+    // Сверка баланса карты с суммой проводок: checkpoint + хвост ledger_postings
+    @Transactional
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseLedgerBalanceDto reconcileLedger(UUID cardId) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> {
+                    log.warn("Ledger reconciliation error: card with id '{}' not found", cardId);
+                    return new NotFoundException("card not found");
+                });
+
+        long cardBalance = shardedBalanceService.totalBalance(card);
+        long ledgerBalance = ledgerService.ledgerBalance(cardId);
+        boolean consistent = cardBalance == ledgerBalance;
+        if (!consistent) {
+            log.warn("Ledger mismatch for card '{}': card balance {}, ledger balance {}", cardId, cardBalance, ledgerBalance);
+        }
+
+        return ResponseLedgerBalanceDto.builder()
+                .cardId(card.getId())
+                .maskedCard(getMasked(card.getLast4()))
+                .cardBalance(cardBalance)
+                .ledgerBalance(ledgerBalance)
+                .consistent(consistent)
+                .build();
+    }
+
     @Transactional
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseBlockDto approveBlockRequest(UUID requestId) {
@@ -183,6 +249,8 @@ public class AdminCardService {
 
         card.setStatus(CardStatus.BLOCKED);
         cardRepository.save(card);
+        cardCache.evictAfterCommit(card.getUserId(), card.getId());
+        refreshBalanceEngineAfterCommit(card.getId());
 
         request.setStatus(RequestStatus.APPROVED);
         request.setProcessedAt(Instant.now());
@@ -214,6 +282,24 @@ public class AdminCardService {
         return YearMonth.now().plusYears(CARD_VALIDITY_YEARS).getYear() % 100;
     }
 
+    // Движок балансов в памяти проверяет статус карты без запроса в БД и узнает об изменении после коммита
+    private void refreshBalanceEngineAfterCommit(UUID cardId) {
+        BalanceEngine engine = balanceEngine.getIfAvailable();
+        if (engine == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            engine.refreshCard(cardId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                engine.refreshCard(cardId);
+            }
+        });
+    }
+
     public String getMasked(String last4) {
         return "**** **** **** " + last4;
     }
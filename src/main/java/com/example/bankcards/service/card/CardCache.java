@@ -0,0 +1,139 @@
+package com.example.bankcards.service.card;
+
+import com.example.bankcards.dto.card.select.ResponseCardDto;
+import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Кеш карт и балансов для чтения пользователем.
+// Карты и балансы хранятся как future: загрузка идет в потоке запроса уже после того, как future попал в кеш,
+// а не внутри ConcurrentHashMap.compute, где запрос к БД держал бы блокировку корзины (и закреплял бы
+// виртуальный поток на несущем). Инвалидация удаляет и незавершенный future, поэтому значение,
+// прочитанное до коммита перевода, в кеше не останется.
+@Component
+public class CardCache {
+
+    // Сколько разных страниц списка карт хранить на одного пользователя
+    private static final int MAX_PAGES_PER_USER = 16;
+
+    private final AsyncCache<UUID, Owned<ResponseCardDto>> cards;
+    private final AsyncCache<UUID, Owned<ResponseBalanceDto>> balances;
+    private final Cache<UUID, ConcurrentMap<Pageable, Page<ResponseCardDto>>> userCards;
+    private final List<Consumer<UUID>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    public CardCache(MeterRegistry meterRegistry,
+                     @Value("${cache.cards.max-size}") long maxSize,
+                     @Value("${cache.cards.ttl}") Duration ttl) {
+        this.cards = builder(maxSize, ttl).buildAsync();
+        this.balances = builder(maxSize, ttl).buildAsync();
+        this.userCards = builder(maxSize, ttl).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cards, "cards");
+        CaffeineCacheMetrics.monitor(meterRegistry, balances, "card-balances");
+        CaffeineCacheMetrics.monitor(meterRegistry, userCards, "user-cards");
+    }
+
+    public ResponseCardDto getCard(UUID cardId, UUID userId, Supplier<ResponseCardDto> loader) {
+        return get(cards, cardId, userId, loader);
+    }
+
+    public ResponseBalanceDto getBalance(UUID cardId, UUID userId, Supplier<ResponseBalanceDto> loader) {
+        return get(balances, cardId, userId, loader);
+    }
+
+    public Page<ResponseCardDto> getUserCards(UUID userId, Pageable pageable, Supplier<Page<ResponseCardDto>> loader) {
+        ConcurrentMap<Pageable, Page<ResponseCardDto>> pages = userCards.get(userId, id -> new ConcurrentHashMap<>());
+        Page<ResponseCardDto> page = pages.get(pageable);
+        if (page != null) {
+            return page;
+        }
+        page = loader.get();
+        if (pages.size() < MAX_PAGES_PER_USER) {
+            pages.putIfAbsent(pageable, page);
+        }
+        return page;
+    }
+
+    // Вызывается после каждого закоммиченного изменения карт пользователя
+    public void addEvictionListener(Consumer<UUID> listener) {
+        evictionListeners.add(listener);
+    }
+
+    // Сброс после коммита: до него другие транзакции все равно видят старые данные
+    public void evictAfterCommit(UUID userId, UUID... cardIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId, cardIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId, cardIds);
+            }
+        });
+    }
+
+    private void evict(UUID userId, UUID... cardIds) {
+        for (UUID cardId : cardIds) {
+            cards.synchronous().invalidate(cardId);
+            balances.synchronous().invalidate(cardId);
+        }
+        userCards.invalidate(userId);
+        evictionListeners.forEach(listener -> listener.accept(userId));
+    }
+
+    // Загрузчик проверяет владельца, поэтому значение в кеше доступно только тому, кто его загрузил
+    private <T> T get(AsyncCache<UUID, Owned<T>> cache, UUID cardId, UUID userId, Supplier<T> loader) {
+        CompletableFuture<Owned<T>> created = new CompletableFuture<>();
+        CompletableFuture<Owned<T>> future = cache.get(cardId, (id, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(new Owned<>(userId, loader.get()));
+            } catch (RuntimeException e) {
+                // Future с ошибкой Caffeine удаляет сам
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        Owned<T> owned;
+        try {
+            owned = future.join();
+        } catch (CompletionException e) {
+            // Параллельная загрузка упала - загружаем сами, чтобы получить свое исключение или значение
+            return loader.get();
+        }
+        if (!owned.userId().equals(userId)) {
+            return loader.get();
+        }
+        return owned.value();
+    }
+
+    private static Caffeine<Object, Object> builder(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats();
+    }
+
+    private record Owned<T>(UUID userId, T value) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bankcards.service.card;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.CardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Баланс горячей карты = cards.balance + сумма card_balance_shards.
+// Зачисления идут в случайный шард без блокировки строки карты, списания при нехватке
+// сначала сворачивают шарды в cards.balance под блокировкой карты.
+@Slf4j
+@Service
+public class ShardedBalanceService {
+
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxShards;
+    // Подсказка для маршрутизации зачислений: id горячей карты -> число шардов.
+    // Может отставать: шард без строки не обновится и зачисление уйдет в cards.balance
+    private volatile Map<UUID, Integer> hotCards = Map.of();
+
+    public ShardedBalanceService(CardRepository cardRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${transfer.hot-cards.max-shards}") int maxShards) {
+        this.cardRepository = cardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxShards = maxShards;
+    }
+
+    public boolean isHot(UUID cardId) {
+        return cardId != null && hotCards.containsKey(cardId);
+    }
+
+    // true - сумма зачислена в шард, false - карта не горячая и вызывающий зачисляет сам
+    public boolean creditShard(UUID cardId, long amount) {
+        Integer shards = hotCards.get(cardId);
+        if (shards == null) {
+            return false;
+        }
+        return cardRepository.creditShard(cardId, ThreadLocalRandom.current().nextInt(shards), amount) > 0;
+    }
+
+    // Карта должна быть заблокирована вызывающей транзакцией
+    public void ensureAvailable(Card card, long amount) {
+        if (card.getBalanceShards() > 0 && card.getBalance() < amount) {
+            fold(card);
+        }
+    }
+
+    public void fold(Card card) {
+        long total = cardRepository.lockShardsTotal(card.getId());
+        if (total != 0) {
+            cardRepository.resetShards(card.getId());
+            card.setBalance(card.getBalance() + total);
+        }
+    }
+
+    public long totalBalance(Card card) {
+        if (card.getBalanceShards() == 0) {
+            return card.getBalance();
+        }
+        return card.getBalance() + cardRepository.sumShards(card.getId());
+    }
+
+    // Карта должна быть заблокирована вызывающей транзакцией
+    public void reshard(Card card, int shards) {
+        if (shards < 0 || shards > maxShards) {
+            throw new BadRequestException("shards must be between 0 and " + maxShards);
+        }
+        if (card.getBalanceShards() > 0) {
+            fold(card);
+            cardRepository.deleteShards(card.getId());
+        }
+        if (shards > 0) {
+            cardRepository.createShards(card.getId(), shards);
+        }
+        card.setBalanceShards(shards);
+
+        Map<UUID, Integer> updated = new HashMap<>(hotCards);
+        if (shards > 0) {
+            updated.put(card.getId(), shards);
+        } else {
+            updated.remove(card.getId());
+        }
+        hotCards = Map.copyOf(updated);
+    }
+
+    // Периодически переносит накопленное в шардах в cards.balance, каждая карта в своей короткой транзакции
+    @Scheduled(fixedDelayString = "${transfer.hot-cards.fold-interval-ms}")
+    public void foldHotCards() {
+        List<Card> cards = cardRepository.findAllByBalanceShardsGreaterThan(0);
+        Map<UUID, Integer> updated = new HashMap<>();
+        for (Card card : cards) {
+            updated.put(card.getId(), card.getBalanceShards());
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        cardRepository.findAllByIdInForUpdate(List.of(card.getId())).forEach(this::fold));
+            } catch (RuntimeException ex) {
+                log.warn("Folding balance shards of card '{}' failed, will retry", card.getId(), ex);
+            }
+        }
+        hotCards = Map.copyOf(updated);
+    }
+}
@@ -12,13 +12,16 @@ import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.repository.CardBlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.service.balance.BalanceEngine;
 import com.example.bankcards.util.SecurityUtil;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -32,6 +35,8 @@ public class UserCardService {
     private final SecurityUtil securityUtil;
     private final CardRepository cardRepository;
     private final CardBlockRequestRepository blockRequestRepository;
+    private final CardCache cardCache;
+    private final ObjectProvider<BalanceEngine> balanceEngine;
 
     @Transactional
     public ResponseBlockDto requestBlock(UUID cardId, RequestBlockDto dto) {
@@ -67,15 +72,35 @@ public class UserCardService {
                 .build();
     }
 
+    // С движком в памяти cards.balance отстает до сброса журнала: карты читаются мимо кеша,
+    // баланс берется из движка, как в TransactionService.checkBalanceByUser
+    @Transactional(readOnly = true)
     public Page<ResponseCardDto> getAllUserCards(Pageable pageable) {
         UUID userId = securityUtil.getCurrentUserId();
-        Page<Card> cardsPage = cardRepository.findAllByUserId(userId, pageable);
-        return cardsPage.map(cardMapper::toDto);
+        BalanceEngine engine = balanceEngine.getIfAvailable();
+        if (engine != null) {
+            return loadUserCards(userId, pageable).map(card -> withEngineBalance(engine, card));
+        }
+        return cardCache.getUserCards(userId, pageable, () -> loadUserCards(userId, pageable));
     }
 
+    @Transactional(readOnly = true)
     public ResponseCardDto getCardById(UUID cardId) {
         UUID userId = securityUtil.getCurrentUserId();
-        Card card = cardRepository.findByIdAndUserId(cardId, userId)
+        BalanceEngine engine = balanceEngine.getIfAvailable();
+        if (engine != null) {
+            return withEngineBalance(engine, loadCard(cardId, userId));
+        }
+        return cardCache.getCard(cardId, userId, () -> loadCard(cardId, userId));
+    }
+
+    private Page<ResponseCardDto> loadUserCards(UUID userId, Pageable pageable) {
+        Page<CardView> cardsPage = cardRepository.findViewsByUserId(userId, pageable);
+        return cardsPage.map(cardMapper::toDto);
+    }
+
+    private ResponseCardDto loadCard(UUID cardId, UUID userId) {
+        CardView card = cardRepository.findViewByIdAndUserId(cardId, userId)
                 .orElseThrow(() -> {
                     log.warn("Getting card by id error: card with id '{}' not found", cardId);
                     return new NotFoundException("card not found");
@@ -83,6 +108,11 @@ public class UserCardService {
         return cardMapper.toDto(card);
     }
 
+    private ResponseCardDto withEngineBalance(BalanceEngine engine, ResponseCardDto card) {
+        card.setBalance(engine.balance(card.getId()));
+        return card;
+    }
+
     public String getMasked(String last4) {
         return "**** **** **** " + last4;
     }
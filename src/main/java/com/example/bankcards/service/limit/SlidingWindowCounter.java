@@ -0,0 +1,106 @@
+package com.example.bankcards.service.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Сумма и число переводов по ключу (карта или пользователь) в скользящем окне.
+// Окно разбито на корзины одинаковой длины, корзина помнит номер своего интервала и
+// переиспользуется по кругу. Обновление корзины - CAS неизменяемого значения, без блокировок.
+final class SlidingWindowCounter {
+
+    record Limit(long maxAmount, long maxCount) {
+        boolean isUnlimited() {
+            return maxAmount <= 0 && maxCount <= 0;
+        }
+
+        boolean isExceeded(long amount, long count) {
+            return (maxAmount > 0 && amount > maxAmount) || (maxCount > 0 && count > maxCount);
+        }
+    }
+
+    private record Bucket(long slot, long amount, long count) {
+    }
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final Cache<UUID, AtomicReferenceArray<Bucket>> windows;
+
+    SlidingWindowCounter(Duration window, int buckets) {
+        this.buckets = buckets;
+        this.bucketMillis = window.toMillis() / buckets;
+        // У ключа без переводов дольше окна все корзины устарели, его можно выбросить
+        this.windows = Caffeine.newBuilder()
+                .expireAfterAccess(window)
+                .build();
+    }
+
+    // Перевод учитывается сразу, и если окно после этого превышает лимит - учет откатывается.
+    // Параллельные переводы не проходят оба сверх лимита; в худшем случае оба получат отказ
+    boolean tryAcquire(UUID key, long amount, Limit limit, long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        AtomicReferenceArray<Bucket> window = windows.get(key, k -> new AtomicReferenceArray<>(buckets));
+        update(window, slot, amount, 1);
+        if (limit.isExceeded(sum(window, slot, true), sum(window, slot, false))) {
+            update(window, slot, -amount, -1);
+            return false;
+        }
+        return true;
+    }
+
+    void release(UUID key, long amount, long acquiredAtMillis) {
+        AtomicReferenceArray<Bucket> window = windows.getIfPresent(key);
+        if (window != null) {
+            update(window, acquiredAtMillis / bucketMillis, -amount, -1);
+        }
+    }
+
+    // Восстановление окна из переводов, уже записанных в БД
+    void add(UUID key, long amount, long atMillis) {
+        AtomicReferenceArray<Bucket> window = windows.get(key, k -> new AtomicReferenceArray<>(buckets));
+        update(window, atMillis / bucketMillis, amount, 1);
+    }
+
+    long amount(UUID key, long nowMillis) {
+        AtomicReferenceArray<Bucket> window = windows.getIfPresent(key);
+        return window == null ? 0 : sum(window, nowMillis / bucketMillis, true);
+    }
+
+    long count(UUID key, long nowMillis) {
+        AtomicReferenceArray<Bucket> window = windows.getIfPresent(key);
+        return window == null ? 0 : sum(window, nowMillis / bucketMillis, false);
+    }
+
+    private void update(AtomicReferenceArray<Bucket> window, long slot, long amount, long count) {
+        int index = (int) (slot % buckets);
+        while (true) {
+            Bucket current = window.get(index);
+            Bucket next;
+            if (current != null && current.slot() == slot) {
+                next = new Bucket(slot, current.amount() + amount, current.count() + count);
+            } else if ((current == null || current.slot() < slot) && amount > 0) {
+                next = new Bucket(slot, amount, count);
+            } else {
+                // Корзина уже ушла под более новый интервал: этот перевод и так выпал из окна
+                return;
+            }
+            if (window.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    private long sum(AtomicReferenceArray<Bucket> window, long slot, boolean amount) {
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            Bucket bucket = window.get(i);
+            if (bucket != null && bucket.slot() > slot - buckets && bucket.slot() <= slot) {
+                total += amount ? bucket.amount() : bucket.count();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bankcards.service.limit;
+
+import com.example.bankcards.exception.TransferLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.projection.RecentTransfer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Лимиты исходящих переводов по карте и по пользователю за час и за сутки.
+// Счетчики живут в памяти и восстанавливаются из transactions при старте, на пути перевода запросов к БД нет.
+@Slf4j
+@Service
+public class TransferLimitService {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final Duration DAY = Duration.ofDays(1);
+
+    private record Rule(String name, boolean perUser, SlidingWindowCounter counter, SlidingWindowCounter.Limit limit) {
+        UUID key(UUID userId, UUID cardId) {
+            return perUser ? userId : cardId;
+        }
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate readOnlyTemplate;
+    private final List<Rule> rules = new ArrayList<>();
+
+    public TransferLimitService(TransactionRepository transactionRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${transfer.limits.card.hourly-amount}") long cardHourlyAmount,
+                                @Value("${transfer.limits.card.hourly-count}") long cardHourlyCount,
+                                @Value("${transfer.limits.card.daily-amount}") long cardDailyAmount,
+                                @Value("${transfer.limits.card.daily-count}") long cardDailyCount,
+                                @Value("${transfer.limits.user.hourly-amount}") long userHourlyAmount,
+                                @Value("${transfer.limits.user.hourly-count}") long userHourlyCount,
+                                @Value("${transfer.limits.user.daily-amount}") long userDailyAmount,
+                                @Value("${transfer.limits.user.daily-count}") long userDailyCount) {
+        this.transactionRepository = transactionRepository;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        // Часовое окно - корзины по минуте, суточное - по 15 минут
+        addRule("card hourly", false, HOUR, 60, cardHourlyAmount, cardHourlyCount);
+        addRule("card daily", false, DAY, 96, cardDailyAmount, cardDailyCount);
+        addRule("user hourly", true, HOUR, 60, userHourlyAmount, userHourlyCount);
+        addRule("user daily", true, DAY, 96, userDailyAmount, userDailyCount);
+    }
+
+    private void addRule(String name, boolean perUser, Duration window, int buckets, long maxAmount, long maxCount) {
+        SlidingWindowCounter.Limit limit = new SlidingWindowCounter.Limit(maxAmount, maxCount);
+        if (!limit.isUnlimited()) {
+            rules.add(new Rule(name, perUser, new SlidingWindowCounter(window, buckets), limit));
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (rules.isEmpty()) {
+            return;
+        }
+        Instant since = Instant.now().minus(DAY);
+        Long restored = readOnlyTemplate.execute(status -> {
+            long count = 0;
+            try (Stream<RecentTransfer> transfers = transactionRepository.streamOutgoingSince(since)) {
+                for (RecentTransfer transfer : (Iterable<RecentTransfer>) transfers::iterator) {
+                    long at = transfer.transactionDate().toEpochMilli();
+                    for (Rule rule : rules) {
+                        rule.counter().add(rule.key(transfer.userId(), transfer.cardId()), transfer.amount(), at);
+                    }
+                    count++;
+                }
+            }
+            return count;
+        });
+        log.info("Transfer limit counters restored from {} transfers since {}", restored, since);
+    }
+
+    // Учитывает перевод во всех окнах или бросает исключение, ничего не учтя.
+    // Внутри транзакции учет снимается при откате; вне ее при ошибке нужно вызвать release.
+    // Возвращает момент учета для release
+    public long acquire(UUID userId, UUID cardId, long amount) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            if (!rule.counter().tryAcquire(rule.key(userId, cardId), amount, rule.limit(), now)) {
+                release(userId, cardId, amount, now, i);
+                log.warn("Transfer limit error: {} limit exceeded for card '{}'", rule.name(), cardId);
+                throw new TransferLimitExceededException(rule.name() + " transfer limit exceeded");
+            }
+        }
+        if (!rules.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(userId, cardId, amount, now);
+                    }
+                }
+            });
+        }
+        return now;
+    }
+
+    public void release(UUID userId, UUID cardId, long amount, long acquiredAt) {
+        release(userId, cardId, amount, acquiredAt, rules.size());
+    }
+
+    private void release(UUID userId, UUID cardId, long amount, long acquiredAt, int acquiredRules) {
+        for (int i = 0; i < acquiredRules; i++) {
+            Rule rule = rules.get(i);
+            rule.counter().release(rule.key(userId, cardId), amount, acquiredAt);
+        }
+    }
+}
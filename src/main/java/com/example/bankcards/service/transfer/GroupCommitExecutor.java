@@ -0,0 +1,196 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.entity.Card;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Групповой коммит: переводы из разных запросов копятся в очереди до window-micros или max-batch-size,
+// затем выполняются в одной транзакции (один COMMIT/fsync на пачку). Карты всей пачки блокируются
+// одним запросом в порядке id. Ошибка одного перевода (нет карты, мало денег) бросается до изменения
+// балансов и возвращается только его вызывающему; если же падает вся транзакция,
+// переводы пачки повторяются по одному через TransferExecutor с его повторами при конфликтах.
+// Пачка держится на пессимистичной блокировке, поэтому работает только с режимом PESSIMISTIC.
+@Slf4j
+@Component
+public class GroupCommitExecutor {
+
+    @Getter
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final int dispatchers;
+    private final TransferExecutor transferExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingTransfer<?>> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> dispatcherThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    public GroupCommitExecutor(TransferExecutor transferExecutor,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${transfer.group-commit.enabled}") boolean enabled,
+                               @Value("${transfer.group-commit.window-micros}") long windowMicros,
+                               @Value("${transfer.group-commit.max-batch-size}") int maxBatchSize,
+                               @Value("${transfer.group-commit.dispatchers}") int dispatchers) {
+        this.transferExecutor = transferExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.dispatchers = Math.max(1, dispatchers);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // OPTIMISTIC, SERIALIZABLE и ATOMIC_UPDATE молча превратились бы в блокировку всей пачки
+        if (transferExecutor.getMode() != TransferConcurrencyMode.PESSIMISTIC) {
+            throw new IllegalStateException("transfer.group-commit.enabled=true requires transfer.concurrency.mode=PESSIMISTIC, got "
+                    + transferExecutor.getMode());
+        }
+        running = true;
+        for (int i = 1; i <= dispatchers; i++) {
+            Thread thread = new Thread(this::dispatch, "group-commit-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            dispatcherThreads.add(thread);
+        }
+        log.info("Group commit enabled: window {} us, max batch {}, dispatchers {}",
+                TimeUnit.NANOSECONDS.toMicros(windowNanos), maxBatchSize, dispatchers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        dispatcherThreads.forEach(Thread::interrupt);
+        List<PendingTransfer<?>> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(pending -> pending.result.completeExceptionally(
+                new IllegalStateException("group commit executor is stopped")));
+    }
+
+    // Блокирует вызывающий поток до коммита пачки, в которую попал перевод.
+    // locker блокирует карты всей пачки одним запросом (TransactionService.lockCards)
+    public <T> T submit(Collection<UUID> cardIds,
+                        Function<Collection<UUID>, Map<UUID, Card>> locker,
+                        Function<Map<UUID, Card>, T> work) {
+        if (!running) {
+            throw new IllegalStateException("group commit executor is not running");
+        }
+        PendingTransfer<T> pending = new PendingTransfer<>(cardIds, locker, work);
+        queue.add(pending);
+        try {
+            return pending.result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                commit(collectBatch());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private List<PendingTransfer<?>> collectBatch() throws InterruptedException {
+        List<PendingTransfer<?>> batch = new ArrayList<>();
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingTransfer<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void commit(List<PendingTransfer<?>> batch) {
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<UUID, Card> cards = batch.get(0).locker.apply(batch.stream()
+                        .flatMap(pending -> pending.cardIds.stream())
+                        .toList());
+                for (PendingTransfer<?> pending : batch) {
+                    completions.add(pending.apply(cards));
+                }
+            });
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(ex);
+                return;
+            }
+            log.warn("Group commit of {} transfers failed, retrying them one by one", batch.size(), ex);
+            batch.forEach(PendingTransfer::applyAlone);
+            return;
+        }
+        // Ответы отдаются только после коммита
+        completions.forEach(Runnable::run);
+    }
+
+    private final class PendingTransfer<T> {
+
+        private final Collection<UUID> cardIds;
+        private final Function<Collection<UUID>, Map<UUID, Card>> locker;
+        private final Function<Map<UUID, Card>, T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private PendingTransfer(Collection<UUID> cardIds,
+                                Function<Collection<UUID>, Map<UUID, Card>> locker,
+                                Function<Map<UUID, Card>, T> work) {
+            this.cardIds = cardIds;
+            this.locker = locker;
+            this.work = work;
+        }
+
+        private Runnable apply(Map<UUID, Card> cards) {
+            try {
+                T value = work.apply(cards);
+                return () -> result.complete(value);
+            } catch (RuntimeException ex) {
+                return () -> result.completeExceptionally(ex);
+            }
+        }
+
+        private void applyAlone() {
+            try {
+                result.complete(transferExecutor.execute(() -> work.apply(locker.apply(cardIds))));
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.service.AsyncTransferService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Фиксированный пул воркеров, разбирающих очередь PENDING переводов.
+// Каждый воркер держит не больше одного соединения, поэтому пул Hikari не выбирается целиком.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.async.enabled", havingValue = "true")
+public class PendingTransferWorker {
+
+    private final AsyncTransferService asyncTransferService;
+    private final int workers;
+    private final long pollIntervalMs;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    public PendingTransferWorker(AsyncTransferService asyncTransferService,
+                                 @Value("${transfer.async.workers}") int workers,
+                                 @Value("${transfer.async.poll-interval-ms}") long pollIntervalMs) {
+        this.asyncTransferService = asyncTransferService;
+        this.workers = Math.max(1, workers);
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "pending-transfer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::drain);
+        }
+        log.info("Started {} pending transfer workers", workers);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void drain() {
+        while (running) {
+            int settled;
+            try {
+                settled = asyncTransferService.settleBatch();
+            } catch (RuntimeException ex) {
+                log.error("Pending transfers batch failed, will retry", ex);
+                settled = 0;
+            }
+            // Очередь пуста - ждем, иначе сразу берем следующую пачку
+            if (settled == 0 && !pause()) {
+                return;
+            }
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pollIntervalMs);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.service.transfer;
+
+public enum TransferConcurrencyMode {
+    // SELECT ... FOR UPDATE обеих карт, всегда в порядке id -> встречные переводы не дают deadlock
+    PESSIMISTIC,
+    // Чтение без блокировок, потерянные обновления ловит @Version на Card, перевод повторяется
+    OPTIMISTIC,
+    // Чтение без блокировок в SERIALIZABLE транзакции, ошибки сериализации повторяются
+    SERIALIZABLE,
+    // Списание, зачисление и запись в transactions одним CTE-запросом, проверка баланса на стороне БД
+    ATOMIC_UPDATE
+}
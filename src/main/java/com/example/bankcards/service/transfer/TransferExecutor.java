@@ -0,0 +1,92 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.exception.ConflictException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class TransferExecutor {
+
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    @Getter
+    private final TransferConcurrencyMode mode;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransferExecutor(PlatformTransactionManager transactionManager,
+                            @Value("${transfer.concurrency.mode}") TransferConcurrencyMode mode,
+                            @Value("${transfer.concurrency.max-attempts}") int maxAttempts,
+                            @Value("${transfer.concurrency.retry-backoff-ms}") long retryBackoffMs) {
+        this.mode = mode;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        if (mode == TransferConcurrencyMode.SERIALIZABLE) {
+            this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        }
+        log.info("Transfer concurrency mode: {}, max attempts: {}", mode, this.maxAttempts);
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (RuntimeException ex) {
+                if (!isConcurrencyFailure(ex)) {
+                    throw ex;
+                }
+                if (attempt >= maxAttempts) {
+                    log.warn("Transfer error: concurrency conflict in mode {} after {} attempts", mode, attempt);
+                    throw new ConflictException("transfer conflicted with a concurrent operation, try again");
+                }
+                log.debug("Transfer attempt #{} failed with concurrency conflict, retrying", attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        if (retryBackoffMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(retryBackoffMs * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("transfer interrupted, try again");
+        }
+    }
+
+    // Ошибки сериализации на COMMIT приходят не как ConcurrencyFailureException, поэтому смотрим SQLState
+    static boolean isConcurrencyFailure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlEx
+                    && (SERIALIZATION_FAILURE.equals(sqlEx.getSQLState()) || DEADLOCK_DETECTED.equals(sqlEx.getSQLState()))) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bankcards.util;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+
+public final class DataAccessUtil {
+
+    private DataAccessUtil() {
+    }
+
+    // База недоступна, таймаут или конфликт блокировок: та же операция позже может пройти
+    public static boolean isRetryable(Throwable e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    // Причина для сохранения в БД: самое глубокое исключение, обрезанное до maxLength
+    public static String reason(Throwable e, int maxLength) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        String reason = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        return reason.length() <= maxLength ? reason : reason.substring(0, maxLength);
+    }
+
+    // Нарушено именно ограничение constraintName (уникальный индекс, внешний ключ).
+    // Имя берется из исключения Hibernate, для ошибок JDBC без него - из текста ошибки PostgreSQL
+    public static boolean isConstraintViolation(Throwable e, String constraintName) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return constraintName.equalsIgnoreCase(violation.getConstraintName());
+            }
+            if (cause instanceof SQLException sqlEx && sqlEx.getMessage() != null
+                    && sqlEx.getMessage().contains("\"" + constraintName + "\"")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -1,11 +1,12 @@
 package com.example.bankcards.util;
 
 import com.example.bankcards.exception.UnauthorizedException;
-import com.example.bankcards.security.adapter.CustomUserDetails;
+import com.example.bankcards.security.adapter.UserPrincipal;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Component
@@ -13,15 +14,24 @@ public class SecurityUtil {
 
     public UUID getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails user)) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal user)) {
             throw new UnauthorizedException("User not authorized");
         }
         return user.getUserId();
     }
 
+    // Для кода вне запроса пользователя: планировщик, прогрев и т.п.
+    public Optional<UUID> findCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal user)) {
+            return Optional.empty();
+        }
+        return Optional.of(user.getUserId());
+    }
+
     public String getCurrentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails user)) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal user)) {
             throw new UnauthorizedException("User not authorized");
         }
         return user.getUsername();
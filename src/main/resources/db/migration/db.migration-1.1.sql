@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset ataraxii:2
+ALTER TABLE cards
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
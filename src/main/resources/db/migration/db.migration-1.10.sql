@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset ataraxii:11
+-- Вместо самого токена хранится SHA-256: поиск по уникальному индексу, утечка таблицы не дает рабочих токенов.
+-- Одинаковые токены (вход в одну секунду) схлопываются до одной строки
+DELETE FROM refresh_tokens a USING refresh_tokens b WHERE a.token = b.token AND a.id > b.id;
+ALTER TABLE refresh_tokens ADD COLUMN token_hash VARCHAR(64);
+UPDATE refresh_tokens SET token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex');
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_tokens DROP COLUMN token;
+CREATE UNIQUE INDEX ux_refresh_tokens_token_hash ON refresh_tokens (token_hash);
+
+-- Семейство - все токены, полученные ротацией от одного входа; revoked_at - токен использован или отозван
+ALTER TABLE refresh_tokens ADD COLUMN family_id UUID;
+UPDATE refresh_tokens SET family_id = id;
+ALTER TABLE refresh_tokens ALTER COLUMN family_id SET NOT NULL;
+ALTER TABLE refresh_tokens ADD COLUMN revoked_at timestamp;
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+CREATE INDEX idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+CREATE INDEX idx_refresh_tokens_expiry_date ON refresh_tokens (expiry_date);
@@ -0,0 +1,16 @@
+--liquibase formatted sql
+
+--changeset ataraxii:12
+-- Записи журнала InMemoryBalanceEngine, которые не удалось сбросить в cards/transactions и повтор не поможет
+-- (карта удалена, нарушено ограничение). Без внешних ключей: строка должна сохраниться и после удаления карты
+CREATE TABLE balance_journal_failures
+(
+    transaction_id   UUID PRIMARY KEY,
+    from_card        UUID         NOT NULL,
+    to_card          UUID         NOT NULL,
+    amount           BIGINT       NOT NULL,
+    transaction_date timestamp    NOT NULL,
+    balance_after    BIGINT       NOT NULL,
+    reason           VARCHAR(256) NOT NULL,
+    failed_at        timestamp    NOT NULL
+);
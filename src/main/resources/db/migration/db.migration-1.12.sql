@@ -0,0 +1,32 @@
+--liquibase formatted sql
+
+--changeset ataraxii:13
+-- Контрольные точки двигаются в порядке коммитов, а не по posted_at: posted_at берется до коммита,
+-- и проводка, закоммиченная позже отставания, оказывалась за уже сдвинутой границей.
+-- xid - транзакция, записавшая проводку. Все проводки с xid < pg_snapshot_xmin(pg_current_snapshot())
+-- уже закоммичены или откачены, поэтому граница по xid ничего не пропускает
+ALTER TABLE ledger_postings ADD COLUMN xid xid8;
+-- Существующие проводки считаются учтенными: контрольные точки ниже пересчитываются из cards
+UPDATE ledger_postings SET xid = '1';
+ALTER TABLE ledger_postings ALTER COLUMN xid SET NOT NULL;
+ALTER TABLE ledger_postings ALTER COLUMN xid SET DEFAULT pg_current_xact_id();
+
+CREATE INDEX idx_ledger_postings_card_xid ON ledger_postings (card_id, xid);
+CREATE INDEX idx_ledger_postings_xid ON ledger_postings (xid);
+DROP INDEX idx_ledger_postings_posted_brin;
+
+-- Баланс карты = balance + сумма проводок с xid >= xid_until
+ALTER TABLE card_balance_checkpoints ADD COLUMN xid_until xid8 NOT NULL DEFAULT '2';
+ALTER TABLE card_balance_checkpoints ALTER COLUMN xid_until DROP DEFAULT;
+
+-- Проводки, пропущенные границей по времени, в контрольные точки уже не попадут - пересчет из cards
+INSERT INTO card_balance_checkpoints (card_id, balance, posted_until, xid_until)
+SELECT c.id,
+       c.balance + COALESCE((SELECT sum(s.balance) FROM card_balance_shards s WHERE s.card_id = c.id), 0),
+       now(),
+       '2'
+FROM cards c
+ON CONFLICT (card_id) DO UPDATE
+    SET balance = EXCLUDED.balance,
+        posted_until = EXCLUDED.posted_until,
+        xid_until = EXCLUDED.xid_until;
@@ -0,0 +1,26 @@
+--liquibase formatted sql
+
+--changeset ataraxii:14
+-- Обороты, как и контрольные точки, сворачиваются по xid проводок, а не по posted_at
+ALTER TABLE card_turnover_progress ADD COLUMN xid_until xid8;
+
+-- Проводки до перехода на xid, которые граница по времени еще не прошла, учитываются здесь один раз
+INSERT INTO card_monthly_turnover (card_id, month, incoming_amount, incoming_count, outgoing_amount, outgoing_count)
+SELECT p.card_id,
+       CAST(date_trunc('month', p.posted_at) AS date),
+       COALESCE(sum(p.amount) FILTER (WHERE p.amount > 0), 0),
+       count(*) FILTER (WHERE p.amount > 0),
+       COALESCE(-sum(p.amount) FILTER (WHERE p.amount < 0), 0),
+       count(*) FILTER (WHERE p.amount < 0)
+FROM ledger_postings p, card_turnover_progress pr
+WHERE pr.id = 1 AND p.xid < '2' AND p.posted_at >= pr.posted_until
+GROUP BY p.card_id, CAST(date_trunc('month', p.posted_at) AS date)
+ON CONFLICT (card_id, month) DO UPDATE
+    SET incoming_amount = card_monthly_turnover.incoming_amount + EXCLUDED.incoming_amount,
+        incoming_count = card_monthly_turnover.incoming_count + EXCLUDED.incoming_count,
+        outgoing_amount = card_monthly_turnover.outgoing_amount + EXCLUDED.outgoing_amount,
+        outgoing_count = card_monthly_turnover.outgoing_count + EXCLUDED.outgoing_count;
+
+UPDATE card_turnover_progress SET xid_until = '2';
+ALTER TABLE card_turnover_progress ALTER COLUMN xid_until SET NOT NULL;
+ALTER TABLE card_turnover_progress DROP COLUMN posted_until;
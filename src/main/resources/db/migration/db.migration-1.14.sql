@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+--changeset ataraxii:15
+-- Снимок на конец дня включает проводки с xid < xid_until и posted_at < posted_until.
+-- Проводки того же дня, закоммиченные позже снимка (xid >= xid_until), добавляются при чтении
+ALTER TABLE card_balance_snapshots ADD COLUMN xid_until xid8;
+
+-- Старые снимки считались от контрольных точек с потерянными проводками - пересчет от новых контрольных точек
+UPDATE card_balance_snapshots s
+SET xid_until = COALESCE((SELECT cp.xid_until FROM card_balance_checkpoints cp WHERE cp.card_id = s.card_id), '2');
+UPDATE card_balance_snapshots s
+SET balance = COALESCE((SELECT cp.balance FROM card_balance_checkpoints cp WHERE cp.card_id = s.card_id), 0)
+        - COALESCE((SELECT sum(p.amount) FROM ledger_postings p
+                    WHERE p.card_id = s.card_id AND p.posted_at >= s.posted_until AND p.xid < s.xid_until), 0);
+
+ALTER TABLE card_balance_snapshots ALTER COLUMN xid_until SET NOT NULL;
+
+-- Контрольные точки двигаются только по xid
+ALTER TABLE card_balance_checkpoints DROP COLUMN posted_until;
@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset ataraxii:3
+CREATE TABLE idempotency_keys
+(
+    id              UUID PRIMARY KEY     DEFAULT gen_random_uuid(),
+    user_id         UUID        NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    idempotency_key VARCHAR(64) NOT NULL,
+    transaction_id  UUID,
+    created_at      timestamp   NOT NULL DEFAULT now()
+);
+
+CREATE UNIQUE INDEX ux_idempotency_keys_user_key ON idempotency_keys (user_id, idempotency_key);
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset ataraxii:4
+ALTER TABLE transactions ALTER COLUMN balance_after DROP NOT NULL;
+ALTER TABLE transactions ADD COLUMN failure_reason VARCHAR(128);
+
+-- Очередь асинхронных переводов: индекс содержит только необработанные строки
+CREATE INDEX idx_transactions_pending ON transactions (transaction_date) WHERE status = 'PENDING';
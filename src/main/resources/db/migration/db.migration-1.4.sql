@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset ataraxii:5
+-- 0 - обычная карта, N > 0 - зачисления распределяются по N строкам card_balance_shards
+ALTER TABLE cards ADD COLUMN balance_shards SMALLINT NOT NULL DEFAULT 0;
+
+CREATE TABLE card_balance_shards
+(
+    card_id UUID     NOT NULL REFERENCES cards (id) ON DELETE CASCADE,
+    shard   SMALLINT NOT NULL,
+    balance BIGINT   NOT NULL DEFAULT 0,
+    PRIMARY KEY (card_id, shard)
+);
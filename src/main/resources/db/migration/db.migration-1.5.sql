@@ -0,0 +1,31 @@
+--liquibase formatted sql
+
+--changeset ataraxii:6
+-- Двойная запись: на каждый перевод списание (amount < 0) и зачисление (amount > 0)
+CREATE TABLE ledger_postings
+(
+    id             UUID PRIMARY KEY,
+    transaction_id UUID                       NOT NULL,
+    card_id        UUID references cards (id) NOT NULL,
+    amount         BIGINT                     NOT NULL,
+    posted_at      timestamp                  NOT NULL
+);
+
+CREATE INDEX idx_ledger_postings_card_posted ON ledger_postings (card_id, posted_at);
+-- Диапазон по времени для расчета контрольных точек, BRIN почти не занимает места при вставке по порядку
+CREATE INDEX idx_ledger_postings_posted_brin ON ledger_postings USING brin (posted_at);
+
+-- Баланс карты = balance + сумма проводок с posted_at >= posted_until
+CREATE TABLE card_balance_checkpoints
+(
+    card_id      UUID PRIMARY KEY REFERENCES cards (id) ON DELETE CASCADE,
+    balance      BIGINT    NOT NULL,
+    posted_until timestamp NOT NULL
+);
+
+-- Начальные остатки: все, что было до появления журнала проводок
+INSERT INTO card_balance_checkpoints (card_id, balance, posted_until)
+SELECT c.id,
+       c.balance + COALESCE((SELECT sum(s.balance) FROM card_balance_shards s WHERE s.card_id = c.id), 0),
+       now()
+FROM cards c;
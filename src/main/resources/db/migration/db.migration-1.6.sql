@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset ataraxii:7
+-- Индексы под keyset-пагинацию истории карты: по одному на каждое направление перевода
+CREATE INDEX idx_transactions_from_card_date ON transactions (from_card, transaction_date, id);
+CREATE INDEX idx_transactions_to_card_date ON transactions (to_card, transaction_date, id);
@@ -0,0 +1,40 @@
+--liquibase formatted sql
+
+--changeset ataraxii:8 splitStatements:false
+-- transactions становится секционированной по месяцам transaction_date.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования, поэтому он (id, transaction_date).
+ALTER TABLE transactions RENAME TO transactions_legacy;
+ALTER TABLE transactions_legacy RENAME CONSTRAINT transactions_pkey TO transactions_legacy_pkey;
+
+CREATE TABLE transactions
+(
+    LIKE transactions_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    PRIMARY KEY (id, transaction_date),
+    FOREIGN KEY (from_card) REFERENCES cards (id),
+    FOREIGN KEY (to_card) REFERENCES cards (id)
+) PARTITION BY RANGE (transaction_date);
+
+-- Секции от самой старой транзакции до трех месяцев вперед; дальше их создает TransactionPartitionService
+DO $$
+DECLARE
+    month_start timestamp := date_trunc('month', coalesce((SELECT min(transaction_date) FROM transactions_legacy), now()));
+    last_month  timestamp := date_trunc('month', now()) + interval '3 months';
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_' || to_char(month_start, 'YYYY_MM'),
+                       month_start,
+                       month_start + interval '1 month');
+        month_start := month_start + interval '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO transactions SELECT * FROM transactions_legacy;
+DROP TABLE transactions_legacy;
+
+CREATE INDEX idx_transactions_pending ON transactions (transaction_date) WHERE status = 'PENDING';
+CREATE INDEX idx_transactions_from_card_date ON transactions (from_card, transaction_date, id);
+CREATE INDEX idx_transactions_to_card_date ON transactions (to_card, transaction_date, id);
+
+-- Сюда переносятся отсоединенные старые секции
+CREATE SCHEMA IF NOT EXISTS transactions_archive;
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset ataraxii:9
+-- Баланс карты на конец дня day (UTC); posted_until - граница дня, с которой суммируются последующие проводки
+CREATE TABLE card_balance_snapshots
+(
+    card_id      UUID      NOT NULL REFERENCES cards (id) ON DELETE CASCADE,
+    day          DATE      NOT NULL,
+    balance      BIGINT    NOT NULL,
+    posted_until timestamp NOT NULL,
+    PRIMARY KEY (card_id, day)
+);
@@ -0,0 +1,37 @@
+--liquibase formatted sql
+
+--changeset ataraxii:10
+CREATE TABLE card_monthly_turnover
+(
+    card_id         UUID   NOT NULL REFERENCES cards (id) ON DELETE CASCADE,
+    month           DATE   NOT NULL,
+    incoming_amount BIGINT NOT NULL DEFAULT 0,
+    incoming_count  BIGINT NOT NULL DEFAULT 0,
+    outgoing_amount BIGINT NOT NULL DEFAULT 0,
+    outgoing_count  BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (card_id, month)
+);
+
+-- Докуда проводки уже учтены в card_monthly_turnover; строка всегда одна
+CREATE TABLE card_turnover_progress
+(
+    id           SMALLINT PRIMARY KEY CHECK (id = 1),
+    posted_until timestamp NOT NULL
+);
+INSERT INTO card_turnover_progress (id, posted_until) VALUES (1, '-infinity');
+
+-- Переводы, выполненные до появления ledger_postings, учитываются один раз здесь
+INSERT INTO card_monthly_turnover (card_id, month, incoming_amount, incoming_count, outgoing_amount, outgoing_count)
+SELECT card_id, month, sum(incoming_amount), sum(incoming_count), sum(outgoing_amount), sum(outgoing_count)
+FROM (SELECT t.from_card AS card_id, CAST(date_trunc('month', t.transaction_date) AS date) AS month,
+             0 AS incoming_amount, 0 AS incoming_count, t.amount AS outgoing_amount, 1 AS outgoing_count
+      FROM transactions t
+      WHERE t.status = 'SUCCESS'
+        AND NOT EXISTS (SELECT 1 FROM ledger_postings p WHERE p.transaction_id = t.id)
+      UNION ALL
+      SELECT t.to_card, CAST(date_trunc('month', t.transaction_date) AS date),
+             t.amount, 1, 0, 0
+      FROM transactions t
+      WHERE t.status = 'SUCCESS'
+        AND NOT EXISTS (SELECT 1 FROM ledger_postings p WHERE p.transaction_id = t.id)) legs
+GROUP BY card_id, month;
@@ -0,0 +1,116 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.util.SecurityUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @Mock
+    private SecurityUtil securityUtil;
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaLagMonitor lagMonitor;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lagMonitor = new ReplicaLagMonitor(replicaJdbcTemplate, Duration.ofSeconds(5), 1000, meterRegistry);
+        routingDataSource = new ReplicaRoutingDataSource(primary, replica, lagMonitor, securityUtil);
+        lenient().when(securityUtil.findCurrentUserId()).thenReturn(Optional.of(userId));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readOnlyTransaction_replicaInSync_routesToReplica() {
+        replicaLag(0.5);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routingDataSource.determineCurrentLookupKey());
+        assertEquals(0.5, meterRegistry.get("replica.lag").gauge().value());
+    }
+
+    @Test
+    void writeTransaction_routesToPrimary() {
+        replicaLag(0.0);
+
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readOnlyTransaction_lagAboveThreshold_routesToPrimary() {
+        replicaLag(30.0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readOnlyTransaction_lagCheckFails_fallsBackToPrimary() {
+        replicaLag(0.0);
+        when(replicaJdbcTemplate.queryForObject(ReplicaLagMonitor.LAG_SQL, Double.class))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        lagMonitor.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readOnlyTransaction_beforeFirstLagCheck_routesToPrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readOnlyTransaction_userWroteRecently_readsOwnWritesFromPrimary() {
+        replicaLag(0.0);
+        lagMonitor.recordWrite(userId);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+
+        when(securityUtil.findCurrentUserId()).thenReturn(Optional.of(UUID.randomUUID()));
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    private void replicaLag(double seconds) {
+        when(replicaJdbcTemplate.queryForObject(ReplicaLagMonitor.LAG_SQL, Double.class)).thenReturn(seconds);
+        lagMonitor.checkLag();
+    }
+}
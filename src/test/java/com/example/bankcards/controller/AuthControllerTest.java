@@ -1,11 +1,14 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.token.refresh.RequestRefreshDto;
+import com.example.bankcards.dto.token.refresh.ResponseRefreshDto;
 import com.example.bankcards.dto.user.login.RequestLoginDto;
 import com.example.bankcards.dto.user.login.ResponseLoginDto;
 import com.example.bankcards.dto.user.register.RequestRegisterDto;
 import com.example.bankcards.dto.user.register.ResponseRegisterDto;
 import com.example.bankcards.exception.ConflictException;
 import com.example.bankcards.exception.LoginFailedException;
+import com.example.bankcards.exception.UnauthorizedException;
 import com.example.bankcards.security.config.JwtAuthenticationEntryPoint;
 import com.example.bankcards.security.filter.JwtAuthenticationFilter;
 import com.example.bankcards.security.service.CustomUserDetailsService;
@@ -131,4 +134,38 @@ class AuthControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    void refresh_success_returnOk() throws Exception {
+        RequestRefreshDto request = new RequestRefreshDto("refresh-token");
+
+        ResponseRefreshDto response = ResponseRefreshDto.builder()
+                .accessToken("new-access-token")
+                .refreshToken("new-refresh-token")
+                .build();
+
+        when(authService.refresh(Mockito.any(RequestRefreshDto.class)))
+                .thenReturn(response);
+
+        mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").value("new-access-token"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh-token"));
+    }
+
+    @Test
+    void refresh_reusedToken_returnUnauthorized() throws Exception {
+        RequestRefreshDto request = new RequestRefreshDto("used-refresh-token");
+
+        when(authService.refresh(Mockito.any(RequestRefreshDto.class)))
+                .thenThrow(new UnauthorizedException("refresh token reuse detected"));
+
+        mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("refresh token reuse detected"));
+    }
 }
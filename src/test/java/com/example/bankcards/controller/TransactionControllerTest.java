@@ -1,14 +1,26 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import com.example.bankcards.dto.transaction.batch.BatchTransferMode;
+import com.example.bankcards.dto.transaction.batch.ResponseBatchItemDto;
+import com.example.bankcards.dto.transaction.batch.ResponseBatchTransferDto;
+import com.example.bankcards.dto.transaction.history.ResponseTransactionPageDto;
+import com.example.bankcards.dto.transaction.statement.StatementFormat;
 import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
 import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.dto.transaction.turnover.ResponseTurnoverDto;
 import com.example.bankcards.exception.NotEnoughBalanceException;
 import com.example.bankcards.security.config.JwtAuthenticationEntryPoint;
 import com.example.bankcards.security.filter.JwtAuthenticationFilter;
 import com.example.bankcards.security.service.CustomUserDetailsService;
 import com.example.bankcards.security.service.JwtService;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.service.BalanceSnapshotService;
+import com.example.bankcards.service.BatchTransferService;
+import com.example.bankcards.service.StatementService;
+import com.example.bankcards.service.TransactionHistoryService;
 import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.service.TurnoverService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,15 +29,28 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = TransactionController.class)
@@ -53,6 +78,21 @@ public class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private BatchTransferService batchTransferService;
+
+    @MockBean
+    private TransactionHistoryService transactionHistoryService;
+
+    @MockBean
+    private StatementService statementService;
+
+    @MockBean
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @MockBean
+    private TurnoverService turnoverService;
+
     @Test
     void transfer_success() throws Exception {
 
@@ -72,7 +112,7 @@ public class TransactionControllerTest {
                 .balanceAfter(900L)
                 .build();
 
-        when(transactionService.transferByUser(any(RequestTransferDto.class))).thenReturn(responseDto);
+        when(transactionService.transferByUser(any(RequestTransferDto.class), isNull())).thenReturn(responseDto);
 
         mockMvc.perform(post("/api/transfer")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -83,7 +123,7 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.toCard").value("**** **** **** 5678"))
                 .andExpect(jsonPath("$.balanceAfter").value(900L));
 
-        verify(transactionService).transferByUser(any(RequestTransferDto.class));
+        verify(transactionService).transferByUser(any(RequestTransferDto.class), isNull());
     }
 
     @Test
@@ -97,7 +137,7 @@ public class TransactionControllerTest {
                 .amount(100L)
                 .build();
 
-        when(transactionService.transferByUser(any(RequestTransferDto.class)))
+        when(transactionService.transferByUser(any(RequestTransferDto.class), isNull()))
                 .thenThrow(new NotEnoughBalanceException("not enough balance for transaction"));
 
         mockMvc.perform(post("/api/transfer")
@@ -106,7 +146,105 @@ public class TransactionControllerTest {
                 .andExpect(status().isUnprocessableEntity())
                 .andExpect(jsonPath("$.message").value("not enough balance for transaction"));
 
-        verify(transactionService).transferByUser(any(RequestTransferDto.class));
+        verify(transactionService).transferByUser(any(RequestTransferDto.class), isNull());
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_passesKeyToService() throws Exception {
+        RequestTransferDto request = RequestTransferDto.builder()
+                .fromCard(UUID.randomUUID())
+                .toCard(UUID.randomUUID())
+                .amount(100L)
+                .build();
+
+        ResponseTransferDto responseDto = ResponseTransferDto.builder()
+                .amount(100L)
+                .balanceAfter(900L)
+                .build();
+
+        when(transactionService.transferByUser(any(RequestTransferDto.class), eq("retry-1"))).thenReturn(responseDto);
+
+        mockMvc.perform(post("/api/transfer")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balanceAfter").value(900L));
+
+        verify(transactionService).transferByUser(any(RequestTransferDto.class), eq("retry-1"));
+    }
+
+    @Test
+    void transfer_queued_returnsAccepted() throws Exception {
+        RequestTransferDto request = RequestTransferDto.builder()
+                .fromCard(UUID.randomUUID())
+                .toCard(UUID.randomUUID())
+                .amount(100L)
+                .build();
+
+        UUID transactionId = UUID.randomUUID();
+        ResponseTransferDto responseDto = ResponseTransferDto.builder()
+                .id(transactionId)
+                .status(TransactionStatus.PENDING)
+                .amount(100L)
+                .build();
+
+        when(transactionService.transferByUser(any(RequestTransferDto.class), isNull())).thenReturn(responseDto);
+
+        mockMvc.perform(post("/api/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(transactionId.toString()))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void getTransfer_success() throws Exception {
+        UUID transactionId = UUID.randomUUID();
+        ResponseTransferDto responseDto = ResponseTransferDto.builder()
+                .id(transactionId)
+                .status(TransactionStatus.SUCCESS)
+                .balanceAfter(400L)
+                .build();
+
+        when(transactionService.getTransferByUser(transactionId)).thenReturn(responseDto);
+
+        mockMvc.perform(get("/api/transfers/{transactionId}", transactionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUCCESS"))
+                .andExpect(jsonPath("$.balanceAfter").value(400L));
+    }
+
+    @Test
+    void transferBatch_bestEffort_success() throws Exception {
+        List<RequestTransferDto> request = List.of(
+                RequestTransferDto.builder().fromCard(UUID.randomUUID()).toCard(UUID.randomUUID()).amount(100L).build(),
+                RequestTransferDto.builder().fromCard(UUID.randomUUID()).toCard(UUID.randomUUID()).amount(100L).build());
+
+        ResponseBatchTransferDto responseDto = ResponseBatchTransferDto.builder()
+                .mode(BatchTransferMode.BEST_EFFORT)
+                .succeeded(1)
+                .failed(1)
+                .results(List.of(
+                        ResponseBatchItemDto.builder().index(0).status(TransactionStatus.SUCCESS).build(),
+                        ResponseBatchItemDto.builder().index(1).status(TransactionStatus.FAILED)
+                                .error("not enough balance for transaction").build()))
+                .build();
+
+        when(batchTransferService.transferBatchByUser(anyList(), eq(BatchTransferMode.BEST_EFFORT))).thenReturn(responseDto);
+
+        mockMvc.perform(post("/api/transfers/batch")
+                        .param("mode", "BEST_EFFORT")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].error").value("not enough balance for transaction"));
+
+        verify(batchTransferService).transferBatchByUser(anyList(), eq(BatchTransferMode.BEST_EFFORT));
     }
 
     @Test
@@ -128,4 +266,101 @@ public class TransactionControllerTest {
 
         verify(transactionService).checkBalanceByUser(cardId);
     }
+
+    @Test
+    void getCardHistory_success() throws Exception {
+        UUID cardId = UUID.randomUUID();
+        ResponseTransactionPageDto responseDto = ResponseTransactionPageDto.builder()
+                .content(List.of(ResponseTransferDto.builder().amount(100L).build()))
+                .nextCursor("abc")
+                .build();
+
+        when(transactionHistoryService.getCardHistory(cardId, "prev", 10)).thenReturn(responseDto);
+
+        mockMvc.perform(get("/api/cards/{cardId}/transactions", cardId)
+                        .param("cursor", "prev")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].amount").value(100L))
+                .andExpect(jsonPath("$.nextCursor").value("abc"));
+
+        verify(transactionHistoryService).getCardHistory(cardId, "prev", 10);
+    }
+
+    @Test
+    void exportStatement_ndjson_streamsBody() throws Exception {
+        UUID cardId = UUID.randomUUID();
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 12, 31);
+
+        when(statementService.exportStatement(cardId, from, to, StatementFormat.NDJSON))
+                .thenReturn(outputStream -> outputStream.write("{\"amount\":100}\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/api/cards/{cardId}/statement", cardId)
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-12-31")
+                        .param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"statement-2025-01-01-2025-12-31.ndjson\""))
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"amount\":100}\n"));
+    }
+
+    @Test
+    void exportStatement_unknownFormat_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/cards/{cardId}/statement", UUID.randomUUID())
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-12-31")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void checkBalance_atInstant_answersFromSnapshots() throws Exception {
+        UUID cardId = UUID.randomUUID();
+        Instant at = Instant.parse("2025-03-05T10:15:00Z");
+
+        ResponseBalanceDto responseDto = ResponseBalanceDto.builder()
+                .maskedCard("**** **** **** 1234")
+                .balance(700L)
+                .at(at)
+                .build();
+
+        when(balanceSnapshotService.balanceAt(cardId, at)).thenReturn(responseDto);
+
+        mockMvc.perform(get("/api/cards/{cardId}/balance", cardId)
+                        .param("at", "2025-03-05T10:15:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(700L))
+                .andExpect(jsonPath("$.at").value("2025-03-05T10:15:00Z"));
+
+        verify(balanceSnapshotService).balanceAt(cardId, at);
+    }
+
+    @Test
+    void getMonthlyTurnover_success() throws Exception {
+        UUID cardId = UUID.randomUUID();
+        ResponseTurnoverDto march = ResponseTurnoverDto.builder()
+                .month("2025-03")
+                .incomingAmount(500L)
+                .incomingCount(2L)
+                .outgoingAmount(120L)
+                .outgoingCount(1L)
+                .build();
+
+        when(turnoverService.getMonthlyTurnover(cardId, YearMonth.of(2025, 1), YearMonth.of(2025, 3)))
+                .thenReturn(List.of(march));
+
+        mockMvc.perform(get("/api/cards/{cardId}/turnover", cardId)
+                        .param("from", "2025-01")
+                        .param("to", "2025-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].month").value("2025-03"))
+                .andExpect(jsonPath("$[0].incomingAmount").value(500L))
+                .andExpect(jsonPath("$[0].outgoingCount").value(1L));
+    }
 }
@@ -2,6 +2,7 @@ package com.example.bankcards.controller.card;
 
 import com.example.bankcards.dto.card.create.RequestCreateCardDto;
 import com.example.bankcards.dto.card.create.ResponseCreateCardDto;
+import com.example.bankcards.dto.card.ledger.ResponseLedgerBalanceDto;
 import com.example.bankcards.dto.card.request.ResponseBlockDto;
 import com.example.bankcards.dto.card.select.ResponseCardDto;
 import com.example.bankcards.entity.Card;
@@ -356,4 +357,43 @@ public class AdminCardControllerTest {
 
         verify(adminCardService).approveBlockRequest(requestId);
     }
+
+    @Test
+    void setBalanceShards_success() throws Exception {
+        UUID cardId = UUID.randomUUID();
+
+        ResponseCardDto response = ResponseCardDto.builder()
+                .id(cardId)
+                .balanceShards(8)
+                .build();
+
+        when(adminCardService.setBalanceShards(cardId, 8)).thenReturn(response);
+
+        mockMvc.perform(patch("/api/admin/cards/{cardId}/hot", cardId)
+                        .param("shards", "8"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balanceShards").value(8));
+
+        verify(adminCardService).setBalanceShards(cardId, 8);
+    }
+
+    @Test
+    void reconcileLedger_success() throws Exception {
+        UUID cardId = UUID.randomUUID();
+        ResponseLedgerBalanceDto response = ResponseLedgerBalanceDto.builder()
+                .cardId(cardId)
+                .cardBalance(500L)
+                .ledgerBalance(500L)
+                .consistent(true)
+                .build();
+
+        when(adminCardService.reconcileLedger(cardId)).thenReturn(response);
+
+        mockMvc.perform(get("/api/admin/cards/{cardId}/ledger", cardId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ledgerBalance").value(500))
+                .andExpect(jsonPath("$.consistent").value(true));
+
+        verify(adminCardService).reconcileLedger(cardId);
+    }
 }
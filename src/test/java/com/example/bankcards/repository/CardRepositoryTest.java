@@ -0,0 +1,100 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.repository.projection.CardView;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Запросы CardRepository на базе PostgreSQL профиля local. Без запущенной базы тест пропускается
+public class CardRepositoryTest {
+
+    private static final String URL = "jdbc:postgresql://localhost:5432/postgres";
+
+    private static ConfigurableApplicationContext context;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cardId = UUID.randomUUID();
+    private JdbcTemplate jdbcTemplate;
+    private CardRepository cardRepository;
+
+    @BeforeAll
+    static void startContext() {
+        assumeTrue(databaseAvailable(), "PostgreSQL from the local profile is not running");
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("local")
+                .properties("server.port=0", "cache.users.listener.enabled=false")
+                .run();
+    }
+
+    @AfterAll
+    static void stopContext() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        cardRepository = context.getBean(CardRepository.class);
+        jdbcTemplate.update("INSERT INTO users (id, email, password, role, created_at, is_enabled) " +
+                "VALUES (?, ?, 'x', 'USER', now(), true)", userId, "cards-" + userId + "@example.com");
+        jdbcTemplate.update("INSERT INTO cards (id, card_number, last4, holder_name, expiry_month, expiry_year, " +
+                        "status, balance, balance_shards, created_at, user_id) " +
+                        "VALUES (?, ?, '4242', 'SHARDED', 12, 99, 'ACTIVE', 100, 2, now(), ?)",
+                cardId, String.format("%016d", ThreadLocalRandom.current().nextLong(10_000_000_000_000_000L)), userId);
+        jdbcTemplate.update("INSERT INTO card_balance_shards (card_id, shard, balance) VALUES (?, 0, 30), (?, 1, 12)",
+                cardId, cardId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM cards WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    @Test
+    void views_shardedCard_includeShardBalances() {
+        long balance = cardRepository.findBalanceByIdAndUserId(cardId, userId).orElseThrow().getBalance();
+        assertEquals(142L, balance);
+
+        CardView byId = cardRepository.findViewByIdAndUserId(cardId, userId).orElseThrow();
+        assertEquals(balance, byId.balance());
+        assertEquals(balance, cardRepository.findViewById(cardId).orElseThrow().balance());
+
+        CardView listed = cardRepository.findViewsByUserId(userId, PageRequest.of(0, 10)).getContent().get(0);
+        assertEquals(balance, listed.balance());
+    }
+
+    @Test
+    void views_cardWithoutShards_returnCardBalance() {
+        jdbcTemplate.update("DELETE FROM card_balance_shards WHERE card_id = ?", cardId);
+        jdbcTemplate.update("UPDATE cards SET balance_shards = 0 WHERE id = ?", cardId);
+
+        assertEquals(100L, cardRepository.findViewByIdAndUserId(cardId, userId).orElseThrow().balance());
+    }
+
+    private static boolean databaseAvailable() {
+        try (Connection ignored = DriverManager.getConnection(URL, "postgres", "admin")) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
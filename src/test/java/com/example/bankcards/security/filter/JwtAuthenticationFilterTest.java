@@ -0,0 +1,98 @@
+package com.example.bankcards.security.filter;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.UserRole;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.adapter.CustomUserDetails;
+import com.example.bankcards.security.adapter.JwtUserPrincipal;
+import com.example.bankcards.security.service.CustomUserDetailsService;
+import com.example.bankcards.security.service.JwtService;
+import com.example.bankcards.security.service.TokenRevocationService;
+import com.example.bankcards.util.SecurityUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "30d3a11241cf81068a2d0c19d8974787e46b2abad2a2738b849753b0d41f351a";
+
+    private final UUID userId = UUID.randomUUID();
+    private final JwtService jwtService = new JwtService(SECRET, 100);
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findDisabledIds()).thenReturn(List.of());
+        revocationService = new TokenRevocationService(userRepository);
+        revocationService.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void stateless_principalFromClaimsWithoutDatabase() throws Exception {
+        perform(new JwtAuthenticationFilter(jwtService, userDetailsService, revocationService, true));
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertInstanceOf(JwtUserPrincipal.class, authentication.getPrincipal());
+        assertEquals("user@example.com", authentication.getName());
+        assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+        assertEquals(userId, new SecurityUtil().getCurrentUserId());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void stateless_disabledUser_notAuthenticated() throws Exception {
+        revocationService.disableUser(userId);
+
+        perform(new JwtAuthenticationFilter(jwtService, userDetailsService, revocationService, true));
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void stateless_refreshToken_notAuthenticated() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.addHeader("Authorization", "Bearer " + jwtService.generateRefreshToken("user@example.com"));
+
+        new JwtAuthenticationFilter(jwtService, userDetailsService, revocationService, true)
+                .doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void database_loadsUserDetails() throws Exception {
+        User user = User.builder().id(userId).email("user@example.com").role(UserRole.USER).password("x").build();
+        when(userDetailsService.loadUserByUsername("user@example.com")).thenReturn(new CustomUserDetails(user));
+
+        perform(new JwtAuthenticationFilter(jwtService, userDetailsService, revocationService, false));
+
+        assertInstanceOf(CustomUserDetails.class, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        assertEquals(userId, new SecurityUtil().getCurrentUserId());
+    }
+
+    private void perform(JwtAuthenticationFilter filter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.addHeader("Authorization",
+                "Bearer " + jwtService.generateAccessToken("user@example.com", userId, UserRole.USER.name()));
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+}
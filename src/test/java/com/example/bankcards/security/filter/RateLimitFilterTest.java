@@ -0,0 +1,124 @@
+package com.example.bankcards.security.filter;
+
+import com.example.bankcards.security.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitFilterTest {
+
+    private static final String SECRET = "30d3a11241cf81068a2d0c19d8974787e46b2abad2a2738b849753b0d41f351a";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final JwtService jwtService = new JwtService(SECRET, 100);
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RateLimitFilter(jwtService,
+                new RouteLimit("ip", "/**", 100, 100),
+                List.of(new RouteLimit("transfer", "/api/transfer*/**", 2, 1),
+                        new RouteLimit("default", "/**", 100, 100)),
+                1000, clock::get);
+    }
+
+    @Test
+    void overRouteLimit_returns429WithRetryAfterAndSkipsChain() throws Exception {
+        assertEquals(200, perform("/api/transfer", token("alice@example.com"), "10.0.0.1").getStatus());
+        assertEquals(200, perform("/api/transfer", token("alice@example.com"), "10.0.0.1").getStatus());
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("/api/transfer", token("alice@example.com"), "10.0.0.1", chain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("too many requests"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void bucketsArePerUser() throws Exception {
+        perform("/api/transfer", token("alice@example.com"), "10.0.0.1");
+        perform("/api/transfer", token("alice@example.com"), "10.0.0.1");
+
+        assertEquals(200, perform("/api/transfer", token("bob@example.com"), "10.0.0.1").getStatus());
+        assertEquals(200, perform("/api/cards", token("alice@example.com"), "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void anonymousRequests_limitedByIp() throws Exception {
+        perform("/api/transfers/batch", null, "10.0.0.1");
+        perform("/api/transfers/batch", null, "10.0.0.1");
+
+        assertEquals(429, perform("/api/transfers/batch", null, "10.0.0.1").getStatus());
+        assertEquals(200, perform("/api/transfers/batch", null, "10.0.0.2").getStatus());
+    }
+
+    @Test
+    void bucketRefillsOverTime() throws Exception {
+        perform("/api/transfer", token("alice@example.com"), "10.0.0.1");
+        perform("/api/transfer", token("alice@example.com"), "10.0.0.1");
+        assertEquals(429, perform("/api/transfer", token("alice@example.com"), "10.0.0.1").getStatus());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+
+        assertEquals(200, perform("/api/transfer", token("alice@example.com"), "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void forgedToken_limitedByIpNotByVictim() throws Exception {
+        perform("/api/transfer", forged("alice@example.com"), "10.0.0.66");
+        perform("/api/transfer", forged("alice@example.com"), "10.0.0.66");
+        assertEquals(429, perform("/api/transfer", forged("alice@example.com"), "10.0.0.66").getStatus());
+
+        assertEquals(200, perform("/api/transfer", token("alice@example.com"), "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void extractSubject_malformedToken_returnsNull() {
+        assertNull(filter.extractSubject("Bearer not-a-jwt"));
+        assertNull(filter.extractSubject("Bearer a.%%%.c"));
+        assertNull(filter.extractSubject("Basic dXNlcjpwYXNz"));
+        assertNull(filter.extractSubject(forged("alice@example.com")));
+        assertEquals("alice@example.com", filter.extractSubject(token("alice@example.com")));
+    }
+
+    private MockHttpServletResponse perform(String path, String authorization, String ip) throws Exception {
+        return perform(path, authorization, ip, new MockFilterChain());
+    }
+
+    private MockHttpServletResponse perform(String path, String authorization, String ip, MockFilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(ip);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private String token(String subject) {
+        return "Bearer " + jwtService.generateAccessToken(subject, UUID.randomUUID(), "USER");
+    }
+
+    // Правильный формат без подписи: subject выбирает атакующий
+    private static String forged(String subject) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"" + subject + "\"}").getBytes(StandardCharsets.UTF_8));
+        return "Bearer " + header + "." + payload + ".signature";
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.security.service;
+
+import com.example.bankcards.entity.UserRole;
+import com.example.bankcards.security.adapter.JwtUserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtServiceTest {
+
+    private static final String SECRET = "30d3a11241cf81068a2d0c19d8974787e46b2abad2a2738b849753b0d41f351a";
+
+    private final JwtService jwtService = new JwtService(SECRET, 100);
+
+    @Test
+    void parseValid_accessToken_returnsClaims() {
+        UUID userId = UUID.randomUUID();
+        String token = jwtService.generateAccessToken("user@example.com", userId, "USER");
+
+        Optional<Claims> claims = jwtService.parseValid(token);
+
+        assertTrue(claims.isPresent());
+        assertEquals("user@example.com", claims.get().getSubject());
+        assertEquals(userId.toString(), claims.get().get("userId", String.class));
+    }
+
+    @Test
+    void parseValid_sameToken_servedFromCache() {
+        String token = jwtService.generateAccessToken("user@example.com", UUID.randomUUID(), "USER");
+
+        Claims first = jwtService.parseValid(token).orElseThrow();
+        Claims second = jwtService.parseValid(token).orElseThrow();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void parseValid_cacheDisabled_parsesEveryTime() {
+        JwtService uncached = new JwtService(SECRET, 0);
+        String token = uncached.generateAccessToken("user@example.com", UUID.randomUUID(), "USER");
+
+        Claims first = uncached.parseValid(token).orElseThrow();
+        Claims second = uncached.parseValid(token).orElseThrow();
+
+        assertNotSame(first, second);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void parseValid_tamperedToken_empty() {
+        String token = jwtService.generateAccessToken("user@example.com", UUID.randomUUID(), "USER");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertTrue(jwtService.parseValid(tampered).isEmpty());
+        assertTrue(jwtService.parseValid("not-a-token").isEmpty());
+    }
+
+    @Test
+    void parseValid_expiredToken_empty() {
+        String token = Jwts.builder()
+                .subject("user@example.com")
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS256)
+                .compact();
+
+        assertTrue(jwtService.parseValid(token).isEmpty());
+        assertFalse(jwtService.validateToken(token));
+    }
+
+    @Test
+    void principalOf_accessToken_hasUserIdAndRole() {
+        UUID userId = UUID.randomUUID();
+        Claims claims = jwtService.parseValid(jwtService.generateAccessToken("user@example.com", userId, "ADMIN"))
+                .orElseThrow();
+
+        JwtUserPrincipal principal = jwtService.principalOf(claims).orElseThrow();
+
+        assertEquals(userId, principal.getUserId());
+        assertEquals("user@example.com", principal.getUsername());
+        assertEquals(UserRole.ADMIN, principal.role());
+    }
+
+    @Test
+    void principalOf_refreshToken_empty() {
+        Claims claims = jwtService.parseValid(jwtService.generateRefreshToken("user@example.com")).orElseThrow();
+
+        assertTrue(jwtService.principalOf(claims).isEmpty());
+    }
+
+    @Test
+    void isTokenValid_otherUser_false() {
+        String token = jwtService.generateAccessToken("user@example.com", UUID.randomUUID(), "USER");
+        UserDetails owner = new User("user@example.com", "", List.of());
+        UserDetails stranger = new User("other@example.com", "", List.of());
+
+        assertTrue(jwtService.isTokenValid(token, owner));
+        assertFalse(jwtService.isTokenValid(token, stranger));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.security.service;
+
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TokenRevocationServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID disabledOnStart = UUID.randomUUID();
+    private final Date issuedAt = new Date();
+
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findDisabledIds()).thenReturn(List.of(disabledOnStart));
+        revocationService = new TokenRevocationService(userRepository);
+        revocationService.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void load_disabledUsersRevoked() {
+        assertTrue(revocationService.isRevoked(disabledOnStart, issuedAt));
+        assertFalse(revocationService.isRevoked(userId, issuedAt));
+    }
+
+    @Test
+    void disableUser_rolledBack_revocationLifted() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        revocationService.disableUser(userId);
+        assertTrue(revocationService.isRevoked(userId, issuedAt));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertFalse(revocationService.isRevoked(userId, issuedAt));
+    }
+
+    @Test
+    void enableUser_takesEffectAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        revocationService.enableUser(disabledOnStart);
+        assertTrue(revocationService.isRevoked(disabledOnStart, issuedAt));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertFalse(revocationService.isRevoked(disabledOnStart, issuedAt));
+    }
+
+    @Test
+    void apply_changesFromOtherNode() {
+        revocationService.apply(new UserChange(userId, UserChange.Type.DISABLED, List.of("user@example.com"), Instant.now()));
+        assertTrue(revocationService.isRevoked(userId, issuedAt));
+
+        revocationService.apply(new UserChange(userId, UserChange.Type.ENABLED, List.of("user@example.com"), Instant.now()));
+        assertFalse(revocationService.isRevoked(userId, issuedAt));
+    }
+
+    @Test
+    void revokeIssuedBefore_onlyOlderTokensRevoked() {
+        Instant changed = Instant.parse("2025-01-01T12:00:00.500Z");
+        revocationService.revokeIssuedBefore(userId, changed);
+
+        assertTrue(revocationService.isRevoked(userId, Date.from(Instant.parse("2025-01-01T11:59:59Z"))));
+        // та же секунда: токен мог быть выдан уже после изменения
+        assertFalse(revocationService.isRevoked(userId, Date.from(Instant.parse("2025-01-01T12:00:00Z"))));
+        assertFalse(revocationService.isRevoked(userId, Date.from(Instant.parse("2025-01-01T12:00:01Z"))));
+    }
+}
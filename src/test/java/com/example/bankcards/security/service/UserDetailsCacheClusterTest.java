@@ -0,0 +1,105 @@
+package com.example.bankcards.security.service;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.entity.UserRole;
+import com.example.bankcards.security.adapter.JwtUserPrincipal;
+import com.example.bankcards.service.UserService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Два экземпляра приложения (профиль local) на одной базе PostgreSQL.
+// Без запущенной базы тест пропускается
+public class UserDetailsCacheClusterTest {
+
+    private static final String URL = "jdbc:postgresql://localhost:5432/postgres";
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startNodes() {
+        assumeTrue(databaseAvailable(), "PostgreSQL from the local profile is not running");
+        first = startNode();
+        second = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void disableUserOnOneNode_evictsCachedUserOnOther() throws InterruptedException {
+        JdbcTemplate jdbcTemplate = first.getBean(JdbcTemplate.class);
+        UUID userId = UUID.randomUUID();
+        String email = "cluster-" + userId + "@example.com";
+        jdbcTemplate.update("INSERT INTO users (id, email, password, role, created_at, is_enabled) " +
+                "VALUES (?, ?, 'x', 'USER', now(), true)", userId, email);
+        try {
+            CustomUserDetailsService secondUsers = second.getBean(CustomUserDetailsService.class);
+            assertTrue(secondUsers.loadUserByUsername(email).isEnabled());
+
+            // Изменение в обход UserService второй экземпляр не видит: пользователь взят из кеша
+            jdbcTemplate.update("UPDATE users SET is_enabled = false WHERE id = ?", userId);
+            assertTrue(secondUsers.loadUserByUsername(email).isEnabled());
+            jdbcTemplate.update("UPDATE users SET is_enabled = true WHERE id = ?", userId);
+
+            SecurityContextHolder.getContext().setAuthentication(admin());
+            first.getBean(UserService.class).disableUser(userId);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (secondUsers.loadUserByUsername(email).isEnabled()) {
+                assertTrue(System.nanoTime() < deadline, "second node did not receive the user change");
+                Thread.sleep(50);
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("local")
+                .properties("server.port=0", "cache.users.listener.poll-timeout-ms=100")
+                .run();
+    }
+
+    private static UsernamePasswordAuthenticationToken admin() {
+        JwtUserPrincipal principal = new JwtUserPrincipal(UUID.randomUUID(), "cluster-admin", UserRole.ADMIN);
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private static boolean databaseAvailable() {
+        try (Connection ignored = DriverManager.getConnection(URL, "postgres", "admin")) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankcards.security.service;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.security.adapter.CustomUserDetails;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserDetailsCacheTest {
+
+    private final UUID userId = UUID.randomUUID();
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserDetailsCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserDetailsCache(meterRegistry, 100, Duration.ofMinutes(5));
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_secondCall_hitsCacheAndRecordsMetrics() {
+        cache.get("user@example.com", () -> load("user@example.com"));
+        cache.get("user@example.com", () -> load("user@example.com"));
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user-details").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user-details").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void get_notFound_notCached() {
+        assertThrows(NotFoundException.class, () -> cache.get("user@example.com", () -> {
+            loads.incrementAndGet();
+            throw new NotFoundException("User not found");
+        }));
+        cache.get("user@example.com", () -> load("user@example.com"));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evict_byEmailsAndUserId() {
+        cache.get("old@example.com", () -> load("old@example.com"));
+        cache.get("alias@example.com", () -> load("alias@example.com"));
+
+        // адрес alias@example.com в уведомлении не указан, запись находится по id
+        cache.evict(new UserChange(userId, UserChange.Type.UPDATED, List.of("old@example.com"), Instant.now()));
+        cache.get("old@example.com", () -> load("old@example.com"));
+        cache.get("alias@example.com", () -> load("alias@example.com"));
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void evict_duringLoad_loadedEntryNotKept() {
+        cache.get("user@example.com", () -> {
+            // смена адреса в базе пришла, пока загрузка еще шла: по id запись пока не найти
+            cache.evict(new UserChange(userId, UserChange.Type.UPDATED, List.of("new@example.com"), Instant.now()));
+            return load("user@example.com");
+        });
+        cache.get("user@example.com", () -> load("user@example.com"));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evict_otherUser_keepsEntry() {
+        cache.get("user@example.com", () -> load("user@example.com"));
+
+        cache.evict(new UserChange(UUID.randomUUID(), UserChange.Type.DISABLED, List.of("other@example.com"), Instant.now()));
+        cache.get("user@example.com", () -> load("user@example.com"));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evictAfterCommit_keepsEntryUntilCommit() {
+        cache.get("user@example.com", () -> load("user@example.com"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.evictAfterCommit(new UserChange(userId, UserChange.Type.DISABLED, List.of("user@example.com"), Instant.now()));
+        cache.get("user@example.com", () -> load("user@example.com"));
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        cache.get("user@example.com", () -> load("user@example.com"));
+        assertEquals(2, loads.get());
+    }
+
+    private CustomUserDetails load(String email) {
+        loads.incrementAndGet();
+        return new CustomUserDetails(User.builder().id(userId).email(email).build());
+    }
+}
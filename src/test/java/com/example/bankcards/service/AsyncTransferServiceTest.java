@@ -0,0 +1,245 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.TransferLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.card.CardCache;
+import com.example.bankcards.service.card.ShardedBalanceService;
+import com.example.bankcards.service.limit.TransferLimitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncTransferServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private ShardedBalanceService shardedBalanceService;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private TransferLimitService transferLimitService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AsyncTransferService asyncTransferService;
+
+    private final Card cardA = Card.builder().id(UUID.randomUUID()).status(CardStatus.ACTIVE).balance(500L).build();
+    private final Card cardB = Card.builder().id(UUID.randomUUID()).status(CardStatus.ACTIVE).balance(100L).build();
+
+    @BeforeEach
+    void setUp() {
+        asyncTransferService = new AsyncTransferService(transactionRepository, transactionService,
+                shardedBalanceService, ledgerService, cardCache, transferLimitService, transactionManager, 10);
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        lenient().when(shardedBalanceService.totalBalance(any())).thenAnswer(invocation -> {
+            Card card = invocation.getArgument(0);
+            return card.getBalance();
+        });
+    }
+
+    @Test
+    void settleBatch_emptyQueue_returnsZero() {
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of());
+
+        assertEquals(0, asyncTransferService.settleBatch());
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void settleBatch_mixedBatch_marksSuccessAndFailed() {
+        Transaction ok = pending(cardA, cardB, 300L);
+        Transaction tooMuch = pending(cardA, cardB, 300L);
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(ok, tooMuch));
+        when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+
+        assertEquals(2, asyncTransferService.settleBatch());
+
+        assertEquals(TransactionStatus.SUCCESS, ok.getStatus());
+        assertEquals(200L, ok.getBalanceAfter());
+        assertEquals(TransactionStatus.FAILED, tooMuch.getStatus());
+        assertEquals("not enough balance for transaction", tooMuch.getFailureReason());
+        assertNull(tooMuch.getBalanceAfter());
+        assertEquals(200L, cardA.getBalance());
+        assertEquals(400L, cardB.getBalance());
+        verify(ledgerService).record(eq(ok), any(Instant.class));
+        verify(ledgerService, never()).record(eq(tooMuch), any(Instant.class));
+        verify(cardCache).evictAfterCommit(cardA.getUserId(), cardA.getId(), cardB.getId());
+    }
+
+    @Test
+    void settleBatch_missingCard_marksFailed() {
+        Transaction transaction = pending(cardA, cardB, 100L);
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(transaction));
+        when(transactionService.lockCards(anyCollection())).thenReturn(Map.of(cardA.getId(), cardA));
+
+        asyncTransferService.settleBatch();
+
+        assertEquals(TransactionStatus.FAILED, transaction.getStatus());
+        assertEquals(500L, cardA.getBalance());
+    }
+
+    @Test
+    void settleBatch_limitExceeded_marksFailedWithoutMovingMoney() {
+        Transaction transaction = pending(cardA, cardB, 100L);
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(transaction));
+        when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+        when(transferLimitService.acquire(any(), eq(cardA.getId()), eq(100L)))
+                .thenThrow(new TransferLimitExceededException("card hourly transfer limit exceeded"));
+
+        asyncTransferService.settleBatch();
+
+        assertEquals(TransactionStatus.FAILED, transaction.getStatus());
+        assertEquals("card hourly transfer limit exceeded", transaction.getFailureReason());
+        assertEquals(500L, cardA.getBalance());
+        assertEquals(100L, cardB.getBalance());
+        verifyNoInteractions(ledgerService);
+    }
+
+    @Test
+    void settleBatch_submittedBeforeCheckpointLag_postsAtSettlementTime() {
+        Transaction transaction = pending(cardA, cardB, 100L);
+        transaction.setTransactionDate(Instant.now().minus(Duration.ofHours(1)));
+        Instant before = Instant.now();
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(transaction));
+        when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+
+        asyncTransferService.settleBatch();
+
+        assertEquals(TransactionStatus.SUCCESS, transaction.getStatus());
+        verify(ledgerService).record(eq(transaction), argThat(postedAt -> !postedAt.isBefore(before)));
+    }
+
+    @Test
+    void settleBatch_blockedSenderCard_marksFailed() {
+        Transaction transaction = pending(cardA, cardB, 100L);
+        cardA.setStatus(CardStatus.BLOCKED);
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(transaction));
+        when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+
+        asyncTransferService.settleBatch();
+
+        assertEquals(TransactionStatus.FAILED, transaction.getStatus());
+        assertEquals("sender card is not active", transaction.getFailureReason());
+        assertEquals(500L, cardA.getBalance());
+    }
+
+    @Test
+    void settleBatch_unexpectedErrorOnOneItem_settlesTheRest() {
+        Transaction broken = pending(cardA, cardB, 100L);
+        Transaction ok = pending(cardA, cardB, 200L);
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(broken, ok));
+        when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+        doThrow(new IllegalStateException("shards are inconsistent"))
+                .when(shardedBalanceService).ensureAvailable(cardA, 100L);
+
+        assertEquals(2, asyncTransferService.settleBatch());
+
+        assertEquals(TransactionStatus.FAILED, broken.getStatus());
+        assertEquals("shards are inconsistent", broken.getFailureReason());
+        assertEquals(TransactionStatus.SUCCESS, ok.getStatus());
+        assertEquals(300L, cardA.getBalance());
+    }
+
+    @Test
+    void settleBatch_commitFailed_settlesOneByOneAndParksBadTransfer() {
+        Transaction ok = pending(cardA, cardB, 100L);
+        Transaction bad = pending(cardA, cardB, 200L);
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(ok, bad));
+        when(transactionRepository.findPendingByIdForUpdate(ok.getId())).thenReturn(Optional.of(pending(ok)));
+        when(transactionRepository.findPendingByIdForUpdate(bad.getId())).thenReturn(Optional.of(pending(bad)));
+        when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+        // пачка, ok отдельно, bad отдельно, пометка bad
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("fk_ledger_card");
+        doThrow(violation).doNothing().doThrow(violation).doNothing()
+                .when(transactionManager).commit(any());
+
+        assertEquals(2, asyncTransferService.settleBatch());
+
+        verify(transactionRepository).markPendingFailed(eq(bad.getId()), contains("fk_ledger_card"));
+        verify(transactionRepository, never()).markPendingFailed(eq(ok.getId()), any());
+    }
+
+    @Test
+    void settleBatch_databaseUnavailable_keepsTransfersPending() {
+        Transaction transaction = pending(cardA, cardB, 100L);
+
+        when(transactionRepository.findPendingForUpdate(10)).thenReturn(List.of(transaction));
+        when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+        doThrow(new QueryTimeoutException("timeout")).when(transactionManager).commit(any());
+
+        assertThrows(QueryTimeoutException.class, () -> asyncTransferService.settleBatch());
+        verify(transactionRepository, never()).findPendingByIdForUpdate(any());
+        verify(transactionRepository, never()).markPendingFailed(any(), any());
+    }
+
+    private Transaction pending(Transaction transaction) {
+        return pending(transaction.getId(), transaction.getFromCard(), transaction.getToCard(), transaction.getAmount());
+    }
+
+    private Transaction pending(Card from, Card to, long amount) {
+        return pending(UUID.randomUUID(), from.getId(), to.getId(), amount);
+    }
+
+    private Transaction pending(UUID id, UUID from, UUID to, long amount) {
+        return Transaction.builder()
+                .id(id)
+                .status(TransactionStatus.PENDING)
+                .fromCard(from)
+                .toCard(to)
+                .amount(amount)
+                .build();
+    }
+}
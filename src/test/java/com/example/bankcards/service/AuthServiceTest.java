@@ -4,20 +4,29 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.time.Instant;
+import java.util.Date;
 import java.util.Optional;
 import java.util.UUID;
 
+import com.example.bankcards.dto.token.refresh.RequestRefreshDto;
+import com.example.bankcards.dto.token.refresh.ResponseRefreshDto;
 import com.example.bankcards.dto.user.login.RequestLoginDto;
 import com.example.bankcards.dto.user.login.ResponseLoginDto;
 import com.example.bankcards.dto.user.register.RequestRegisterDto;
 import com.example.bankcards.dto.user.register.ResponseRegisterDto;
+import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.UserRole;
 import com.example.bankcards.exception.ConflictException;
 import com.example.bankcards.exception.LoginFailedException;
+import com.example.bankcards.exception.UnauthorizedException;
 import com.example.bankcards.repository.RefreshTokenRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.RotatedRefreshToken;
 import com.example.bankcards.security.service.JwtService;
+import com.example.bankcards.util.HashUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
@@ -103,7 +112,10 @@ public class AuthServiceTest {
 
         assertEquals("accessToken", response.getAccessToken());
         assertEquals("refreshToken", response.getRefreshToken());
-        verify(refreshTokenRepository).save(any());
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals(HashUtil.sha256Hex("refreshToken"), saved.getValue().getTokenHash());
+        assertNotNull(saved.getValue().getFamilyId());
     }
 
     @Test
@@ -119,4 +131,55 @@ public class AuthServiceTest {
         assertThrows(LoginFailedException.class, () -> authService.login(dto));
         verify(refreshTokenRepository, never()).save(any());
     }
+
+    @Test
+    void refresh_success_rotatesByHash() {
+        UUID userId = UUID.randomUUID();
+        Claims claims = Jwts.claims().subject("test@example.com").build();
+        RotatedRefreshToken owner = mock(RotatedRefreshToken.class);
+        when(owner.getUserId()).thenReturn(userId);
+        when(owner.getEmail()).thenReturn("test@example.com");
+        when(owner.getRole()).thenReturn("USER");
+
+        when(jwtService.parseUncached("oldToken")).thenReturn(Optional.of(claims));
+        when(jwtService.generateRefreshToken("test@example.com")).thenReturn("newToken");
+        when(jwtService.getRefreshTokenExpiryDate()).thenReturn(new Date());
+        when(refreshTokenRepository.rotate(eq(HashUtil.sha256Hex("oldToken")), eq(HashUtil.sha256Hex("newToken")),
+                any(), any())).thenReturn(Optional.of(owner));
+        when(jwtService.generateAccessToken("test@example.com", userId, "USER")).thenReturn("accessToken");
+
+        ResponseRefreshDto response = authService.refresh(new RequestRefreshDto("oldToken"));
+
+        assertEquals("accessToken", response.getAccessToken());
+        assertEquals("newToken", response.getRefreshToken());
+        verifyNoInteractions(userRepository, passwordEncoder);
+    }
+
+    @Test
+    void refresh_reusedToken_revokesFamily() {
+        UUID familyId = UUID.randomUUID();
+        Claims claims = Jwts.claims().subject("test@example.com").build();
+        String oldHash = HashUtil.sha256Hex("usedToken");
+
+        when(jwtService.parseUncached("usedToken")).thenReturn(Optional.of(claims));
+        when(jwtService.generateRefreshToken("test@example.com")).thenReturn("newToken");
+        when(jwtService.getRefreshTokenExpiryDate()).thenReturn(new Date());
+        when(refreshTokenRepository.rotate(eq(oldHash), any(), any(), any())).thenReturn(Optional.empty());
+        when(refreshTokenRepository.findRevokedFamilyId(oldHash)).thenReturn(Optional.of(familyId));
+
+        UnauthorizedException exception = assertThrows(UnauthorizedException.class,
+                () -> authService.refresh(new RequestRefreshDto("usedToken")));
+        assertEquals("refresh token reuse detected", exception.getMessage());
+        verify(refreshTokenRepository).revokeFamily(eq(familyId), any());
+    }
+
+    @Test
+    void refresh_invalidSignature_throwsWithoutQuery() {
+        when(jwtService.parseUncached("garbage")).thenReturn(Optional.empty());
+
+        UnauthorizedException exception = assertThrows(UnauthorizedException.class,
+                () -> authService.refresh(new RequestRefreshDto("garbage")));
+        assertEquals("invalid refresh token", exception.getMessage());
+        verifyNoInteractions(refreshTokenRepository);
+    }
 }
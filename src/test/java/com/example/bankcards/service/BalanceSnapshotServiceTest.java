@@ -0,0 +1,162 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerPostingRepository;
+import com.example.bankcards.util.SecurityUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BalanceSnapshotServiceTest {
+
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private SecurityUtil securityUtil;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        balanceSnapshotService = new BalanceSnapshotService(ledgerPostingRepository, cardRepository, securityUtil,
+                transactionManager, 2, 5);
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    @Test
+    void takeSnapshots_walksCardsInChunksUntilExhausted() {
+        UUID first = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID second = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        UUID third = UUID.fromString("00000000-0000-0000-0000-000000000003");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        Instant dayEnd = Instant.parse("2025-03-02T00:00:00Z");
+
+        when(cardRepository.findIdsAfter(new UUID(0, 0), 2)).thenReturn(List.of(first, second));
+        when(cardRepository.findIdsAfter(second, 2)).thenReturn(List.of(third));
+        when(cardRepository.findIdsAfter(third, 2)).thenReturn(List.of());
+        when(ledgerPostingRepository.writeSnapshots(any(), eq(day), eq(dayEnd))).thenReturn(2, 1);
+
+        balanceSnapshotService.takeSnapshots(day);
+
+        verify(ledgerPostingRepository).writeSnapshots(List.of(first, second), day, dayEnd);
+        verify(ledgerPostingRepository).writeSnapshots(List.of(third), day, dayEnd);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void takeSnapshots_afterDowntime_catchesUpFromLastSnapshotDay() {
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        when(ledgerPostingRepository.findLastSnapshotDay()).thenReturn(yesterday.minusDays(2).toString());
+        oneCardPerDay();
+
+        balanceSnapshotService.takeSnapshots();
+
+        verify(ledgerPostingRepository).writeSnapshots(any(), eq(yesterday.minusDays(2)), any());
+        verify(ledgerPostingRepository).writeSnapshots(any(), eq(yesterday.minusDays(1)), any());
+        verify(ledgerPostingRepository).writeSnapshots(any(), eq(yesterday), any());
+    }
+
+    @Test
+    void takeSnapshots_longDowntime_catchesUpAtMostMaxDays() {
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        when(ledgerPostingRepository.findLastSnapshotDay()).thenReturn(yesterday.minusDays(100).toString());
+        oneCardPerDay();
+
+        balanceSnapshotService.takeSnapshots();
+
+        verify(ledgerPostingRepository).writeSnapshots(any(), eq(yesterday.minusDays(4)), any());
+        verify(ledgerPostingRepository, times(5)).writeSnapshots(any(), any(), any());
+    }
+
+    @Test
+    void takeSnapshots_noSnapshotsYet_takesOnlyYesterday() {
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        oneCardPerDay();
+
+        balanceSnapshotService.takeSnapshots();
+
+        verify(ledgerPostingRepository).writeSnapshots(any(), eq(yesterday), any());
+    }
+
+    @Test
+    void takeSnapshots_noCards_writesNothing() {
+        when(cardRepository.findIdsAfter(any(), anyInt())).thenReturn(List.of());
+
+        balanceSnapshotService.takeSnapshots(LocalDate.of(2025, 3, 1));
+
+        verifyNoInteractions(ledgerPostingRepository);
+    }
+
+    @Test
+    void balanceAt_success_usesUtcDayOfRequestedInstant() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        Instant at = Instant.parse("2025-03-05T10:15:00Z");
+        Card card = Card.builder().id(cardId).userId(userId).last4("4444").build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findByIdAndUserId(cardId, userId)).thenReturn(Optional.of(card));
+        when(ledgerPostingRepository.balanceAt(cardId, LocalDate.of(2025, 3, 5), at)).thenReturn(700L);
+
+        ResponseBalanceDto result = balanceSnapshotService.balanceAt(cardId, at);
+
+        assertEquals(700L, result.getBalance());
+        assertEquals(at, result.getAt());
+        assertEquals("**** **** **** 4444", result.getMaskedCard());
+    }
+
+    @Test
+    void balanceAt_foreignCard_throwsNotFoundException() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findByIdAndUserId(cardId, userId)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class,
+                () -> balanceSnapshotService.balanceAt(cardId, Instant.parse("2025-03-05T10:15:00Z")));
+        verifyNoInteractions(ledgerPostingRepository);
+    }
+
+    @Test
+    void balanceAt_futureInstant_throwsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> balanceSnapshotService.balanceAt(UUID.randomUUID(), Instant.now().plus(1, ChronoUnit.DAYS)));
+    }
+
+    private void oneCardPerDay() {
+        UUID card = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        when(cardRepository.findIdsAfter(any(), anyInt()))
+                .thenAnswer(invocation -> card.equals(invocation.getArgument(0)) ? List.of() : List.of(card));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.batch.BatchTransferMode;
+import com.example.bankcards.dto.transaction.batch.ResponseBatchTransferDto;
+import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotEnoughBalanceException;
+import com.example.bankcards.util.SecurityUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchTransferServiceTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private SecurityUtil securityUtil;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BatchTransferService batchTransferService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final Card cardA = Card.builder().id(UUID.randomUUID()).userId(userId).balance(500L).build();
+    private final Card cardB = Card.builder().id(UUID.randomUUID()).userId(userId).balance(500L).build();
+
+    @BeforeEach
+    void setUp() {
+        batchTransferService = new BatchTransferService(transactionService, securityUtil, transactionManager, 1, 3);
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        lenient().when(transactionService.lockCards(anyCollection()))
+                .thenReturn(Map.of(cardA.getId(), cardA, cardB.getId(), cardB));
+        lenient().when(transactionService.ownedCard(any(), any(), any())).thenCallRealMethod();
+        lenient().when(transactionService.findSenderCard(any(), any())).thenCallRealMethod();
+        lenient().when(transactionService.findReceiverCard(any(), any())).thenCallRealMethod();
+    }
+
+    @Test
+    void transferBatch_allOrNothing_failure_rollsBackWholeBatch() {
+        SimpleTransactionStatus transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(transactionService.performTransfer(cardA, cardB, 100L))
+                .thenReturn(ResponseTransferDto.builder().amount(100L).build());
+        when(transactionService.performTransfer(cardA, cardB, 1000L))
+                .thenThrow(new NotEnoughBalanceException("not enough balance for transaction"));
+
+        List<RequestTransferDto> batch = List.of(
+                transfer(cardA, cardB, 100L),
+                transfer(cardA, cardB, 1000L),
+                transfer(cardA, cardB, 100L));
+
+        ResponseBatchTransferDto result = batchTransferService.transferBatchByUser(batch, BatchTransferMode.ALL_OR_NOTHING);
+
+        assertEquals(0, result.getSucceeded());
+        assertEquals(3, result.getFailed());
+        assertEquals("not enough balance for transaction", result.getResults().get(1).getError());
+        assertEquals("rolled back: transfer #1 failed", result.getResults().get(0).getError());
+        assertEquals("rolled back: transfer #1 failed", result.getResults().get(2).getError());
+        assertTrue(transaction.isRollbackOnly());
+    }
+
+    @Test
+    void transferBatch_bestEffort_appliesEachChunkSeparately() {
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(transactionService.performTransfer(eq(cardA), eq(cardB), anyLong()))
+                .thenReturn(ResponseTransferDto.builder().amount(100L).build())
+                .thenThrow(new NotEnoughBalanceException("not enough balance for transaction"))
+                .thenReturn(ResponseTransferDto.builder().amount(100L).build());
+
+        List<RequestTransferDto> batch = List.of(
+                transfer(cardA, cardB, 100L),
+                transfer(cardA, cardB, 1000L),
+                transfer(cardA, cardB, 100L));
+
+        ResponseBatchTransferDto result = batchTransferService.transferBatchByUser(batch, BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals(1, result.getFailed());
+        assertEquals(TransactionStatus.SUCCESS, result.getResults().get(0).getStatus());
+        assertEquals(TransactionStatus.FAILED, result.getResults().get(1).getStatus());
+        assertEquals(TransactionStatus.SUCCESS, result.getResults().get(2).getStatus());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void transferBatch_foreignCard_reportsNotFound() {
+        Card foreign = Card.builder().id(UUID.randomUUID()).userId(UUID.randomUUID()).balance(500L).build();
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+
+        ResponseBatchTransferDto result = batchTransferService.transferBatchByUser(
+                List.of(transfer(cardA, foreign, 100L)), BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(1, result.getFailed());
+        assertEquals("receiver card not found or not yours", result.getResults().get(0).getError());
+        verify(transactionService, never()).performTransfer(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_tooLarge_throwsBadRequestException() {
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        List<RequestTransferDto> batch = Collections.nCopies(4, transfer(cardA, cardB, 1L));
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> batchTransferService.transferBatchByUser(batch, BatchTransferMode.BEST_EFFORT));
+
+        assertTrue(exception.getMessage().startsWith("batch is too large"));
+        verifyNoInteractions(transactionManager);
+    }
+
+    private RequestTransferDto transfer(Card from, Card to, long amount) {
+        return RequestTransferDto.builder()
+                .fromCard(from.getId())
+                .toCard(to.getId())
+                .amount(amount)
+                .build();
+    }
+
+    @Test
+    void transferBatch_allOrNothingWithBalanceEngine_throwsBadRequestException() {
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(transactionService.usesBalanceEngine()).thenReturn(true);
+
+        List<RequestTransferDto> batch = List.of(
+                RequestTransferDto.builder().fromCard(cardA.getId()).toCard(cardB.getId()).amount(100L).build());
+
+        assertThrows(BadRequestException.class,
+                () -> batchTransferService.transferBatchByUser(batch, BatchTransferMode.ALL_OR_NOTHING));
+        verifyNoInteractions(transactionManager);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    private IdempotencyService idempotencyService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final RequestTransferDto dto = RequestTransferDto.builder()
+            .fromCard(UUID.randomUUID())
+            .toCard(UUID.randomUUID())
+            .amount(100L)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, transactionRepository, transactionMapper,
+                100, Duration.ofMinutes(10), Duration.ofHours(24));
+    }
+
+    @Test
+    void findResponse_rememberedKey_servedFromCache() {
+        ResponseTransferDto response = ResponseTransferDto.builder().id(UUID.randomUUID()).build();
+        idempotencyService.remember(userId, "key-1", dto, response);
+
+        Optional<ResponseTransferDto> result = idempotencyService.findResponse(userId, "key-1", dto);
+
+        assertEquals(response, result.orElseThrow());
+        verifyNoInteractions(idempotencyKeyRepository, transactionRepository);
+    }
+
+    @Test
+    void findResponse_unknownKey_returnsEmpty() {
+        when(idempotencyKeyRepository.findByUserIdAndKey(userId, "key-1")).thenReturn(Optional.empty());
+
+        assertTrue(idempotencyService.findResponse(userId, "key-1", dto).isEmpty());
+    }
+
+    @Test
+    void findResponse_storedKey_rebuildsResponseFromTransaction() {
+        UUID transactionId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .fromCard(dto.getFromCard())
+                .toCard(dto.getToCard())
+                .amount(100L)
+                .build();
+        ResponseTransferDto response = ResponseTransferDto.builder().id(transactionId).build();
+
+        when(idempotencyKeyRepository.findByUserIdAndKey(userId, "key-1")).thenReturn(Optional.of(
+                IdempotencyKey.builder().userId(userId).key("key-1").transactionId(transactionId).build()));
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(transactionMapper.toDto(transaction)).thenReturn(response);
+
+        assertEquals(response, idempotencyService.findResponse(userId, "key-1", dto).orElseThrow());
+        // второй повтор уже из кэша
+        assertEquals(response, idempotencyService.findResponse(userId, "key-1", dto).orElseThrow());
+        verify(idempotencyKeyRepository, times(1)).findByUserIdAndKey(any(), any());
+    }
+
+    @Test
+    void findResponse_keyReusedForAnotherTransfer_throwsConflictException() {
+        idempotencyService.remember(userId, "key-1", dto, ResponseTransferDto.builder().build());
+
+        RequestTransferDto other = RequestTransferDto.builder()
+                .fromCard(dto.getFromCard())
+                .toCard(dto.getToCard())
+                .amount(999L)
+                .build();
+
+        ConflictException exception = assertThrows(ConflictException.class,
+                () -> idempotencyService.findResponse(userId, "key-1", other));
+
+        assertEquals("idempotency key already used for another transfer", exception.getMessage());
+    }
+
+    @Test
+    void findResponse_tooLongKey_throwsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> idempotencyService.findResponse(userId, "k".repeat(65), dto));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.LedgerPosting;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.repository.LedgerPostingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerServiceTest {
+
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepository;
+
+    private LedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(ledgerPostingRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void record_withPostedAt_usesItInsteadOfTransactionDate() {
+        Instant postedAt = Instant.now();
+        Transaction transaction = Transaction.builder()
+                .id(UUID.randomUUID())
+                .amount(100L)
+                .fromCard(UUID.randomUUID())
+                .toCard(UUID.randomUUID())
+                .transactionDate(postedAt.minus(Duration.ofHours(1)))
+                .build();
+
+        ledgerService.record(transaction, postedAt);
+
+        ArgumentCaptor<Iterable<LedgerPosting>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(ledgerPostingRepository).saveAll(captor.capture());
+        captor.getValue().forEach(posting -> assertEquals(postedAt, posting.getPostedAt()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void record_writesBalancedDebitAndCreditPostings() {
+        UUID fromCard = UUID.randomUUID();
+        UUID toCard = UUID.randomUUID();
+        Instant date = Instant.now();
+        Transaction transaction = Transaction.builder()
+                .id(UUID.randomUUID())
+                .status(TransactionStatus.SUCCESS)
+                .amount(250L)
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .transactionDate(date)
+                .build();
+
+        ledgerService.record(transaction);
+
+        ArgumentCaptor<Iterable<LedgerPosting>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(ledgerPostingRepository).saveAll(captor.capture());
+        List<LedgerPosting> postings = new ArrayList<>();
+        captor.getValue().forEach(postings::add);
+
+        assertEquals(2, postings.size());
+        assertEquals(fromCard, postings.get(0).getCardId());
+        assertEquals(-250L, postings.get(0).getAmount());
+        assertEquals(toCard, postings.get(1).getCardId());
+        assertEquals(250L, postings.get(1).getAmount());
+        assertEquals(0L, postings.get(0).getAmount() + postings.get(1).getAmount());
+        postings.forEach(posting -> {
+            assertEquals(transaction.getId(), posting.getTransactionId());
+            assertEquals(date, posting.getPostedAt());
+        });
+    }
+
+    @Test
+    void advanceCheckpoints_lockHeldByAnotherNode_skips() {
+        when(ledgerPostingRepository.tryLockCheckpoints()).thenReturn(false);
+
+        ledgerService.advanceCheckpoints();
+
+        verify(ledgerPostingRepository, never()).advanceCheckpoints();
+    }
+
+    @Test
+    void advanceCheckpoints_lockAcquired_advances() {
+        when(ledgerPostingRepository.tryLockCheckpoints()).thenReturn(true);
+        when(ledgerPostingRepository.advanceCheckpoints()).thenReturn(3);
+
+        ledgerService.advanceCheckpoints();
+
+        verify(ledgerPostingRepository).advanceCheckpoints();
+    }
+
+    @Test
+    void advanceTurnover_lockAcquired_foldsPostings() {
+        when(ledgerPostingRepository.tryLockTurnover()).thenReturn(true);
+
+        ledgerService.advanceTurnover();
+
+        verify(ledgerPostingRepository).advanceTurnover();
+    }
+
+    @Test
+    void advanceTurnover_lockHeldByAnotherNode_skips() {
+        when(ledgerPostingRepository.tryLockTurnover()).thenReturn(false);
+
+        ledgerService.advanceTurnover();
+
+        verify(ledgerPostingRepository, never()).advanceTurnover();
+    }
+}
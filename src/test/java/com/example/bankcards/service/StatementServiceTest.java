@@ -0,0 +1,157 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.statement.StatementFormat;
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.SecurityUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StatementServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private SecurityUtil securityUtil;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StatementService statementService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cardId = UUID.randomUUID();
+    private final LocalDate from = LocalDate.of(2025, 1, 1);
+    private final LocalDate to = LocalDate.of(2025, 12, 31);
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        statementService = new StatementService(transactionRepository, cardRepository, securityUtil,
+                transactionMapper, objectMapper, entityManager, transactionManager);
+        lenient().when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        lenient().when(cardRepository.existsByIdAndUserId(cardId, userId)).thenReturn(true);
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    @Test
+    void exportStatement_csv_writesHeaderAndMaskedRowsAndDetachesEntities() throws Exception {
+        Transaction first = transaction(100L);
+        Transaction second = transaction(250L);
+
+        when(transactionRepository.streamStatement(cardId,
+                Instant.parse("2025-01-01T00:00:00Z"), Instant.parse("2026-01-01T00:00:00Z")))
+                .thenReturn(Stream.of(first, second));
+        when(transactionMapper.toDto(any())).thenAnswer(invocation -> dto(invocation.getArgument(0)));
+
+        String output = run(statementService.exportStatement(cardId, from, to, StatementFormat.CSV));
+
+        String[] lines = output.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,status,amount,from_card,to_card,transaction_date,balance_after,failure_reason", lines[0]);
+        assertTrue(lines[1].contains(",SUCCESS,100,**** **** **** 1111,**** **** **** 2222,"));
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void exportStatement_ndjson_writesOneJsonObjectPerLine() throws Exception {
+        Transaction first = transaction(100L);
+
+        when(transactionRepository.streamStatement(any(), any(), any())).thenReturn(Stream.of(first));
+        when(transactionMapper.toDto(any())).thenAnswer(invocation -> dto(invocation.getArgument(0)));
+
+        String output = run(statementService.exportStatement(cardId, from, to, StatementFormat.NDJSON));
+
+        assertTrue(output.startsWith("{"));
+        assertTrue(output.endsWith("}\n"));
+        assertTrue(output.contains("\"fromCard\":\"**** **** **** 1111\""));
+    }
+
+    @Test
+    void exportStatement_foreignCard_throwsNotFoundException() {
+        UUID foreignCardId = UUID.randomUUID();
+
+        when(cardRepository.existsByIdAndUserId(foreignCardId, userId)).thenReturn(false);
+
+        assertThrows(NotFoundException.class,
+                () -> statementService.exportStatement(foreignCardId, from, to, StatementFormat.CSV));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void exportStatement_fromAfterTo_throwsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> statementService.exportStatement(cardId, to, from, StatementFormat.CSV));
+    }
+
+    private String run(StreamingResponseBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Transaction transaction(long amount) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .status(TransactionStatus.SUCCESS)
+                .amount(amount)
+                .fromCard(cardId)
+                .fromCardLast4("1111")
+                .toCard(UUID.randomUUID())
+                .toCardLast4("2222")
+                .transactionDate(Instant.parse("2025-06-01T12:00:00Z"))
+                .balanceAfter(1000L)
+                .build();
+    }
+
+    private ResponseTransferDto dto(Transaction transaction) {
+        return ResponseTransferDto.builder()
+                .id(transaction.getId())
+                .status(transaction.getStatus())
+                .amount(transaction.getAmount())
+                .fromCard("**** **** **** " + transaction.getFromCardLast4())
+                .toCard("**** **** **** " + transaction.getToCardLast4())
+                .transactionDate(transaction.getTransactionDate())
+                .balanceAfter(transaction.getBalanceAfter())
+                .build();
+    }
+}
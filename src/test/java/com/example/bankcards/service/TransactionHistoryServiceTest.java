@@ -0,0 +1,127 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.history.ResponseTransactionPageDto;
+import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.mapper.TransactionMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.SecurityUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionHistoryServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private SecurityUtil securityUtil;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    @InjectMocks
+    private TransactionHistoryService transactionHistoryService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        lenient().when(cardRepository.existsByIdAndUserId(cardId, userId)).thenReturn(true);
+        lenient().when(transactionMapper.toDto(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            return ResponseTransferDto.builder().id(transaction.getId()).build();
+        });
+    }
+
+    @Test
+    void getCardHistory_firstPage_returnsCursorOfLastRow() {
+        Transaction newest = transaction(Instant.parse("2025-03-02T10:00:00Z"));
+        Transaction middle = transaction(Instant.parse("2025-03-01T10:00:00Z"));
+        Transaction oldest = transaction(Instant.parse("2025-02-28T10:00:00Z"));
+
+        when(transactionRepository.findCardHistory(cardId, 3)).thenReturn(List.of(newest, middle, oldest));
+
+        ResponseTransactionPageDto result = transactionHistoryService.getCardHistory(cardId, null, 2);
+
+        assertEquals(2, result.getContent().size());
+        assertEquals(newest.getId(), result.getContent().get(0).getId());
+        assertEquals(middle.getId(), result.getContent().get(1).getId());
+        assertEquals(transactionHistoryService.encodeCursor(middle), result.getNextCursor());
+    }
+
+    @Test
+    void getCardHistory_withCursor_seeksPastCursorPosition() {
+        Transaction position = transaction(Instant.parse("2025-03-01T10:00:00.123456Z"));
+        Transaction older = transaction(Instant.parse("2025-02-28T10:00:00Z"));
+        String cursor = transactionHistoryService.encodeCursor(position);
+
+        when(transactionRepository.findCardHistoryBefore(cardId, position.getTransactionDate(), position.getId(), 3))
+                .thenReturn(List.of(older));
+
+        ResponseTransactionPageDto result = transactionHistoryService.getCardHistory(cardId, cursor, 2);
+
+        assertEquals(1, result.getContent().size());
+        assertNull(result.getNextCursor());
+        verify(transactionRepository, never()).findCardHistory(any(), anyInt());
+    }
+
+    @Test
+    void getCardHistory_foreignCard_throwsNotFoundException() {
+        UUID foreignCardId = UUID.randomUUID();
+
+        when(cardRepository.existsByIdAndUserId(foreignCardId, userId)).thenReturn(false);
+
+        assertThrows(NotFoundException.class,
+                () -> transactionHistoryService.getCardHistory(foreignCardId, null, 20));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void getCardHistory_malformedCursor_throwsBadRequestException() {
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> transactionHistoryService.getCardHistory(cardId, "not-a-cursor", 20));
+
+        assertEquals("invalid cursor", ex.getMessage());
+    }
+
+    @Test
+    void getCardHistory_sizeOutOfRange_throwsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> transactionHistoryService.getCardHistory(cardId, null, 0));
+        assertThrows(BadRequestException.class,
+                () -> transactionHistoryService.getCardHistory(cardId, null, 101));
+    }
+
+    private Transaction transaction(Instant date) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .amount(10L)
+                .fromCard(cardId)
+                .toCard(UUID.randomUUID())
+                .transactionDate(date)
+                .build();
+    }
+}
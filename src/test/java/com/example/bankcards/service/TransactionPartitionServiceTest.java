@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionPartitionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final YearMonth current = YearMonth.of(2025, 3);
+
+    @Test
+    void maintainPartitions_createsCurrentAndUpcomingMonths() {
+        TransactionPartitionService service = service(2, 0);
+        lockAcquired(true);
+
+        service.maintainPartitions(current);
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(3)).execute(captor.capture());
+        assertEquals(List.of(
+                "CREATE TABLE IF NOT EXISTS transactions_2025_03 PARTITION OF transactions FOR VALUES FROM ('2025-03-01') TO ('2025-04-01')",
+                "CREATE TABLE IF NOT EXISTS transactions_2025_04 PARTITION OF transactions FOR VALUES FROM ('2025-04-01') TO ('2025-05-01')",
+                "CREATE TABLE IF NOT EXISTS transactions_2025_05 PARTITION OF transactions FOR VALUES FROM ('2025-05-01') TO ('2025-06-01')"
+        ), captor.getAllValues());
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class));
+    }
+
+    @Test
+    void maintainPartitions_retentionSet_archivesOnlyOlderPartitions() {
+        TransactionPartitionService service = service(0, 12);
+        lockAcquired(true);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("transactions_2024_02", "transactions_2024_03", "transactions_2025_03"));
+
+        service.maintainPartitions(current);
+
+        verify(jdbcTemplate).execute("ALTER TABLE transactions DETACH PARTITION transactions_2024_02");
+        verify(jdbcTemplate).execute("ALTER TABLE transactions_2024_02 SET SCHEMA transactions_archive");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE transactions DETACH PARTITION transactions_2024_03");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE transactions DETACH PARTITION transactions_2025_03");
+    }
+
+    @Test
+    void maintainPartitions_lockHeldByAnotherNode_doesNothing() {
+        TransactionPartitionService service = service(3, 12);
+        lockAcquired(false);
+
+        service.maintainPartitions(current);
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void partitionMonth_unknownName_returnsNull() {
+        assertNull(TransactionPartitionService.partitionMonth("transactions_default"));
+        assertNull(TransactionPartitionService.partitionMonth("other_2025_03"));
+        assertEquals(current, TransactionPartitionService.partitionMonth(TransactionPartitionService.partitionName(current)));
+    }
+
+    private TransactionPartitionService service(int monthsAhead, int retentionMonths) {
+        return new TransactionPartitionService(jdbcTemplate, transactionManager, monthsAhead, retentionMonths);
+    }
+
+    private void lockAcquired(boolean locked) {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(locked);
+    }
+}
@@ -5,24 +5,56 @@ import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
 import com.example.bankcards.dto.transaction.transfer.RequestTransferDto;
 import com.example.bankcards.dto.transaction.transfer.ResponseTransferDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.NotEnoughBalanceException;
 import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.exception.TransferLimitExceededException;
 import com.example.bankcards.mapper.TransactionMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.projection.AtomicTransferResult;
+import com.example.bankcards.repository.projection.CardBalanceView;
+import com.example.bankcards.service.balance.BalanceEngine;
+import com.example.bankcards.service.card.CardCache;
+import com.example.bankcards.service.card.ShardedBalanceService;
+import com.example.bankcards.service.limit.TransferLimitService;
+import com.example.bankcards.service.transfer.GroupCommitExecutor;
+import com.example.bankcards.service.transfer.TransferConcurrencyMode;
+import com.example.bankcards.service.transfer.TransferExecutor;
 import com.example.bankcards.util.SecurityUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,9 +72,46 @@ public class TransactionServiceTest {
     @Mock
     private TransactionMapper transactionMapper;
 
+    @Mock
+    private TransferExecutor transferExecutor;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private GroupCommitExecutor groupCommitExecutor;
+
+    @Mock
+    private ShardedBalanceService shardedBalanceService;
+
+    @Mock
+    private ObjectProvider<BalanceEngine> balanceEngine;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private TransferLimitService transferLimitService;
+
+    @Spy
+    private CardCache cardCache = new CardCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private TransactionService transactionService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(transferExecutor.getMode()).thenReturn(TransferConcurrencyMode.OPTIMISTIC);
+        lenient().when(transferExecutor.execute(any())).thenAnswer(invocation -> {
+            Supplier<?> action = invocation.getArgument(0);
+            return action.get();
+        });
+        lenient().when(shardedBalanceService.totalBalance(any())).thenAnswer(invocation -> {
+            Card card = invocation.getArgument(0);
+            return card.getBalance();
+        });
+    }
+
     @Test
     void transferByUser_success() {
         UUID userId = UUID.randomUUID();
@@ -81,13 +150,43 @@ public class TransactionServiceTest {
 
         when(transactionMapper.toDto(any())).thenReturn(expectedResponse);
 
-        ResponseTransferDto result = transactionService.transferByUser(dto);
+        ResponseTransferDto result = transactionService.transferByUser(dto, null);
 
         assertEquals("**** **** **** 4444", result.getFromCard());
         assertEquals("**** **** **** 8888", result.getToCard());
         assertEquals(100L, result.getAmount());
 
         verify(transactionRepository, times(1)).save(any());
+        verify(ledgerService).record(any());
+    }
+
+    @Test
+    void transferByUser_limitExceeded_keepsBalancesAndSavesNothing() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder().id(fromCardId).balance(500L).userId(userId).build();
+        Card toCard = Card.builder().id(toCardId).balance(200L).userId(userId).build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
+        when(transferLimitService.acquire(userId, fromCardId, 100L))
+                .thenThrow(new TransferLimitExceededException("card daily transfer limit exceeded"));
+
+        assertThrows(TransferLimitExceededException.class, () -> transactionService.transferByUser(dto, null));
+
+        assertEquals(500L, fromCard.getBalance());
+        assertEquals(200L, toCard.getBalance());
+        verify(transactionRepository, never()).save(any());
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
@@ -106,7 +205,7 @@ public class TransactionServiceTest {
         when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.empty());
 
         NotFoundException exception = assertThrows(NotFoundException.class,
-                () -> transactionService.transferByUser(dto));
+                () -> transactionService.transferByUser(dto, null));
 
         assertEquals("sender card not found or not yours", exception.getMessage());
     }
@@ -135,7 +234,7 @@ public class TransactionServiceTest {
         when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.empty());
 
         NotFoundException exception = assertThrows(NotFoundException.class,
-                () -> transactionService.transferByUser(dto));
+                () -> transactionService.transferByUser(dto, null));
 
         assertEquals("receiver card not found or not yours", exception.getMessage());
     }
@@ -171,11 +270,523 @@ public class TransactionServiceTest {
         when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
 
         NotEnoughBalanceException exception = assertThrows(NotEnoughBalanceException.class,
-                () -> transactionService.transferByUser(dto));
+                () -> transactionService.transferByUser(dto, null));
 
         assertEquals("not enough balance for transaction", exception.getMessage());
     }
 
+    @Test
+    void transferByUser_pessimisticMode_locksBothCardsInOneQuery() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder()
+                .id(fromCardId)
+                .last4("4444")
+                .balance(500L)
+                .userId(userId)
+                .build();
+
+        Card toCard = Card.builder()
+                .id(toCardId)
+                .last4("8888")
+                .balance(200L)
+                .userId(userId)
+                .build();
+
+        when(transferExecutor.getMode()).thenReturn(TransferConcurrencyMode.PESSIMISTIC);
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findAllByIdInForUpdate(anyCollection())).thenReturn(List.of(fromCard, toCard));
+        when(transactionMapper.toDto(any())).thenReturn(ResponseTransferDto.builder().amount(100L).build());
+
+        transactionService.transferByUser(dto, null);
+
+        assertEquals(400L, fromCard.getBalance());
+        assertEquals(300L, toCard.getBalance());
+        verify(cardRepository, never()).findByIdAndUserId(any(), any());
+        verify(transactionRepository, times(1)).save(any());
+    }
+
+    @Test
+    void transferByUser_pessimisticMode_foreignReceiverCard_throwsNotFoundException() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder()
+                .id(fromCardId)
+                .balance(500L)
+                .userId(userId)
+                .build();
+
+        Card foreignCard = Card.builder()
+                .id(toCardId)
+                .balance(200L)
+                .userId(UUID.randomUUID())
+                .build();
+
+        when(transferExecutor.getMode()).thenReturn(TransferConcurrencyMode.PESSIMISTIC);
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findAllByIdInForUpdate(anyCollection())).thenReturn(List.of(fromCard, foreignCard));
+
+        NotFoundException exception = assertThrows(NotFoundException.class,
+                () -> transactionService.transferByUser(dto, null));
+
+        assertEquals("receiver card not found or not yours", exception.getMessage());
+        assertEquals(500L, fromCard.getBalance());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferByUser_atomicUpdateMode_usesSingleStatement() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        AtomicTransferResult result = mock(AtomicTransferResult.class);
+        when(result.getFromCardLast4()).thenReturn("4444");
+        when(result.getToCardLast4()).thenReturn("8888");
+        when(result.getBalanceAfter()).thenReturn(400L);
+
+        when(transferExecutor.getMode()).thenReturn(TransferConcurrencyMode.ATOMIC_UPDATE);
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(transactionRepository.transferAtomically(any(), eq(userId), eq(fromCardId), eq(toCardId), eq(100L), any()))
+                .thenReturn(Optional.of(result));
+        when(transactionMapper.toDto(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            return ResponseTransferDto.builder()
+                    .id(transaction.getId())
+                    .amount(transaction.getAmount())
+                    .balanceAfter(transaction.getBalanceAfter())
+                    .build();
+        });
+
+        ResponseTransferDto response = transactionService.transferByUser(dto, null);
+
+        assertEquals(400L, response.getBalanceAfter());
+        assertEquals(100L, response.getAmount());
+        verifyNoInteractions(cardRepository);
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferByUser_atomicUpdateMode_noRowsAndLowBalance_throwsNotEnoughBalanceException() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(1000L)
+                .build();
+
+        Card fromCard = Card.builder()
+                .id(fromCardId)
+                .status(CardStatus.ACTIVE)
+                .balance(500L)
+                .userId(userId)
+                .build();
+
+        Card toCard = Card.builder()
+                .id(toCardId)
+                .status(CardStatus.ACTIVE)
+                .balance(200L)
+                .userId(userId)
+                .build();
+
+        when(transferExecutor.getMode()).thenReturn(TransferConcurrencyMode.ATOMIC_UPDATE);
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(transactionRepository.transferAtomically(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
+
+        NotEnoughBalanceException exception = assertThrows(NotEnoughBalanceException.class,
+                () -> transactionService.transferByUser(dto, null));
+
+        assertEquals("not enough balance for transaction", exception.getMessage());
+    }
+
+    @Test
+    void transferByUser_atomicUpdateMode_noRowsAndMissingReceiver_throwsNotFoundException() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder()
+                .id(fromCardId)
+                .status(CardStatus.ACTIVE)
+                .balance(500L)
+                .userId(userId)
+                .build();
+
+        when(transferExecutor.getMode()).thenReturn(TransferConcurrencyMode.ATOMIC_UPDATE);
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(transactionRepository.transferAtomically(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.empty());
+
+        NotFoundException exception = assertThrows(NotFoundException.class,
+                () -> transactionService.transferByUser(dto, null));
+
+        assertEquals("receiver card not found or not yours", exception.getMessage());
+    }
+
+    @Test
+    void transferByUser_replayedIdempotencyKey_returnsStoredResponseWithoutTouchingCards() {
+        UUID userId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(UUID.randomUUID())
+                .toCard(UUID.randomUUID())
+                .amount(100L)
+                .build();
+
+        ResponseTransferDto stored = ResponseTransferDto.builder()
+                .id(UUID.randomUUID())
+                .amount(100L)
+                .balanceAfter(400L)
+                .build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(idempotencyService.findResponse(userId, "key-1", dto)).thenReturn(Optional.of(stored));
+
+        ResponseTransferDto response = transactionService.transferByUser(dto, "key-1");
+
+        assertEquals(stored, response);
+        verifyNoInteractions(cardRepository, transferExecutor);
+        verify(idempotencyService, never()).reserve(any(), any());
+    }
+
+    @Test
+    void transferByUser_newIdempotencyKey_reservesAndStoresResponse() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder().id(fromCardId).balance(500L).userId(userId).build();
+        Card toCard = Card.builder().id(toCardId).balance(200L).userId(userId).build();
+        IdempotencyKey record = IdempotencyKey.builder().userId(userId).key("key-1").build();
+        ResponseTransferDto expected = ResponseTransferDto.builder().id(UUID.randomUUID()).amount(100L).build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(idempotencyService.findResponse(userId, "key-1", dto)).thenReturn(Optional.empty());
+        when(idempotencyService.reserve(userId, "key-1")).thenReturn(record);
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
+        when(transactionMapper.toDto(any())).thenReturn(expected);
+
+        ResponseTransferDto response = transactionService.transferByUser(dto, "key-1");
+
+        assertEquals(expected, response);
+        assertEquals(400L, fromCard.getBalance());
+        verify(idempotencyService).complete(record, expected);
+        verify(idempotencyService).remember(userId, "key-1", dto, expected);
+    }
+
+    @Test
+    void transferByUser_concurrentDuplicateKey_returnsWinnerResponse() {
+        UUID userId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(UUID.randomUUID())
+                .toCard(UUID.randomUUID())
+                .amount(100L)
+                .build();
+
+        ResponseTransferDto winner = ResponseTransferDto.builder().id(UUID.randomUUID()).amount(100L).build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(idempotencyService.findResponse(userId, "key-1", dto))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(idempotencyService.reserve(userId, "key-1"))
+                .thenThrow(constraintViolation(IdempotencyService.UNIQUE_KEY_INDEX));
+
+        ResponseTransferDto response = transactionService.transferByUser(dto, "key-1");
+
+        assertEquals(winner, response);
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void transferByUser_otherConstraintViolated_rethrows() {
+        UUID userId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(UUID.randomUUID())
+                .toCard(UUID.randomUUID())
+                .amount(100L)
+                .build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(idempotencyService.findResponse(userId, "key-1", dto)).thenReturn(Optional.empty());
+        when(idempotencyService.reserve(userId, "key-1"))
+                .thenThrow(constraintViolation("fk_ledger_postings_card"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> transactionService.transferByUser(dto, "key-1"));
+        verify(idempotencyService, times(1)).findResponse(userId, "key-1", dto);
+    }
+
+    @Test
+    void transferByUser_asyncEnabled_savesPendingWithoutTouchingBalances() {
+        ReflectionTestUtils.setField(transactionService, "asyncEnabled", true);
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(1000L)
+                .build();
+
+        Card fromCard = Card.builder().id(fromCardId).last4("4444").balance(500L).userId(userId).build();
+        Card toCard = Card.builder().id(toCardId).last4("8888").balance(200L).userId(userId).build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
+        when(transactionMapper.toDto(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            return ResponseTransferDto.builder()
+                    .status(transaction.getStatus())
+                    .amount(transaction.getAmount())
+                    .balanceAfter(transaction.getBalanceAfter())
+                    .build();
+        });
+
+        ResponseTransferDto response = transactionService.transferByUser(dto, null);
+
+        assertEquals(TransactionStatus.PENDING, response.getStatus());
+        assertEquals(500L, fromCard.getBalance());
+        assertEquals(200L, toCard.getBalance());
+        verify(transactionRepository).save(argThat(transaction ->
+                transaction.getStatus() == TransactionStatus.PENDING && transaction.getBalanceAfter() == null));
+    }
+
+    @Test
+    void getTransferByUser_notOwner_throwsNotFoundException() {
+        UUID userId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .fromCard(UUID.randomUUID())
+                .build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(cardRepository.findByIdAndUserId(transaction.getFromCard(), userId)).thenReturn(Optional.empty());
+
+        NotFoundException exception = assertThrows(NotFoundException.class,
+                () -> transactionService.getTransferByUser(transactionId));
+
+        assertEquals("transfer not found or not yours", exception.getMessage());
+    }
+
+    @Test
+    void transfer_groupCommitEnabled_appliesTransferOnBatchLockedCards() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder().id(fromCardId).balance(500L).userId(userId).build();
+        Card toCard = Card.builder().id(toCardId).balance(200L).userId(userId).build();
+        ResponseTransferDto expected = ResponseTransferDto.builder().amount(100L).build();
+
+        when(groupCommitExecutor.isEnabled()).thenReturn(true);
+        when(groupCommitExecutor.submit(anyCollection(), any(), any())).thenAnswer(invocation -> {
+            Function<Map<UUID, Card>, ?> work = invocation.getArgument(2);
+            return work.apply(Map.of(fromCardId, fromCard, toCardId, toCard));
+        });
+        when(transactionMapper.toDto(any())).thenReturn(expected);
+
+        ResponseTransferDto response = transactionService.transfer(userId, dto);
+
+        assertEquals(expected, response);
+        assertEquals(400L, fromCard.getBalance());
+        assertEquals(300L, toCard.getBalance());
+        verifyNoInteractions(transferExecutor);
+    }
+
+    @Test
+    void transferByUser_hotReceiver_creditsShardWithoutLockingReceiver() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder().id(fromCardId).balance(500L).userId(userId).build();
+        Card toCard = Card.builder().id(toCardId).balance(200L).balanceShards(8).userId(userId).build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(shardedBalanceService.isHot(toCardId)).thenReturn(true);
+        when(cardRepository.findAllByIdInForUpdate(List.of(fromCardId))).thenReturn(List.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
+        when(shardedBalanceService.creditShard(toCardId, 100L)).thenReturn(true);
+        when(transactionMapper.toDto(any())).thenReturn(ResponseTransferDto.builder().build());
+
+        transactionService.transferByUser(dto, null);
+
+        assertEquals(400L, fromCard.getBalance());
+        assertEquals(200L, toCard.getBalance());
+        verify(shardedBalanceService).creditShard(toCardId, 100L);
+        verify(cardRepository, never()).creditBalance(any(), anyLong());
+    }
+
+    @Test
+    void transferByUser_hotSender_balanceAfterIncludesUnfoldedShards() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        Card fromCard = Card.builder().id(fromCardId).balance(500L).balanceShards(4).userId(userId).build();
+        Card toCard = Card.builder().id(toCardId).balance(200L).userId(userId).build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
+        // 300 лежат в шардах отправителя и при достаточном cards.balance не сворачиваются
+        when(shardedBalanceService.totalBalance(fromCard)).thenAnswer(invocation -> fromCard.getBalance() + 300L);
+        when(transactionMapper.toDto(any())).thenReturn(ResponseTransferDto.builder().build());
+
+        transactionService.transferByUser(dto, null);
+
+        verify(transactionRepository).save(argThat(transaction -> transaction.getBalanceAfter() == 700L));
+        assertEquals(400L, fromCard.getBalance());
+    }
+
+    @Test
+    void transfer_balanceEngine_bypassesDatabaseTransaction() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+
+        RequestTransferDto dto = RequestTransferDto.builder()
+                .fromCard(fromCardId)
+                .toCard(toCardId)
+                .amount(100L)
+                .build();
+
+        BalanceEngine engine = mock(BalanceEngine.class);
+        Transaction transaction = Transaction.builder()
+                .id(UUID.randomUUID())
+                .fromCardLast4("4444")
+                .toCardLast4("8888")
+                .balanceAfter(400L)
+                .build();
+        ResponseTransferDto expected = ResponseTransferDto.builder().balanceAfter(400L).build();
+
+        when(balanceEngine.getIfAvailable()).thenReturn(engine);
+        when(engine.transfer(userId, fromCardId, toCardId, 100L)).thenReturn(transaction);
+        when(transactionMapper.toDto(transaction)).thenReturn(expected);
+
+        ResponseTransferDto response = transactionService.transfer(userId, dto);
+
+        assertEquals(expected, response);
+        verifyNoInteractions(transferExecutor, cardRepository, transactionRepository);
+    }
+
+    @Test
+    void transferByUser_idempotencyKeyWithBalanceEngine_throwsBadRequestException() {
+        UUID userId = UUID.randomUUID();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(balanceEngine.getIfAvailable()).thenReturn(mock(BalanceEngine.class));
+
+        assertThrows(BadRequestException.class, () -> transactionService.transferByUser(RequestTransferDto.builder()
+                .fromCard(UUID.randomUUID()).toCard(UUID.randomUUID()).amount(100L).build(), "key-1"));
+
+        verifyNoInteractions(idempotencyService, transferExecutor);
+    }
+
+    @Test
+    void transfer_balanceEngineRejects_releasesLimit() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+        BalanceEngine engine = mock(BalanceEngine.class);
+
+        when(balanceEngine.getIfAvailable()).thenReturn(engine);
+        when(transferLimitService.acquire(userId, fromCardId, 100L)).thenReturn(42L);
+        when(engine.transfer(userId, fromCardId, toCardId, 100L))
+                .thenThrow(new NotEnoughBalanceException("not enough balance for transaction"));
+
+        assertThrows(NotEnoughBalanceException.class, () -> transactionService.transfer(userId,
+                RequestTransferDto.builder().fromCard(fromCardId).toCard(toCardId).amount(100L).build()));
+
+        verify(transferLimitService).release(userId, fromCardId, 100L, 42L);
+    }
+
+    @Test
+    void performTransfer_balanceEngineRejectsInsideTransaction_leavesReleaseToRollback() {
+        UUID userId = UUID.randomUUID();
+        Card fromCard = Card.builder().id(UUID.randomUUID()).balance(500L).userId(userId).build();
+        Card toCard = Card.builder().id(UUID.randomUUID()).balance(0L).userId(userId).build();
+        BalanceEngine engine = mock(BalanceEngine.class);
+
+        when(balanceEngine.getIfAvailable()).thenReturn(engine);
+        when(engine.transfer(userId, fromCard.getId(), toCard.getId(), 100L))
+                .thenThrow(new NotEnoughBalanceException("not enough balance for transaction"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(NotEnoughBalanceException.class, () -> transactionService.performTransfer(fromCard, toCard, 100L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(transferLimitService, never()).release(any(), any(), anyLong(), anyLong());
+    }
+
     @Test
     void checkBalanceByUser_success() {
         UUID userId = UUID.randomUUID();
@@ -190,7 +801,8 @@ public class TransactionServiceTest {
                 .build();
 
         when(securityUtil.getCurrentUserId()).thenReturn(userId);
-        when(cardRepository.findByIdAndUserId(cardId, userId)).thenReturn(Optional.of(card));
+        when(cardRepository.findBalanceByIdAndUserId(cardId, userId))
+                .thenReturn(Optional.of(balanceView(card.getLast4(), card.getBalance())));
 
         ResponseBalanceDto result = transactionService.checkBalanceByUser(cardId);
 
@@ -204,11 +816,56 @@ public class TransactionServiceTest {
         UUID cardId = UUID.randomUUID();
 
         when(securityUtil.getCurrentUserId()).thenReturn(userId);
-        when(cardRepository.findByIdAndUserId(cardId, userId)).thenReturn(Optional.empty());
+        when(cardRepository.findBalanceByIdAndUserId(cardId, userId)).thenReturn(Optional.empty());
 
         NotFoundException exception = assertThrows(NotFoundException.class,
                 () -> transactionService.checkBalanceByUser(cardId));
 
         assertEquals("card not found or not yours", exception.getMessage());
     }
+
+    @Test
+    void checkBalanceByUser_repeatedCall_servedFromCacheUntilTransferCommits() {
+        UUID userId = UUID.randomUUID();
+        UUID fromCardId = UUID.randomUUID();
+        UUID toCardId = UUID.randomUUID();
+        Card fromCard = Card.builder().id(fromCardId).last4("4444").balance(500L)
+                .status(CardStatus.ACTIVE).userId(userId).build();
+        Card toCard = Card.builder().id(toCardId).last4("8888").balance(0L)
+                .status(CardStatus.ACTIVE).userId(userId).build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdAndUserId(toCardId, userId)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findBalanceByIdAndUserId(fromCardId, userId))
+                .thenAnswer(invocation -> Optional.of(balanceView(fromCard.getLast4(), fromCard.getBalance())));
+
+        transactionService.checkBalanceByUser(fromCardId);
+        assertEquals(500L, transactionService.checkBalanceByUser(fromCardId).getBalance());
+        verify(cardRepository, times(1)).findBalanceByIdAndUserId(fromCardId, userId);
+
+        transactionService.transferByUser(RequestTransferDto.builder()
+                .fromCard(fromCardId).toCard(toCardId).amount(100L).build(), null);
+
+        assertEquals(400L, transactionService.checkBalanceByUser(fromCardId).getBalance());
+    }
+
+    private static DataIntegrityViolationException constraintViolation(String constraintName) {
+        return new DataIntegrityViolationException("constraint violated", new ConstraintViolationException(
+                "constraint violated", new SQLException("constraint violated", "23505"), constraintName));
+    }
+
+    private static CardBalanceView balanceView(String last4, long balance) {
+        return new CardBalanceView() {
+            @Override
+            public String getLast4() {
+                return last4;
+            }
+
+            @Override
+            public Long getBalance() {
+                return balance;
+            }
+        };
+    }
 }
@@ -0,0 +1,88 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.turnover.ResponseTurnoverDto;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerPostingRepository;
+import com.example.bankcards.repository.projection.MonthlyTurnover;
+import com.example.bankcards.util.SecurityUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TurnoverServiceTest {
+
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private SecurityUtil securityUtil;
+
+    @InjectMocks
+    private TurnoverService turnoverService;
+
+    @Test
+    void getMonthlyTurnover_success_readsRequestedMonths() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        MonthlyTurnover march = mock(MonthlyTurnover.class);
+        when(march.getMonth()).thenReturn("2025-03");
+        when(march.getIncomingAmount()).thenReturn(500L);
+        when(march.getIncomingCount()).thenReturn(2L);
+        when(march.getOutgoingAmount()).thenReturn(120L);
+        when(march.getOutgoingCount()).thenReturn(1L);
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.existsByIdAndUserId(cardId, userId)).thenReturn(true);
+        when(ledgerPostingRepository.findTurnover(cardId, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 1)))
+                .thenReturn(List.of(march));
+
+        List<ResponseTurnoverDto> result = turnoverService.getMonthlyTurnover(cardId,
+                YearMonth.of(2025, 1), YearMonth.of(2025, 3));
+
+        assertEquals(1, result.size());
+        assertEquals("2025-03", result.get(0).getMonth());
+        assertEquals(500L, result.get(0).getIncomingAmount());
+        assertEquals(2L, result.get(0).getIncomingCount());
+        assertEquals(120L, result.get(0).getOutgoingAmount());
+        assertEquals(1L, result.get(0).getOutgoingCount());
+    }
+
+    @Test
+    void getMonthlyTurnover_foreignCard_throwsNotFoundException() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.existsByIdAndUserId(cardId, userId)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> turnoverService.getMonthlyTurnover(cardId, null, null));
+        verifyNoInteractions(ledgerPostingRepository);
+    }
+
+    @Test
+    void getMonthlyTurnover_invalidPeriod_throwsBadRequestException() {
+        UUID cardId = UUID.randomUUID();
+
+        assertThrows(BadRequestException.class, () -> turnoverService.getMonthlyTurnover(cardId,
+                YearMonth.of(2025, 5), YearMonth.of(2025, 3)));
+        assertThrows(BadRequestException.class, () -> turnoverService.getMonthlyTurnover(cardId,
+                YearMonth.of(2010, 1), YearMonth.of(2025, 3)));
+        verifyNoInteractions(cardRepository);
+    }
+}
@@ -8,6 +8,9 @@ import com.example.bankcards.exception.ConflictException;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.service.TokenRevocationService;
+import com.example.bankcards.security.service.UserChange;
+import com.example.bankcards.security.service.UserChangePublisher;
 import com.example.bankcards.util.SecurityUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,11 +18,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +43,12 @@ public class UserServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private UserChangePublisher userChangePublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -42,6 +57,7 @@ public class UserServiceTest {
         UUID userId = UUID.randomUUID();
         User user = User.builder()
                 .id(userId)
+                .email("user@example.com")
                 .isEnabled(true)
                 .build();
 
@@ -54,6 +70,9 @@ public class UserServiceTest {
         assertFalse(user.isEnabled());
         assertEquals(userId, response.getId());
         verify(userRepository).save(user);
+        verify(tokenRevocationService).disableUser(userId);
+        verify(userChangePublisher).publish(argThat(change ->
+                change.userId().equals(userId) && change.type() == UserChange.Type.DISABLED));
     }
 
     @Test
@@ -68,6 +87,7 @@ public class UserServiceTest {
 
         ConflictException exception = assertThrows(ConflictException.class, () -> userService.disableUser(userId));
         assertEquals("user already disabled", exception.getMessage());
+        verifyNoInteractions(tokenRevocationService, userChangePublisher);
     }
 
     @Test
@@ -84,6 +104,7 @@ public class UserServiceTest {
         UUID userId = UUID.randomUUID();
         User user = User.builder()
                 .id(userId)
+                .email("user@example.com")
                 .isEnabled(false)
                 .build();
 
@@ -96,6 +117,9 @@ public class UserServiceTest {
         assertTrue(user.isEnabled());
         assertEquals(userId, response.getId());
         verify(userRepository).save(user);
+        verify(tokenRevocationService).enableUser(userId);
+        verify(userChangePublisher).publish(argThat(change ->
+                change.userId().equals(userId) && change.type() == UserChange.Type.ENABLED));
     }
 
     @Test
@@ -140,6 +164,10 @@ public class UserServiceTest {
         assertEquals(UserRole.ADMIN, user.getRole());
         assertEquals(userId, response.getId());
         verify(userRepository).save(user);
+        verify(tokenRevocationService).revokeIssuedBefore(eq(userId), any(Instant.class));
+        // Кеш должен сбросить запись и под старым, и под новым адресом
+        verify(userChangePublisher).publish(argThat(change -> change.type() == UserChange.Type.UPDATED
+                && change.emails().equals(List.of("old@example.com", "new@example.com"))));
     }
 
     @Test
@@ -0,0 +1,70 @@
+package com.example.bankcards.service.balance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BalanceJournalTest {
+
+    private static final int SIZE = BalanceJournal.HEADER_SIZE + 4 * BalanceJournal.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopen_recoversUnflushedRecords() {
+        Path path = directory.resolve("balance.journal");
+        JournalRecord first = record(100L);
+        JournalRecord second = record(200L);
+
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, false)) {
+            journal.append(first);
+            journal.append(second);
+            journal.markFlushed(BalanceJournal.HEADER_SIZE + BalanceJournal.RECORD_SIZE);
+        }
+
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, false)) {
+            List<JournalRecord> pending = journal.read(journal.flushedPosition(), journal.writePosition());
+            assertEquals(List.of(second), pending);
+        }
+    }
+
+    @Test
+    void reset_oldRecordsNotRecovered() {
+        Path path = directory.resolve("balance.journal");
+
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, false)) {
+            journal.append(record(100L));
+            journal.markFlushed(journal.writePosition());
+            journal.reset();
+        }
+
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, false)) {
+            assertEquals(journal.flushedPosition(), journal.writePosition());
+        }
+    }
+
+    @Test
+    void append_untilFull_reportsNoRoom() {
+        try (BalanceJournal journal = new BalanceJournal(directory.resolve("balance.journal"), SIZE, false)) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(journal.hasRoom());
+                journal.append(record(i));
+            }
+            assertFalse(journal.hasRoom());
+            assertThrows(IllegalStateException.class, journal::reset);
+        }
+    }
+
+    private JournalRecord record(long amount) {
+        return new JournalRecord(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), amount,
+                Instant.now().truncatedTo(ChronoUnit.MICROS), 1000L - amount);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.bankcards.service.balance;
+
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.exception.NotEnoughBalanceException;
+import com.example.bankcards.exception.NotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InMemoryBalanceEngineTest {
+
+    @Mock
+    private CardBalanceStore store;
+
+    @TempDir
+    Path directory;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cardA = UUID.randomUUID();
+    private final UUID cardB = UUID.randomUUID();
+    private InMemoryBalanceEngine engine;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (engine != null) {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void transfer_success_movesBalancesAndFlushesToStore() {
+        engine = start();
+
+        Transaction transaction = engine.transfer(userId, cardA, cardB, 300L);
+
+        assertEquals(200L, transaction.getBalanceAfter());
+        assertEquals("1111", transaction.getFromCardLast4());
+        assertEquals(200L, engine.balance(cardA));
+        assertEquals(400L, engine.balance(cardB));
+
+        engine.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<JournalRecord>> flushed = ArgumentCaptor.forClass(List.class);
+        verify(store).apply(flushed.capture(), any());
+        assertEquals(transaction.getId(), flushed.getValue().get(0).transactionId());
+    }
+
+    @Test
+    void transfer_notEnoughBalance_throwsAndKeepsBalances() {
+        engine = start();
+
+        assertThrows(NotEnoughBalanceException.class, () -> engine.transfer(userId, cardA, cardB, 501L));
+
+        assertEquals(500L, engine.balance(cardA));
+        engine.flush();
+        verify(store, never()).apply(any(), any());
+    }
+
+    @Test
+    void transfer_foreignCard_throwsNotFoundException() {
+        engine = start();
+
+        NotFoundException exception = assertThrows(NotFoundException.class,
+                () -> engine.transfer(UUID.randomUUID(), cardA, cardB, 10L));
+
+        assertEquals("sender card not found or not yours", exception.getMessage());
+    }
+
+    @Test
+    void transfer_cardCreatedAfterStart_loadedFromStore() {
+        engine = start();
+        UUID newCard = UUID.randomUUID();
+        when(store.load(newCard)).thenReturn(Optional.of(new CardAccount(newCard, userId, "3333", CardStatus.ACTIVE, 0L)));
+
+        engine.transfer(userId, cardA, newCard, 50L);
+
+        assertEquals(50L, engine.balance(newCard));
+    }
+
+    @Test
+    void start_unflushedTail_replayedBeforeLoadingBalances() throws InterruptedException {
+        engine = start();
+        doThrow(new IllegalStateException("db is down")).when(store).apply(any(), any());
+        engine.transfer(userId, cardA, cardB, 100L);
+        try {
+            engine.stop();
+        } catch (IllegalStateException expected) {
+            // сброс при остановке не удался, запись осталась в журнале
+        }
+        engine = null;
+
+        clearInvocations(store);
+        doReturn(List.of()).when(store).apply(any(), any());
+        engine = start();
+
+        var order = inOrder(store);
+        order.verify(store).apply(argThat(records -> records.size() == 1 && records.get(0).amount() == 100L), any());
+        order.verify(store).loadAll();
+    }
+
+    @Test
+    void flush_postsAtFlushTimeNotTransferTime() {
+        engine = start();
+        engine.transfer(userId, cardA, cardB, 100L);
+        Instant beforeFlush = Instant.now();
+
+        engine.flush();
+
+        verify(store).apply(any(), argThat(postedAt -> !postedAt.isBefore(beforeFlush)));
+    }
+
+    @Test
+    void transfer_blockedSender_throwsConflictAndKeepsBalances() {
+        engine = start();
+        when(store.load(cardA)).thenReturn(Optional.of(new CardAccount(cardA, userId, "1111", CardStatus.BLOCKED, 500L)));
+
+        engine.refreshCard(cardA);
+        ConflictException exception = assertThrows(ConflictException.class,
+                () -> engine.transfer(userId, cardA, cardB, 100L));
+
+        assertEquals("sender card is not active", exception.getMessage());
+        assertEquals(500L, engine.balance(cardA));
+    }
+
+    @Test
+    void refreshCard_deletedCard_removedFromMemory() {
+        engine = start();
+        when(store.load(cardB)).thenReturn(Optional.empty());
+
+        engine.refreshCard(cardB);
+
+        assertThrows(NotFoundException.class, () -> engine.transfer(userId, cardA, cardB, 100L));
+    }
+
+    @Test
+    void flush_cardMissingInDatabase_parksRecord() {
+        engine = start();
+        Transaction transaction = engine.transfer(userId, cardA, cardB, 100L);
+        when(store.apply(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        engine.flush();
+
+        verify(store).park(argThat(record -> record.transactionId().equals(transaction.getId())),
+                eq("card no longer exists"));
+    }
+
+    @Test
+    void flush_permanentError_appliesOneByOneAndParksBadRecord() {
+        engine = start();
+        Transaction ok = engine.transfer(userId, cardA, cardB, 100L);
+        Transaction bad = engine.transfer(userId, cardA, cardB, 200L);
+        when(store.apply(any(), any())).thenAnswer(invocation -> {
+            List<JournalRecord> records = invocation.getArgument(0);
+            if (records.stream().anyMatch(record -> record.transactionId().equals(bad.getId()))) {
+                throw new DataIntegrityViolationException("fk_ledger_postings_card");
+            }
+            return List.of();
+        });
+
+        engine.flush();
+        engine.flush();
+
+        verify(store).apply(argThat(records -> records.size() == 1
+                && records.get(0).transactionId().equals(ok.getId())), any());
+        verify(store).park(argThat(record -> record.transactionId().equals(bad.getId())),
+                contains("fk_ledger_postings_card"));
+        // Позиция журнала сдвинулась, повторный сброс ничего не отправляет
+        verify(store, times(3)).apply(any(), any());
+    }
+
+    @Test
+    void rejectsJournalSizeThatDoesNotFitMappedBuffer() {
+        String path = directory.resolve("balance.journal").toString();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new InMemoryBalanceEngine(store, path, 2048, false, 60_000, 100, 16, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> new InMemoryBalanceEngine(store, path, 0, false, 60_000, 100, 16, false));
+    }
+
+    private InMemoryBalanceEngine start() {
+        lenient().when(store.loadAll()).thenReturn(List.of(
+                new CardAccount(cardA, userId, "1111", CardStatus.ACTIVE, 500L),
+                new CardAccount(cardB, userId, "2222", CardStatus.ACTIVE, 100L)));
+        InMemoryBalanceEngine started = new InMemoryBalanceEngine(store, directory.resolve("balance.journal").toString(),
+                1, false, 60_000, 100, 16, false);
+        started.start();
+        return started;
+    }
+}
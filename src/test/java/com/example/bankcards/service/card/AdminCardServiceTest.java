@@ -2,6 +2,7 @@ package com.example.bankcards.service.card;
 
 import com.example.bankcards.dto.card.create.RequestCreateCardDto;
 import com.example.bankcards.dto.card.create.ResponseCreateCardDto;
+import com.example.bankcards.dto.card.ledger.ResponseLedgerBalanceDto;
 import com.example.bankcards.dto.card.request.ResponseBlockDto;
 import com.example.bankcards.dto.card.select.ResponseCardDto;
 import com.example.bankcards.entity.Card;
@@ -13,12 +14,16 @@ import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.repository.CardBlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.service.LedgerService;
+import com.example.bankcards.service.balance.BalanceEngine;
 import com.example.bankcards.util.SecurityUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -50,6 +55,18 @@ public class AdminCardServiceTest {
     @Mock
     private CardBlockRequestRepository cardBlockRepository;
 
+    @Mock
+    private ShardedBalanceService shardedBalanceService;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private ObjectProvider<BalanceEngine> balanceEngine;
+
     @InjectMocks
     private AdminCardService cardService;
 
@@ -152,28 +169,28 @@ public class AdminCardServiceTest {
         int page = 0;
         int size = 2;
 
-        Card card1 = Card.builder().id(UUID.randomUUID()).last4("1234").build();
-        Card card2 = Card.builder().id(UUID.randomUUID()).last4("5678").build();
+        CardView card1 = cardView(UUID.randomUUID(), "1234");
+        CardView card2 = cardView(UUID.randomUUID(), "5678");
 
-        List<Card> cards = List.of(card1, card2);
-        Page<Card> cardPage = new PageImpl<>(cards);
+        List<CardView> cards = List.of(card1, card2);
+        Page<CardView> cardPage = new PageImpl<>(cards);
 
-        when(cardRepository.findAll(PageRequest.of(page, size, Sort.by("createdAt").descending())))
+        when(cardRepository.findAllViews(PageRequest.of(page, size, Sort.by("createdAt").descending())))
                 .thenReturn(cardPage);
-        when(cardMapper.toDto(any(Card.class)))
+        when(cardMapper.toDto(any(CardView.class)))
                 .thenAnswer(invocation -> {
-                    Card card = invocation.getArgument(0);
+                    CardView card = invocation.getArgument(0);
                     return ResponseCardDto.builder()
-                            .id(card.getId())
-                            .last4(card.getLast4())
+                            .id(card.id())
+                            .last4(card.last4())
                             .build();
                 });
 
         Page<ResponseCardDto> result = cardService.getAllCards(page, size);
 
         assertEquals(2, result.getContent().size());
-        assertEquals(card1.getId(), result.getContent().get(0).getId());
-        assertEquals(card2.getId(), result.getContent().get(1).getId());
+        assertEquals(card1.id(), result.getContent().get(0).getId());
+        assertEquals(card2.id(), result.getContent().get(1).getId());
     }
 
     @Test
@@ -181,9 +198,9 @@ public class AdminCardServiceTest {
         int page = 0;
         int size = 2;
 
-        Page<Card> cardPage = new PageImpl<>(Collections.emptyList());
+        Page<CardView> cardPage = new PageImpl<>(Collections.emptyList());
 
-        when(cardRepository.findAll(PageRequest.of(page, size, Sort.by("createdAt").descending())))
+        when(cardRepository.findAllViews(PageRequest.of(page, size, Sort.by("createdAt").descending())))
                 .thenReturn(cardPage);
 
         Page<ResponseCardDto> result = cardService.getAllCards(page, size);
@@ -202,11 +219,13 @@ public class AdminCardServiceTest {
         when(securityUtil.getCurrentUsername()).thenReturn("admin@example.com");
         when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
         when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(cardMapper.toDto(any(Card.class))).thenAnswer(invocation -> {
+        when(shardedBalanceService.totalBalance(card)).thenReturn(300L);
+        when(cardMapper.toDto(any(Card.class), anyLong())).thenAnswer(invocation -> {
             Card c = invocation.getArgument(0);
             return ResponseCardDto.builder()
                     .id(c.getId())
                     .status(c.getStatus())
+                    .balance(invocation.getArgument(1))
                     .build();
         });
 
@@ -214,7 +233,27 @@ public class AdminCardServiceTest {
 
         assertEquals(CardStatus.BLOCKED, result.getStatus());
         assertEquals(cardId, result.getId());
+        assertEquals(300L, result.getBalance());
         verify(cardRepository).save(card);
+        verify(cardCache).evictAfterCommit(card.getUserId(), cardId);
+    }
+
+    @Test
+    void blockCard_balanceEngineEnabled_refreshesCardStatus() {
+        UUID cardId = UUID.randomUUID();
+        Card card = Card.builder()
+                .id(cardId)
+                .status(CardStatus.ACTIVE)
+                .build();
+        BalanceEngine engine = mock(BalanceEngine.class);
+
+        when(securityUtil.getCurrentUsername()).thenReturn("admin@example.com");
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(balanceEngine.getIfAvailable()).thenReturn(engine);
+
+        cardService.blockCard(cardId);
+
+        verify(engine).refreshCard(cardId);
     }
 
     @Test
@@ -256,11 +295,13 @@ public class AdminCardServiceTest {
         when(securityUtil.getCurrentUsername()).thenReturn("admin@example.com");
         when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
         when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(cardMapper.toDto(any(Card.class))).thenAnswer(invocation -> {
+        when(shardedBalanceService.totalBalance(card)).thenReturn(300L);
+        when(cardMapper.toDto(any(Card.class), anyLong())).thenAnswer(invocation -> {
             Card c = invocation.getArgument(0);
             return ResponseCardDto.builder()
                     .id(c.getId())
                     .status(c.getStatus())
+                    .balance(invocation.getArgument(1))
                     .build();
         });
 
@@ -268,6 +309,7 @@ public class AdminCardServiceTest {
 
         assertEquals(CardStatus.ACTIVE, result.getStatus());
         assertEquals(cardId, result.getId());
+        assertEquals(300L, result.getBalance());
         verify(cardRepository).save(card);
     }
 
@@ -302,13 +344,10 @@ public class AdminCardServiceTest {
     @Test
     void findCardById_success() {
         UUID cardId = UUID.randomUUID();
-        Card card = Card.builder()
-                .id(cardId)
-                .status(CardStatus.ACTIVE)
-                .build();
+        CardView card = cardView(cardId, "1234");
 
         when(securityUtil.getCurrentUsername()).thenReturn("admin@example.com");
-        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(cardRepository.findViewById(cardId)).thenReturn(Optional.of(card));
         when(cardMapper.toDto(card)).thenReturn(ResponseCardDto.builder()
                 .id(cardId)
                 .status(CardStatus.ACTIVE)
@@ -324,7 +363,7 @@ public class AdminCardServiceTest {
     void findCardById_notFound_throwsNotFoundException() {
         UUID cardId = UUID.randomUUID();
 
-        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findViewById(cardId)).thenReturn(Optional.empty());
 
         NotFoundException ex = assertThrows(NotFoundException.class,
                 () -> cardService.findCardById(cardId));
@@ -413,4 +452,80 @@ public class AdminCardServiceTest {
 
         assertEquals("card not found", ex.getMessage());
     }
+
+    @Test
+    void setBalanceShards_success() {
+        UUID cardId = UUID.randomUUID();
+        Card card = Card.builder().id(cardId).balance(100L).build();
+
+        when(securityUtil.getCurrentUsername()).thenReturn("admin@example.com");
+        when(cardRepository.findAllByIdInForUpdate(List.of(cardId))).thenReturn(List.of(card));
+        when(shardedBalanceService.totalBalance(card)).thenReturn(100L);
+        when(cardMapper.toDto(card, 100L)).thenReturn(ResponseCardDto.builder().id(cardId).balance(100L).balanceShards(8).build());
+
+        ResponseCardDto result = cardService.setBalanceShards(cardId, 8);
+
+        assertEquals(8, result.getBalanceShards());
+        assertEquals(100L, result.getBalance());
+        verify(shardedBalanceService).reshard(card, 8);
+        verify(cardRepository).save(card);
+    }
+
+    @Test
+    void setBalanceShards_cardNotFound_throwsNotFoundException() {
+        UUID cardId = UUID.randomUUID();
+
+        when(cardRepository.findAllByIdInForUpdate(List.of(cardId))).thenReturn(List.of());
+
+        NotFoundException ex = assertThrows(NotFoundException.class,
+                () -> cardService.setBalanceShards(cardId, 8));
+
+        assertEquals("card not found", ex.getMessage());
+        verifyNoInteractions(shardedBalanceService);
+    }
+
+    @Test
+    void reconcileLedger_balancesMatch_consistent() {
+        UUID cardId = UUID.randomUUID();
+        Card card = Card.builder().id(cardId).last4("1234").balance(300L).build();
+
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(shardedBalanceService.totalBalance(card)).thenReturn(300L);
+        when(ledgerService.ledgerBalance(cardId)).thenReturn(300L);
+
+        ResponseLedgerBalanceDto result = cardService.reconcileLedger(cardId);
+
+        assertEquals(300L, result.getCardBalance());
+        assertEquals(300L, result.getLedgerBalance());
+        assertTrue(result.getConsistent());
+        assertEquals("**** **** **** 1234", result.getMaskedCard());
+    }
+
+    @Test
+    void reconcileLedger_balancesDiffer_inconsistent() {
+        UUID cardId = UUID.randomUUID();
+        Card card = Card.builder().id(cardId).last4("1234").balance(300L).build();
+
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(shardedBalanceService.totalBalance(card)).thenReturn(300L);
+        when(ledgerService.ledgerBalance(cardId)).thenReturn(250L);
+
+        ResponseLedgerBalanceDto result = cardService.reconcileLedger(cardId);
+
+        assertFalse(result.getConsistent());
+    }
+
+    @Test
+    void reconcileLedger_cardNotFound_throwsNotFoundException() {
+        UUID cardId = UUID.randomUUID();
+
+        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> cardService.reconcileLedger(cardId));
+        verifyNoInteractions(ledgerService);
+    }
+
+    private static CardView cardView(UUID cardId, String last4) {
+        return new CardView(cardId, last4, "IVAN IVANOV", 12, 30, CardStatus.ACTIVE, 0L, 0, Instant.now(), UUID.randomUUID());
+    }
 }
@@ -0,0 +1,135 @@
+package com.example.bankcards.service.card;
+
+import com.example.bankcards.dto.card.select.ResponseCardDto;
+import com.example.bankcards.dto.transaction.balance.ResponseBalanceDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardCacheTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cardId = UUID.randomUUID();
+
+    private SimpleMeterRegistry meterRegistry;
+    private CardCache cardCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cardCache = new CardCache(meterRegistry, 100, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getBalance_secondCall_hitsCacheAndRecordsMetrics() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cardCache.getBalance(cardId, userId, () -> balance(loads.incrementAndGet() * 100L));
+        ResponseBalanceDto result = cardCache.getBalance(cardId, userId, () -> balance(loads.incrementAndGet() * 100L));
+
+        assertEquals(100L, result.getBalance());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "card-balances").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void getCard_cachedForAnotherUser_callsLoaderAgain() {
+        UUID strangerId = UUID.randomUUID();
+        cardCache.getCard(cardId, userId, () -> ResponseCardDto.builder().id(cardId).build());
+
+        assertThrows(IllegalStateException.class, () -> cardCache.getCard(cardId, strangerId, () -> {
+            throw new IllegalStateException("not yours");
+        }));
+    }
+
+    @Test
+    void getBalance_loaderFailed_notCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> cardCache.getBalance(cardId, userId, () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("db down");
+        }));
+        ResponseBalanceDto result = cardCache.getBalance(cardId, userId, () -> balance(loads.incrementAndGet() * 100L));
+
+        assertEquals(200L, result.getBalance());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictAfterCommit_insideTransaction_keepsEntryUntilCommit() {
+        AtomicInteger loads = new AtomicInteger();
+        cardCache.getBalance(cardId, userId, () -> balance(loads.incrementAndGet()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        cardCache.evictAfterCommit(userId, cardId);
+        cardCache.getBalance(cardId, userId, () -> balance(loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        cardCache.getBalance(cardId, userId, () -> balance(loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictAfterCommit_dropsAllPagesOfUser() {
+        AtomicInteger loads = new AtomicInteger();
+        Page<ResponseCardDto> page = new PageImpl<>(List.of(ResponseCardDto.builder().id(cardId).build()));
+
+        cardCache.getUserCards(userId, PageRequest.of(0, 10), () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        cardCache.getUserCards(userId, PageRequest.of(0, 10), () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        assertEquals(1, loads.get());
+
+        cardCache.evictAfterCommit(userId, cardId);
+        cardCache.getUserCards(userId, PageRequest.of(0, 10), () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictAfterCommit_notifiesListenersAfterCommit() {
+        List<UUID> evicted = new ArrayList<>();
+        cardCache.addEvictionListener(evicted::add);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cardCache.evictAfterCommit(userId, cardId);
+        assertTrue(evicted.isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of(userId), evicted);
+    }
+
+    private ResponseBalanceDto balance(long value) {
+        return ResponseBalanceDto.builder().balance(value).build();
+    }
+}
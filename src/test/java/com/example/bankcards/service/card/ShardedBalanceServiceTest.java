@@ -0,0 +1,121 @@
+package com.example.bankcards.service.card;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ShardedBalanceServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ShardedBalanceService shardedBalanceService;
+
+    private final UUID cardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        shardedBalanceService = new ShardedBalanceService(cardRepository, transactionManager, 16);
+    }
+
+    @Test
+    void ensureAvailable_notEnoughInBase_foldsShards() {
+        Card card = Card.builder().id(cardId).balance(50L).balanceShards(4).build();
+
+        when(cardRepository.lockShardsTotal(cardId)).thenReturn(300L);
+
+        shardedBalanceService.ensureAvailable(card, 100L);
+
+        assertEquals(350L, card.getBalance());
+        verify(cardRepository).resetShards(cardId);
+    }
+
+    @Test
+    void ensureAvailable_enoughInBase_doesNotTouchShards() {
+        Card card = Card.builder().id(cardId).balance(500L).balanceShards(4).build();
+
+        shardedBalanceService.ensureAvailable(card, 100L);
+
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void reshard_makesCardHot_andCreditsGoToShards() {
+        Card card = Card.builder().id(cardId).balance(100L).build();
+
+        shardedBalanceService.reshard(card, 8);
+
+        assertEquals(8, card.getBalanceShards());
+        assertTrue(shardedBalanceService.isHot(cardId));
+        verify(cardRepository).createShards(cardId, 8);
+
+        when(cardRepository.creditShard(eq(cardId), anyInt(), eq(10L))).thenReturn(1);
+        assertTrue(shardedBalanceService.creditShard(cardId, 10L));
+    }
+
+    @Test
+    void reshard_toZero_foldsAndDropsShards() {
+        Card card = Card.builder().id(cardId).balance(100L).balanceShards(4).build();
+
+        when(cardRepository.lockShardsTotal(cardId)).thenReturn(40L);
+
+        shardedBalanceService.reshard(card, 0);
+
+        assertEquals(140L, card.getBalance());
+        assertEquals(0, card.getBalanceShards());
+        assertFalse(shardedBalanceService.isHot(cardId));
+        verify(cardRepository).deleteShards(cardId);
+        verify(cardRepository, never()).createShards(any(), anyInt());
+    }
+
+    @Test
+    void reshard_tooManyShards_throwsBadRequestException() {
+        Card card = Card.builder().id(cardId).build();
+
+        assertThrows(BadRequestException.class, () -> shardedBalanceService.reshard(card, 17));
+    }
+
+    @Test
+    void totalBalance_hotCard_includesShards() {
+        Card card = Card.builder().id(cardId).balance(100L).balanceShards(4).build();
+
+        when(cardRepository.sumShards(cardId)).thenReturn(25L);
+
+        assertEquals(125L, shardedBalanceService.totalBalance(card));
+    }
+
+    @Test
+    void foldHotCards_foldsEachHotCardAndRefreshesRouting() {
+        Card card = Card.builder().id(cardId).balance(100L).balanceShards(4).build();
+
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(cardRepository.findAllByBalanceShardsGreaterThan(0)).thenReturn(List.of(card));
+        when(cardRepository.findAllByIdInForUpdate(List.of(cardId))).thenReturn(List.of(card));
+        when(cardRepository.lockShardsTotal(cardId)).thenReturn(60L);
+
+        shardedBalanceService.foldHotCards();
+
+        assertEquals(160L, card.getBalance());
+        assertTrue(shardedBalanceService.isHot(cardId));
+    }
+}
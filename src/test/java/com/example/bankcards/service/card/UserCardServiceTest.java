@@ -12,13 +12,25 @@ import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.repository.CardBlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.service.balance.BalanceEngine;
 import com.example.bankcards.util.SecurityUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -42,6 +54,12 @@ public class UserCardServiceTest {
     @Mock
     private CardBlockRequestRepository blockRequestRepository;
 
+    @Mock
+    private ObjectProvider<BalanceEngine> balanceEngine;
+
+    @Spy
+    private CardCache cardCache = new CardCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private UserCardService cardService;
 
@@ -128,12 +146,7 @@ public class UserCardServiceTest {
     void getCardById_success() {
         UUID userId = UUID.randomUUID();
         UUID cardId = UUID.randomUUID();
-        Card card = Card.builder()
-                .id(cardId)
-                .last4("1234")
-                .status(CardStatus.ACTIVE)
-                .userId(userId)
-                .build();
+        CardView card = cardView(cardId, userId);
 
         ResponseCardDto expectedDto = ResponseCardDto.builder()
                 .id(cardId)
@@ -142,13 +155,13 @@ public class UserCardServiceTest {
                 .build();
 
         when(securityUtil.getCurrentUserId()).thenReturn(userId);
-        when(cardRepository.findByIdAndUserId(cardId, userId)).thenReturn(Optional.of(card));
+        when(cardRepository.findViewByIdAndUserId(cardId, userId)).thenReturn(Optional.of(card));
         when(cardMapper.toDto(card)).thenReturn(expectedDto);
 
         ResponseCardDto result = cardService.getCardById(cardId);
 
         assertThat(result).isEqualTo(expectedDto);
-        verify(cardRepository).findByIdAndUserId(cardId, userId);
+        verify(cardRepository).findViewByIdAndUserId(cardId, userId);
         verify(cardMapper).toDto(card);
     }
 
@@ -158,11 +171,88 @@ public class UserCardServiceTest {
         UUID cardId = UUID.randomUUID();
 
         when(securityUtil.getCurrentUserId()).thenReturn(userId);
-        when(cardRepository.findByIdAndUserId(cardId, userId)).thenReturn(Optional.empty());
+        when(cardRepository.findViewByIdAndUserId(cardId, userId)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> cardService.getCardById(cardId));
 
-        verify(cardRepository).findByIdAndUserId(cardId, userId);
+        verify(cardRepository).findViewByIdAndUserId(cardId, userId);
         verifyNoInteractions(cardMapper);
     }
+
+    @Test
+    void getCardById_secondCall_servedFromCache() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        CardView card = cardView(cardId, userId);
+        ResponseCardDto expectedDto = ResponseCardDto.builder().id(cardId).last4("1234").build();
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(cardRepository.findViewByIdAndUserId(cardId, userId)).thenReturn(Optional.of(card));
+        when(cardMapper.toDto(card)).thenReturn(expectedDto);
+
+        cardService.getCardById(cardId);
+        ResponseCardDto result = cardService.getCardById(cardId);
+
+        assertThat(result).isEqualTo(expectedDto);
+        verify(cardRepository, times(1)).findViewByIdAndUserId(cardId, userId);
+    }
+
+    @Test
+    void getCardById_cachedForAnotherUser_throwsNotFoundException() {
+        UUID ownerId = UUID.randomUUID();
+        UUID strangerId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        CardView card = cardView(cardId, ownerId);
+
+        when(securityUtil.getCurrentUserId()).thenReturn(ownerId, strangerId);
+        when(cardRepository.findViewByIdAndUserId(cardId, ownerId)).thenReturn(Optional.of(card));
+        when(cardRepository.findViewByIdAndUserId(cardId, strangerId)).thenReturn(Optional.empty());
+        when(cardMapper.toDto(card)).thenReturn(ResponseCardDto.builder().id(cardId).build());
+
+        cardService.getCardById(cardId);
+
+        assertThrows(NotFoundException.class, () -> cardService.getCardById(cardId));
+    }
+
+    @Test
+    void getCardById_balanceEngine_readsBalanceFromEngineBypassingCache() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        CardView card = cardView(cardId, userId);
+        BalanceEngine engine = mock(BalanceEngine.class);
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(balanceEngine.getIfAvailable()).thenReturn(engine);
+        when(cardRepository.findViewByIdAndUserId(cardId, userId)).thenReturn(Optional.of(card));
+        when(cardMapper.toDto(card)).thenAnswer(invocation -> ResponseCardDto.builder().id(cardId).balance(0L).build());
+        // Перевод прошел через движок, журнал в cards.balance еще не сброшен
+        when(engine.balance(cardId)).thenReturn(500L, 400L);
+
+        assertEquals(500L, cardService.getCardById(cardId).getBalance());
+        assertEquals(400L, cardService.getCardById(cardId).getBalance());
+        verify(cardRepository, times(2)).findViewByIdAndUserId(cardId, userId);
+    }
+
+    @Test
+    void getAllUserCards_balanceEngine_readsBalancesFromEngine() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        CardView card = cardView(cardId, userId);
+        BalanceEngine engine = mock(BalanceEngine.class);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(securityUtil.getCurrentUserId()).thenReturn(userId);
+        when(balanceEngine.getIfAvailable()).thenReturn(engine);
+        when(cardRepository.findViewsByUserId(userId, pageable)).thenReturn(new PageImpl<>(List.of(card), pageable, 1));
+        when(cardMapper.toDto(card)).thenReturn(ResponseCardDto.builder().id(cardId).balance(0L).build());
+        when(engine.balance(cardId)).thenReturn(400L);
+
+        Page<ResponseCardDto> result = cardService.getAllUserCards(pageable);
+
+        assertEquals(400L, result.getContent().get(0).getBalance());
+    }
+
+    private static CardView cardView(UUID cardId, UUID userId) {
+        return new CardView(cardId, "1234", "IVAN IVANOV", 12, 30, CardStatus.ACTIVE, 0L, 0, Instant.now(), userId);
+    }
 }
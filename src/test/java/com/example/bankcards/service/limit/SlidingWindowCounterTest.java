@@ -0,0 +1,70 @@
+package com.example.bankcards.service.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlidingWindowCounterTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofHours(1), 60);
+    private final UUID cardId = UUID.randomUUID();
+
+    @Test
+    void tryAcquire_overAmountLimit_rejectsAndDoesNotCount() {
+        SlidingWindowCounter.Limit limit = new SlidingWindowCounter.Limit(1000L, 0);
+
+        assertTrue(counter.tryAcquire(cardId, 600L, limit, 0));
+        assertFalse(counter.tryAcquire(cardId, 500L, limit, MINUTE));
+        assertTrue(counter.tryAcquire(cardId, 400L, limit, 2 * MINUTE));
+
+        assertEquals(1000L, counter.amount(cardId, 2 * MINUTE));
+        assertEquals(2, counter.count(cardId, 2 * MINUTE));
+    }
+
+    @Test
+    void tryAcquire_overCountLimit_rejects() {
+        SlidingWindowCounter.Limit limit = new SlidingWindowCounter.Limit(0, 2);
+
+        assertTrue(counter.tryAcquire(cardId, 1L, limit, 0));
+        assertTrue(counter.tryAcquire(cardId, 1L, limit, 0));
+        assertFalse(counter.tryAcquire(cardId, 1L, limit, 0));
+    }
+
+    @Test
+    void tryAcquire_afterWindowPassed_oldTransfersDropOut() {
+        SlidingWindowCounter.Limit limit = new SlidingWindowCounter.Limit(1000L, 0);
+
+        assertTrue(counter.tryAcquire(cardId, 1000L, limit, 10 * MINUTE));
+        assertFalse(counter.tryAcquire(cardId, 1L, limit, 69 * MINUTE));
+        assertTrue(counter.tryAcquire(cardId, 1000L, limit, 70 * MINUTE));
+
+        assertEquals(1000L, counter.amount(cardId, 70 * MINUTE));
+    }
+
+    @Test
+    void release_sameInterval_removesTransfer() {
+        SlidingWindowCounter.Limit limit = new SlidingWindowCounter.Limit(1000L, 0);
+        counter.tryAcquire(cardId, 700L, limit, MINUTE);
+
+        counter.release(cardId, 700L, MINUTE);
+
+        assertEquals(0L, counter.amount(cardId, MINUTE));
+        assertEquals(0L, counter.count(cardId, MINUTE));
+    }
+
+    @Test
+    void release_bucketReused_keepsNewerTransfers() {
+        SlidingWindowCounter.Limit limit = new SlidingWindowCounter.Limit(0, 10);
+        counter.tryAcquire(cardId, 700L, limit, 0);
+        counter.tryAcquire(cardId, 300L, limit, 60 * MINUTE);
+
+        counter.release(cardId, 700L, 0);
+
+        assertEquals(300L, counter.amount(cardId, 60 * MINUTE));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.service.limit;
+
+import com.example.bankcards.exception.TransferLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.projection.RecentTransfer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferLimitServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID cardId = UUID.randomUUID();
+    private final UUID otherCardId = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void acquire_cardDailyAmountExceeded_throws() {
+        TransferLimitService service = service(0, 1000L);
+
+        service.acquire(userId, cardId, 800L);
+        TransferLimitExceededException ex = assertThrows(TransferLimitExceededException.class,
+                () -> service.acquire(userId, cardId, 300L));
+
+        assertEquals("card daily transfer limit exceeded", ex.getMessage());
+        service.acquire(userId, otherCardId, 300L);
+    }
+
+    @Test
+    void acquire_userLimitSpansAllCards() {
+        TransferLimitService service = service(500L, 0);
+
+        service.acquire(userId, cardId, 300L);
+
+        assertThrows(TransferLimitExceededException.class, () -> service.acquire(userId, otherCardId, 300L));
+    }
+
+    @Test
+    void acquire_transactionRolledBack_releasesReservation() {
+        TransferLimitService service = service(0, 1000L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.acquire(userId, cardId, 800L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        service.acquire(userId, cardId, 800L);
+    }
+
+    @Test
+    void rebuild_restoresCountersFromRecentTransfers() {
+        TransferLimitService service = service(0, 1000L);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(transactionRepository.streamOutgoingSince(any())).thenReturn(Stream.of(
+                new RecentTransfer(userId, cardId, Instant.now().minusSeconds(3600), 900L)));
+
+        service.rebuild();
+
+        assertThrows(TransferLimitExceededException.class, () -> service.acquire(userId, cardId, 200L));
+    }
+
+    @Test
+    void noLimitsConfigured_skipsRebuildAndAcceptsEverything() {
+        TransferLimitService service = new TransferLimitService(transactionRepository, transactionManager,
+                0, 0, 0, 0, 0, 0, 0, 0);
+
+        service.rebuild();
+        service.acquire(userId, cardId, Long.MAX_VALUE);
+
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private TransferLimitService service(long userDailyAmount, long cardDailyAmount) {
+        return new TransferLimitService(transactionRepository, transactionManager,
+                0, 0, cardDailyAmount, 0, 0, 0, userDailyAmount, 0);
+    }
+}
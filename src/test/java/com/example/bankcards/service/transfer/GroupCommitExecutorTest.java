@@ -0,0 +1,156 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.NotEnoughBalanceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitExecutorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(3);
+    private final Card card = Card.builder().id(UUID.randomUUID()).balance(100L).build();
+    private final AtomicInteger lockCalls = new AtomicInteger();
+    private GroupCommitExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    @Test
+    void submit_concurrentTransfers_committedInOneTransaction() throws Exception {
+        startExecutor();
+
+        List<Future<String>> results = submitThree(false);
+
+        for (Future<String> result : results) {
+            assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        }
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(1, lockCalls.get());
+    }
+
+    @Test
+    void submit_oneTransferFails_othersStillCommitted() throws Exception {
+        startExecutor();
+
+        List<Future<String>> results = submitThree(true);
+
+        int failed = 0;
+        for (Future<String> result : results) {
+            try {
+                assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+            } catch (ExecutionException ex) {
+                assertInstanceOf(NotEnoughBalanceException.class, ex.getCause());
+                failed++;
+            }
+        }
+        assertEquals(1, failed);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void submit_batchCommitFails_transfersRetriedOneByOne() throws Exception {
+        doThrow(new TransactionSystemException("commit failed"))
+                .doNothing()
+                .when(transactionManager).commit(any());
+        startExecutor();
+
+        List<Future<String>> results = submitThree(false);
+
+        for (Future<String> result : results) {
+            assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        }
+        verify(transactionManager, times(4)).commit(any());
+        assertEquals(4, lockCalls.get());
+    }
+
+    @Test
+    void submit_retriedTransferDeadlocks_retriedByTransferExecutor() throws Exception {
+        doThrow(new TransactionSystemException("commit failed"))
+                .doThrow(new CannotAcquireLockException("deadlock detected"))
+                .doNothing()
+                .when(transactionManager).commit(any());
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        executor = new GroupCommitExecutor(transferExecutor(TransferConcurrencyMode.PESSIMISTIC), transactionManager, true, 1_000, 1, 1);
+        executor.start();
+
+        Future<String> result = callers.submit(() -> executor.submit(List.of(card.getId()), this::lock, cards -> "ok"));
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void start_nonPessimisticMode_throwsIllegalStateException() {
+        executor = new GroupCommitExecutor(transferExecutor(TransferConcurrencyMode.OPTIMISTIC), transactionManager, true, 0, 1, 1);
+
+        assertThrows(IllegalStateException.class, () -> executor.start());
+    }
+
+    @Test
+    void submit_disabled_throwsIllegalStateException() {
+        executor = new GroupCommitExecutor(transferExecutor(TransferConcurrencyMode.OPTIMISTIC), transactionManager, false, 0, 1, 1);
+        executor.start();
+
+        assertThrows(IllegalStateException.class, () -> executor.submit(List.of(card.getId()), this::lock, cards -> "ok"));
+    }
+
+    // Большое окно и пачка из трех: все три перевода гарантированно попадают в одну транзакцию
+    private void startExecutor() {
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        executor = new GroupCommitExecutor(transferExecutor(TransferConcurrencyMode.PESSIMISTIC), transactionManager, true, 5_000_000, 3, 1);
+        executor.start();
+    }
+
+    private TransferExecutor transferExecutor(TransferConcurrencyMode mode) {
+        return new TransferExecutor(transactionManager, mode, 3, 0);
+    }
+
+    private Map<UUID, Card> lock(Collection<UUID> cardIds) {
+        lockCalls.incrementAndGet();
+        return Map.of(card.getId(), card);
+    }
+
+    private List<Future<String>> submitThree(boolean secondFails) {
+        return List.of(
+                callers.submit(() -> executor.submit(List.of(card.getId()), this::lock, cards -> "ok")),
+                callers.submit(() -> executor.submit(List.of(card.getId()), this::lock, cards -> {
+                    if (secondFails) {
+                        throw new NotEnoughBalanceException("not enough balance for transaction");
+                    }
+                    return "ok";
+                })),
+                callers.submit(() -> executor.submit(List.of(card.getId()), this::lock, cards -> "ok")));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.bankcards.service.transfer;
+
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.exception.NotEnoughBalanceException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferExecutorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void execute_optimisticConflict_retriesUntilSuccess() {
+        TransferExecutor executor = new TransferExecutor(transactionManager, TransferConcurrencyMode.OPTIMISTIC, 3, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Card", "id");
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, calls.get());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void execute_conflictAfterMaxAttempts_throwsConflictException() {
+        TransferExecutor executor = new TransferExecutor(transactionManager, TransferConcurrencyMode.OPTIMISTIC, 2, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new CannotAcquireLockException("deadlock");
+        }));
+
+        assertEquals("transfer conflicted with a concurrent operation, try again", exception.getMessage());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void execute_businessException_isNotRetried() {
+        TransferExecutor executor = new TransferExecutor(transactionManager, TransferConcurrencyMode.OPTIMISTIC, 5, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(NotEnoughBalanceException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new NotEnoughBalanceException("not enough balance for transaction");
+        }));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_serializable_usesSerializableIsolationAndRetriesSerializationFailure() {
+        TransferExecutor executor = new TransferExecutor(transactionManager, TransferConcurrencyMode.SERIALIZABLE, 2, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new TransactionSystemException("commit failed",
+                        new SQLException("could not serialize access", "40001"));
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        verify(transactionManager, times(2)).getTransaction(argThat(definition ->
+                definition.getIsolationLevel() == TransactionDefinition.ISOLATION_SERIALIZABLE));
+    }
+}